@@ -0,0 +1,108 @@
+package study.querydsl.benchmark;
+
+import org.hibernate.Hibernate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.QueryStatistics;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * 회원 1,000 명의 팀, 팀 100 개의 회원 컬렉션을 지연 로딩으로 훑는 비용. none 은 하나씩, batch 는 100 개씩 in 으로, subselect 는 컬렉션을
+ * 주인 조회의 서브쿼리로 읽는다. 2차 캐시는 끄고 DB 에서 읽는 비용만 잰다.
+ *
+ * <p>호출마다 실행된 SQL 수는 setup 에서 한 번 세어 출력한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AssociationFetchBenchmark {
+
+  @Param({"none", "batch", "subselect"})
+  String fetch;
+
+  private ConfigurableApplicationContext context;
+  private NPlusOneDetector nPlusOneDetector;
+
+  @Setup
+  public void setUp() {
+    context =
+        BenchmarkContext.start(
+            "--querydsl.association-fetch.batch-size=" + (fetch.equals("none") ? 0 : 100),
+            "--querydsl.association-fetch.collection-fetch="
+                + (fetch.equals("subselect") ? "subselect" : "batch"),
+            "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+            "--querydsl.n-plus-one.fail-fast=false");
+    BenchmarkContext.seed(context, 100, 1000);
+    nPlusOneDetector = context.getBean(NPlusOneDetector.class);
+
+    System.out.printf(
+        "%n[%s] statements: memberTeams=%d, teamMembers=%d%n",
+        fetch, statements(this::walkMemberTeams), statements(this::walkTeamMembers));
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int memberTeams() {
+    return walk(this::walkMemberTeams);
+  }
+
+  @Benchmark
+  public int teamMembers() {
+    return walk(this::walkTeamMembers);
+  }
+
+  private int walkMemberTeams(EntityManager em) {
+    List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+    int length = 0;
+    for (Member member : members) {
+      length += member.getTeam().getName().length();
+    }
+    return length;
+  }
+
+  private int walkTeamMembers(EntityManager em) {
+    List<Team> teams = em.createQuery("select t from Team t", Team.class).getResultList();
+    int size = 0;
+    for (Team team : teams) {
+      // EXTRA 라서 size() 만으로는 컬렉션을 읽지 않는다
+      Hibernate.initialize(team.getMembers());
+      size += team.getMembers().size();
+    }
+    return size;
+  }
+
+  private int statements(ToIntFunction<EntityManager> walk) {
+    try (QueryStatistics statistics = nPlusOneDetector.open(fetch)) {
+      walk(walk);
+      return statistics.getStatements();
+    }
+  }
+
+  private int walk(ToIntFunction<EntityManager> walk) {
+    EntityManager em = BenchmarkContext.newEntityManager(context);
+    try {
+      return walk.applyAsInt(em);
+    } finally {
+      em.close();
+    }
+  }
+}
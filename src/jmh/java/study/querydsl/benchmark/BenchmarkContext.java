@@ -0,0 +1,67 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** 벤치마크용 애플리케이션 컨텍스트. 내장 H2 메모리 DB 를 사용하고 SQL 로그는 끈다. */
+public final class BenchmarkContext {
+
+  /** 설정은 src/jmh/resources/application-bench.yml 에 있다 */
+  private static final String[] DEFAULT_ARGS = {"--spring.profiles.active=bench"};
+
+  private BenchmarkContext() {}
+
+  public static ConfigurableApplicationContext start(String... extraArgs) {
+    List<String> args = new ArrayList<>(Arrays.asList(DEFAULT_ARGS));
+    args.addAll(Arrays.asList(extraArgs));
+    return new SpringApplicationBuilder(QuerydslApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(args.toArray(new String[0]));
+  }
+
+  /**
+   * teamCount 개 팀에 memberCount 명의 회원을 고르게 나눠 넣는다. 나이는 0~99
+   *
+   * <p>팀 객체를 계속 쓰면 팀의 members 가 모든 회원을 붙잡으므로 팀은 먼저 커밋하고 회원마다 getReference 로 받는다.
+   */
+  public static void seed(ConfigurableApplicationContext context, int teamCount, int memberCount) {
+    EntityManager em = context.getBean(EntityManager.class);
+    TransactionTemplate tx = context.getBean(TransactionTemplate.class);
+
+    Long[] teamIds = new Long[teamCount];
+    tx.executeWithoutResult(
+        status -> {
+          for (int i = 0; i < teamCount; i++) {
+            Team team = new Team("Team" + i);
+            em.persist(team);
+            teamIds[i] = team.getId();
+          }
+        });
+    tx.executeWithoutResult(
+        status -> {
+          for (int i = 0; i < memberCount; i++) {
+            Team team = em.getReference(Team.class, teamIds[i % teamCount]);
+            em.persist(new Member("member" + i, i % 100, team));
+            if (i % 1000 == 999) {
+              em.flush();
+              em.clear();
+            }
+          }
+        });
+  }
+
+  public static EntityManager newEntityManager(ConfigurableApplicationContext context) {
+    return context.getBean(EntityManagerFactory.class).createEntityManager();
+  }
+}
@@ -0,0 +1,83 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.datagen.MemberDataGenerator;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 1,100,000 명에서 /v2/members 의 offset 페이지(20건)를 읽을 때, 한 번에 읽는 것과 식별자부터 페이징하는 지연 join 의 비교.
+ * 전체 개수는 count 캐시에서 나오므로 컨텐츠 쿼리만 비교된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeferredJoinBenchmark {
+
+  @Param({"0", "10000", "100000", "1000000"})
+  long offset;
+
+  @Param({"false", "true"})
+  boolean deferredJoin;
+
+  private ConfigurableApplicationContext context;
+  private MemberRepository memberRepository;
+  private MemberSearchCondition all;
+  private MemberSearchCondition byAge;
+  private PageRequest[] pageRequests;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    context =
+        BenchmarkContext.start(
+            "--querydsl.pagination.deferred-join.enabled=" + deferredJoin,
+            "--querydsl.pagination.deferred-join.min-offset=0",
+            "--querydsl.datagen.teams=100",
+            "--querydsl.datagen.members=1100000");
+    context.getBean(MemberDataGenerator.class).generate();
+    memberRepository = context.getBean(MemberRepository.class);
+
+    all = new MemberSearchCondition();
+    byAge = new MemberSearchCondition();
+    byAge.setAgeGoe(10);
+    // 같은 쿼리를 반복하면 H2 가 이전 결과를 재사용하므로 offset 근처의 페이지 64개를 돌아가며 읽는다
+    pageRequests = new PageRequest[64];
+    for (int i = 0; i < pageRequests.length; i++) {
+      pageRequests[i] = PageRequest.of((int) (offset / 20) + i, 20);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> all() {
+    return memberRepository.searchPageSimple(all, nextPageRequest());
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> ageRange() {
+    return memberRepository.searchPageSimple(byAge, nextPageRequest());
+  }
+
+  private PageRequest nextPageRequest() {
+    return pageRequests[next++ & (pageRequests.length - 1)];
+  }
+}
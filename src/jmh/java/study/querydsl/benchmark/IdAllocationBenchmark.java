@@ -0,0 +1,78 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 식별자 block 크기에 따른 insert 처리량(rows/s). blockSize=1 은 persist 마다 시퀀스를 호출하는 기존 방식과 같다.
+ *
+ * <p>매 호출 전에 테이블을 비운다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class IdAllocationBenchmark {
+
+  private static final int MEMBERS = 100_000;
+
+  @Param({"1", "50", "500"})
+  int blockSize;
+
+  private ConfigurableApplicationContext context;
+  private TransactionTemplate transactionTemplate;
+  private JdbcTemplate jdbcTemplate;
+  private MemberJpaRepository memberJpaRepository;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start("--querydsl.id.block-size=" + blockSize);
+    transactionTemplate = context.getBean(TransactionTemplate.class);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+    memberJpaRepository = context.getBean(MemberJpaRepository.class);
+  }
+
+  @Setup(Level.Invocation)
+  public void truncate() {
+    jdbcTemplate.execute("delete from member");
+    jdbcTemplate.execute("delete from team");
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MEMBERS)
+  public void saveAll() {
+    Team team = new Team("TeamA");
+    List<Member> members = new ArrayList<>(MEMBERS);
+    for (int i = 0; i < MEMBERS; i++) {
+      members.add(new Member("member" + i, i % 100, team));
+    }
+    transactionTemplate.executeWithoutResult(status -> memberJpaRepository.saveAll(members));
+  }
+}
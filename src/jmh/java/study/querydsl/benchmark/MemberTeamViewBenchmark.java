@@ -0,0 +1,89 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.FileSystemUtils;
+import study.querydsl.datagen.MemberDataGenerator;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 10,000,000 명에서 member left join team 으로 검색할 때와 member_team_view 에서 join 없이 검색할 때의 비교.
+ *
+ * <p>회원 테이블과 뷰가 메모리 DB 와 1g 힙에 들어가지 않으므로 임시 디렉터리의 파일 H2 를 쓰고 힙을 3g 로 늘린다. 뷰를 켜면 데이터 생성이 끝날 때 뷰가 다시
+ * 만들어진다. 데이터 생성과 뷰 재구성에 시간이 오래 걸리므로 -p members=1000000 처럼 줄여서 돌려 볼 수 있다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = "-Xmx3g")
+public class MemberTeamViewBenchmark {
+
+  @Param({"10000000"})
+  int members;
+
+  @Param({"false", "true"})
+  boolean view;
+
+  private Path dataDir;
+  private ConfigurableApplicationContext context;
+  private MemberRepository memberRepository;
+  private MemberSearchCondition byTeamAndAge;
+  private PageRequest pageRequest;
+
+  @Setup
+  public void setUp() throws IOException {
+    dataDir = Files.createTempDirectory("member-team-view-bench");
+    context =
+        BenchmarkContext.start(
+            "--spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("bench"),
+            "--querydsl.member-team-view.enabled=" + view,
+            // 같은 조건을 반복하므로 캐시를 끄지 않으면 join 과 뷰 대신 캐시를 재게 된다
+            "--querydsl.search-result-cache.enabled=false",
+            "--querydsl.pagination.count-cache.enabled=false",
+            "--querydsl.datagen.teams=100",
+            "--querydsl.datagen.members=" + members);
+    context.getBean(MemberDataGenerator.class).generate();
+    memberRepository = context.getBean(MemberRepository.class);
+
+    byTeamAndAge = new MemberSearchCondition();
+    byTeamAndAge.setTeamName("TeamC");
+    byTeamAndAge.setAgeGoe(30);
+    byTeamAndAge.setAgeLoe(30);
+    pageRequest = PageRequest.of(10, 20);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    context.close();
+    FileSystemUtils.deleteRecursively(dataDir);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> teamAndAge() {
+    return memberRepository.search(byTeamAndAge);
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> page() {
+    return memberRepository.searchPageSimple(byTeamAndAge, pageRequest);
+  }
+}
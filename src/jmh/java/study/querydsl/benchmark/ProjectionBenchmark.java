@@ -0,0 +1,125 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * QueryDSLBasicTest 의 DTO 조회 방식별 처리량과 할당량 비교.
+ *
+ * <p>모든 방식이 같은 행(username, age)을 읽고 EntityManager 생성 비용도 동일하게 포함한다. 할당량은 gc 프로파일러의
+ * gc.alloc.rate.norm(B/op) 을 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProjectionBenchmark {
+
+  @Param({"100", "10000"})
+  int rows;
+
+  private ConfigurableApplicationContext context;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    BenchmarkContext.seed(context, 10, rows);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<MemberDto> bean() {
+    return query(
+        queryFactory ->
+            queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch());
+  }
+
+  @Benchmark
+  public List<MemberDto> fields() {
+    return query(
+        queryFactory ->
+            queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch());
+  }
+
+  @Benchmark
+  public List<MemberDto> constructor() {
+    return query(
+        queryFactory ->
+            queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch());
+  }
+
+  @Benchmark
+  public List<MemberDto> queryProjection() {
+    return query(
+        queryFactory ->
+            queryFactory.select(new QMemberDto(member.username, member.age)).from(member).fetch());
+  }
+
+  @Benchmark
+  public void tuple(Blackhole blackhole) {
+    List<Tuple> result =
+        query(
+            queryFactory -> queryFactory.select(member.username, member.age).from(member).fetch());
+    for (Tuple tuple : result) {
+      blackhole.consume(tuple.get(member.username));
+      blackhole.consume(tuple.get(member.age));
+    }
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> queryProjectionWithTeam() {
+    return query(
+        queryFactory ->
+            queryFactory
+                .select(
+                    new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch());
+  }
+
+  private <T> T query(Function<JPAQueryFactory, T> function) {
+    EntityManager em = BenchmarkContext.newEntityManager(context);
+    try {
+      return function.apply(new JPAQueryFactory(em));
+    } finally {
+      em.close();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.datagen.MemberDataGenerator;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberReadModel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 1,000,000 명에서 searchByWhere 를 DB 로 처리할 때와 읽기 모델로 처리할 때의 비교. 끝나면 읽기 모델의 행 100만 개당 메모리 추정치를
+ * 출력한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadModelBenchmark {
+
+  @Param({"false", "true"})
+  boolean readModel;
+
+  private ConfigurableApplicationContext context;
+  private MemberJpaRepository memberJpaRepository;
+  private MemberSearchCondition byUsername;
+  private MemberSearchCondition byTeamAndAge;
+
+  @Setup
+  public void setUp() {
+    context =
+        BenchmarkContext.start(
+            "--querydsl.read-model.enabled=" + readModel,
+            "--querydsl.datagen.teams=100",
+            "--querydsl.datagen.members=1000000",
+            "--querydsl.datagen.username-cardinality=100000");
+    context.getBean(MemberDataGenerator.class).generate();
+    memberJpaRepository = context.getBean(MemberJpaRepository.class);
+
+    byUsername = new MemberSearchCondition();
+    byUsername.setUsername("member42");
+
+    byTeamAndAge = new MemberSearchCondition();
+    byTeamAndAge.setTeamName("TeamC");
+    byTeamAndAge.setAgeGoe(30);
+    byTeamAndAge.setAgeLoe(31);
+  }
+
+  @TearDown
+  public void tearDown() {
+    MemberReadModel model = context.getBean(MemberReadModel.class);
+    System.out.printf(
+        "%nread model rows=%d, %d MB, %d MB per 1M rows%n",
+        model.getRowCount(), model.getEstimatedBytes() >> 20, model.getBytesPerMillionRows() >> 20);
+    context.close();
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> username() {
+    return memberJpaRepository.searchByWhere(byUsername);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> teamAndAgeRange() {
+    return memberJpaRepository.searchByWhere(byTeamAndAge);
+  }
+}
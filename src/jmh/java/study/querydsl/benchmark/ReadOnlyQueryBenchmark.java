@@ -0,0 +1,94 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 읽기/쓰기 트랜잭션(서비스 메서드)에서 회원 100,000 명을 basicSelectFrom 으로 읽고 커밋하는 비용. readOnly=false 면 엔티티마다 스냅샷이
+ * 생기고 커밋 flush 에서 모두 dirty checking 한다.
+ *
+ * <p>영속성 컨텍스트가 붙잡고 있는 힙과 flush 시간은 setup 에서 따로 재서 출력한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadOnlyQueryBenchmark {
+
+  private static final int MEMBERS = 100_000;
+
+  @Param({"false", "true"})
+  boolean readOnly;
+
+  private ConfigurableApplicationContext context;
+  private TransactionTemplate transactionTemplate;
+  private EntityManager em;
+  private MemberTestRepository memberTestRepository;
+
+  @Setup
+  public void setUp() {
+    context =
+        BenchmarkContext.start(
+            "--querydsl.read-only.enabled=" + readOnly,
+            "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false");
+    BenchmarkContext.seed(context, 100, MEMBERS);
+    transactionTemplate = context.getBean(TransactionTemplate.class);
+    em = context.getBean(EntityManager.class);
+    memberTestRepository = context.getBean(MemberTestRepository.class);
+
+    long[] retained = new long[5];
+    long[] flush = new long[5];
+    for (int i = 0; i < retained.length; i++) {
+      int run = i;
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            long before = usedHeap();
+            memberTestRepository.basicSelectFrom();
+            // 결과 목록은 버려도 영속성 컨텍스트가 엔티티와 스냅샷을 붙잡고 있다
+            retained[run] = usedHeap() - before;
+
+            long start = System.nanoTime();
+            em.flush();
+            flush[run] = System.nanoTime() - start;
+            status.setRollbackOnly();
+          });
+    }
+    Arrays.sort(retained);
+    Arrays.sort(flush);
+    System.out.printf(
+        "%n[readOnly=%s] retained heap: %.1f MB, flush: %.2f ms (median of 5)%n",
+        readOnly, retained[2] / 1024.0 / 1024.0, flush[2] / 1_000_000.0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int searchAndCommit() {
+    return transactionTemplate.execute(status -> memberTestRepository.basicSelectFrom().size());
+  }
+
+  private static long usedHeap() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    System.gc();
+    System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchResultCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대시보드처럼 몇 개의 조건을 반복해서 여는 경우. 팀 10 개, 회원 100,000 명에서 팀 이름 + 나이 범위 조건 8 개의 첫 페이지를 돌아가며 검색한다.
+ *
+ * <p>결과 캐시 적중률과 추정 크기는 teardown 에서 출력한다. 캐시를 끈 쪽은 JIT 가 자리잡는 데 20 초쯤 걸려 워밍업을 길게 잡았다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 10, time = 2)
+public class SearchResultCacheBenchmark {
+
+  @Param({"false", "true"})
+  boolean cacheEnabled;
+
+  private ConfigurableApplicationContext context;
+  private MemberRepository memberRepository;
+  private MemberSearchResultCache searchResultCache;
+  private final MemberSearchCondition[] conditions = new MemberSearchCondition[8];
+  private final Pageable pageable = PageRequest.of(0, 20);
+  private int next;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start("--querydsl.search-result-cache.enabled=" + cacheEnabled);
+    BenchmarkContext.seed(context, 10, 100_000);
+    memberRepository = context.getBean(MemberRepository.class);
+    searchResultCache = context.getBean(MemberSearchResultCache.class);
+
+    for (int i = 0; i < conditions.length; i++) {
+      MemberSearchCondition condition = new MemberSearchCondition();
+      condition.setTeamName("Team" + i);
+      condition.setAgeGoe(20);
+      condition.setAgeLoe(40);
+      conditions[i] = condition;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.printf(
+        "%n[cacheEnabled=%s] hits=%d misses=%d entries=%d bytes=%d%n",
+        cacheEnabled,
+        searchResultCache.getHitCount(),
+        searchResultCache.getMissCount(),
+        searchResultCache.getEntryCount(),
+        searchResultCache.getWeightedSize());
+    context.close();
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> dashboardPage() {
+    MemberSearchCondition condition = conditions[next++ & (conditions.length - 1)];
+    return memberRepository.searchPageComplex(condition, pageable);
+  }
+}
@@ -0,0 +1,116 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberSearchQueryCache;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 쿼리 모양 캐시 적용 전/후의 요청당 CPU 시간 비교.
+ *
+ * <p>결과가 몇 행 안 되는 조건을 사용해 쿼리 준비 비용(조건 트리 생성, JPQL 직렬화, 플랜 캐시 조회)의 비중이 드러나도록 했다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchShapeCacheBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private MemberSearchQueryCache searchQueryCache;
+  private EntityManager em;
+  private MemberSearchCondition condition;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    BenchmarkContext.seed(context, 10, 10_000);
+    searchQueryCache = context.getBean(MemberSearchQueryCache.class);
+    em = BenchmarkContext.newEntityManager(context);
+
+    condition = new MemberSearchCondition();
+    condition.setUsername("member42");
+    condition.setTeamName("Team2");
+    condition.setAgeGoe(10);
+    condition.setAgeLoe(60);
+  }
+
+  @TearDown
+  public void tearDown() {
+    em.close();
+    System.out.printf(
+        "%nshape cache hits=%d misses=%d%n",
+        searchQueryCache.getHitCount(), searchQueryCache.getMissCount());
+    context.close();
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> querydsl() {
+    return searchQuery().fetch();
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> shapeCache() {
+    return searchQueryCache.search(em, condition);
+  }
+
+  /** DB 실행을 제외한 쿼리 준비 비용만: 조건 트리 생성 + 직렬화 + createQuery */
+  @Benchmark
+  public Object querydslPrepareOnly() {
+    return searchQuery().createQuery();
+  }
+
+  private JPAQuery<MemberTeamDto> searchQuery() {
+    return new JPAQueryFactory(em)
+        .select(
+            new QMemberTeamDto(
+                member.id.as("memberId"),
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName")))
+        .from(member)
+        .leftJoin(member.team, team)
+        .where(
+            usernameEq(condition.getUsername()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()));
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? member.age.loe(ageLoe) : null;
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? member.age.goe(ageGoe) : null;
+  }
+
+  private Predicate teamNameEq(String teamName) {
+    return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+  }
+
+  private Predicate usernameEq(String username) {
+    return StringUtils.hasText(username) ? member.username.eq(username) : null;
+  }
+}
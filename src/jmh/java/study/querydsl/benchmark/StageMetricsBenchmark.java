@@ -0,0 +1,75 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 단계별 메트릭을 켰을 때와 껐을 때의 저장소 호출 시간 비교. 차이가 곧 계측 비용이다.
+ *
+ * <p>count 는 캐시에서 나오고 결과도 몇 행뿐인 조건을 사용해 계측 비용의 비중이 가장 크게 드러나도록 했다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StageMetricsBenchmark {
+
+  @Param({"false", "true"})
+  boolean enabled;
+
+  private ConfigurableApplicationContext context;
+  private MemberRepository memberRepository;
+  private MemberJpaRepository memberJpaRepository;
+  private MemberSearchCondition condition;
+  private Pageable pageable;
+
+  @Setup
+  public void setUp() {
+    // 결과 캐시에서 나오면 저장소 코드를 타지 않으므로 끈다
+    context =
+        BenchmarkContext.start(
+            "--querydsl.metrics.stages.enabled=" + enabled,
+            "--querydsl.search-result-cache.enabled=false");
+    BenchmarkContext.seed(context, 10, 10_000);
+    memberRepository = context.getBean(MemberRepository.class);
+    memberJpaRepository = context.getBean(MemberJpaRepository.class);
+
+    condition = new MemberSearchCondition();
+    condition.setTeamName("Team2");
+    condition.setAgeGoe(10);
+    condition.setAgeLoe(60);
+    pageable = PageRequest.of(0, 10);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> searchPageSimple() {
+    return memberRepository.searchPageSimple(condition, pageable);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> searchByWhere() {
+    return memberJpaRepository.searchByWhere(condition);
+  }
+}
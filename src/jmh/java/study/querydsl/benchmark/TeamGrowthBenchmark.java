@@ -0,0 +1,85 @@
+package study.querydsl.benchmark;
+
+import org.hibernate.Hibernate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.datagen.MemberDataGenerator;
+import study.querydsl.datagen.MemberDataGeneratorProperties;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 팀 크기에 따른 회원 한 명 insert 비용. 영속 상태의 팀을 조회하고 new Member(.., team) 으로 가입시킨 뒤 flush 한다.
+ *
+ * <p>insert 는 팀 크기와 관계없이 일정해야 한다. initializedInsert 는 컬렉션을 초기화했을 때의 비용으로 비교용이다. 매번 롤백하므로 팀 크기는 변하지
+ * 않는다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TeamGrowthBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  int teamSize;
+
+  private ConfigurableApplicationContext context;
+  private TransactionTemplate transactionTemplate;
+  private EntityManager em;
+  private Long teamId;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    transactionTemplate = context.getBean(TransactionTemplate.class);
+    em = context.getBean(EntityManager.class);
+
+    MemberDataGeneratorProperties spec = new MemberDataGeneratorProperties();
+    spec.setTeams(1);
+    spec.setMembers(teamSize);
+    context.getBean(MemberDataGenerator.class).generate(spec);
+    teamId =
+        em.createQuery("select t.id from Team t", Long.class).getResultList().iterator().next();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Long insert() {
+    return join(false);
+  }
+
+  @Benchmark
+  public Long initializedInsert() {
+    return join(true);
+  }
+
+  private Long join(boolean initialize) {
+    return transactionTemplate.execute(
+        status -> {
+          Team team = em.find(Team.class, teamId);
+          if (initialize) {
+            Hibernate.initialize(team.getMembers());
+          }
+          Member member = new Member("joined", 20, team);
+          em.persist(member);
+          em.flush();
+          status.setRollbackOnly();
+          return member.getId();
+        });
+  }
+}
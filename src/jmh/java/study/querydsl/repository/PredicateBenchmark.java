@@ -0,0 +1,90 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.benchmark.BenchmarkContext;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동적 쿼리 구성 비용 비교. 저장소의 조건 빌더를 그대로 부르기 위해 repository 패키지에 둔다.
+ *
+ * <ul>
+ *   <li>*Predicate: MemberJpaRepository 의 BooleanBuilder / where 다중 파라미터 방식으로 조건만 만든다.
+ *   <li>*Jpql: 조건을 포함한 쿼리 전체를 JPQL 문자열로 직렬화한다. DB 에는 가지 않는다. searchByWhere 는 조건 모양별로 캐시된 JPQL 을 쓴다.
+ *   <li>search*: 저장소 메서드를 그대로 호출한다(실행 포함).
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PredicateBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private MemberJpaRepository memberJpaRepository;
+  private MemberSearchQueryCache searchQueryCache;
+  private EntityManager em;
+  private MemberSearchCondition condition;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    BenchmarkContext.seed(context, 10, 1000);
+    memberJpaRepository = context.getBean(MemberJpaRepository.class);
+    searchQueryCache = context.getBean(MemberSearchQueryCache.class);
+    em = BenchmarkContext.newEntityManager(context);
+
+    condition = new MemberSearchCondition();
+    condition.setTeamName("Team3");
+    condition.setAgeGoe(20);
+    condition.setAgeLoe(40);
+  }
+
+  @TearDown
+  public void tearDown() {
+    em.close();
+    context.close();
+  }
+
+  @Benchmark
+  public Predicate builderPredicate() {
+    return memberJpaRepository.builderPredicate(condition);
+  }
+
+  @Benchmark
+  public Predicate[] wherePredicate() {
+    return memberJpaRepository.wherePredicates(condition);
+  }
+
+  @Benchmark
+  public String builderJpql() {
+    return memberJpaRepository.searchByBuilderQuery(condition).toString();
+  }
+
+  @Benchmark
+  public String whereJpql() {
+    return searchQueryCache.jpqlOf(em, condition);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> searchByBuilder() {
+    return memberJpaRepository.searchByBuilder(condition);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> searchByWhere() {
+    return memberJpaRepository.searchByWhere(condition);
+  }
+}
@@ -4,6 +4,7 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import study.querydsl.monitor.StageMetrics;
 
 import javax.persistence.EntityManager;
 
@@ -16,6 +17,6 @@ public class QuerydslApplication {
 
   @Bean
   JPAQueryFactory jpaQueryFactory(EntityManager em) {
-    return new JPAQueryFactory(em);
+    return new JPAQueryFactory(StageMetrics.instrument(em));
   }
 }
@@ -0,0 +1,22 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.repository.MemberSearchIndexAdvice;
+import study.querydsl.repository.MemberSearchIndexAdvisor;
+
+import java.util.List;
+
+/** 회원 검색 모양별 실행 계획과 인덱스 없이 훑는 테이블 */
+@RestController
+@RequiredArgsConstructor
+public class IndexAdviceController {
+
+  private final MemberSearchIndexAdvisor indexAdvisor;
+
+  @GetMapping("/admin/index-advice")
+  public List<MemberSearchIndexAdvice> indexAdvice() {
+    return indexAdvisor.advise();
+  }
+}
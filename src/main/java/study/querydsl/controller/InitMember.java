@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.datagen.MemberDataGenerator;
+import study.querydsl.datagen.MemberDataGeneratorProperties;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
@@ -11,22 +13,31 @@ import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
+/**
+ * 로컬 실행용 데이터. 기본은 TeamA/TeamB 와 member0~99 고정 데이터이고, querydsl.datagen.enabled=true 면
+ * querydsl.datagen.* 설정대로 대량 데이터를 넣는다
+ */
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class InitMember {
 
   private final InitMemberService initMemberService;
+  private final MemberDataGenerator memberDataGenerator;
+  private final MemberDataGeneratorProperties memberDataGeneratorProperties;
 
   @PostConstruct
   public void init() {
-    initMemberService.init();
+    if (memberDataGeneratorProperties.isEnabled()) {
+      memberDataGenerator.generate();
+    } else {
+      initMemberService.init();
+    }
   }
 
   @Component
   static class InitMemberService {
-    @PersistenceContext
-    private EntityManager em;
+    @PersistenceContext private EntityManager em;
 
     @Transactional
     public void init() {
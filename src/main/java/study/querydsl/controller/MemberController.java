@@ -1,10 +1,18 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
@@ -16,6 +24,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MemberController {
 
+  private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
   private final MemberJpaRepository memberJpaRepository;
   private final MemberRepository memberRepository;
 
@@ -33,4 +43,35 @@ public class MemberController {
   public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
     return memberRepository.searchPageComplex(condition, pageable);
   }
+
+  @GetMapping("/v4/members")
+  public MemberCursorPage searchMemberV4(
+      MemberSearchCondition condition,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size,
+      @RequestParam(defaultValue = "id") String sort) {
+    if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size 는 1 ~ 1000 사이여야 합니다.");
+    }
+
+    MemberCursor memberCursor;
+    try {
+      memberCursor =
+          StringUtils.hasText(cursor) ? MemberCursor.decode(cursor) : MemberCursor.first(sort);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
+    return memberRepository.searchByCursor(condition, memberCursor, size);
+  }
+
+  @GetMapping("/v5/members")
+  public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+    try {
+      return memberRepository.searchSlice(condition, pageable);
+    } catch (InvalidDataAccessApiUsageException e) {
+      // 정렬할 수 없는 속성. 저장소 예외 변환이 IllegalArgumentException 을 감싼다
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, e.getMostSpecificCause().getMessage(), e);
+    }
+  }
 }
@@ -0,0 +1,159 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/** 조회 결과를 메모리에 모으지 않고 커서에서 읽는 대로 응답에 쓴다. 결과 크기와 무관하게 힙 사용량이 일정하다. */
+@RestController
+@RequiredArgsConstructor
+public class MemberExportController {
+
+  private final MemberExportService memberExportService;
+
+  @GetMapping("/v1/members/export")
+  public void exportMembers(
+      MemberSearchCondition condition,
+      @RequestParam(defaultValue = "jsonl") String format,
+      HttpServletResponse response)
+      throws IOException {
+    ExportFormat exportFormat = ExportFormat.from(format);
+
+    response.setContentType(exportFormat.contentType);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION,
+        "attachment; filename=\"members." + exportFormat.extension + "\"");
+
+    memberExportService.export(condition, exportFormat, response.getOutputStream());
+  }
+
+  enum ExportFormat {
+    JSONL("application/x-ndjson", "jsonl"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+      this.contentType = contentType;
+      this.extension = extension;
+    }
+
+    static ExportFormat from(String format) {
+      for (ExportFormat exportFormat : values()) {
+        if (exportFormat.extension.equalsIgnoreCase(format)) {
+          return exportFormat;
+        }
+      }
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "지원하지 않는 형식: " + format);
+    }
+  }
+
+  @Component
+  @RequiredArgsConstructor
+  static class MemberExportService {
+
+    private static final String CSV_HEADER = "member_id,username,age,team_id,team_name";
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberExportProperties properties;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext private EntityManager em;
+
+    /** 커서가 열려 있는 동안 트랜잭션(커넥션)을 유지해야 한다. 쓴 행 수를 반환한다. */
+    @Transactional(readOnly = true)
+    public long export(MemberSearchCondition condition, ExportFormat format, OutputStream out)
+        throws IOException {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      long count = 0;
+
+      try (Stream<MemberTeamDto> rows =
+          memberJpaRepository.streamByWhere(condition, properties.getFetchSize())) {
+        Iterator<MemberTeamDto> iterator = rows.iterator();
+
+        if (format == ExportFormat.CSV) {
+          writer.write(CSV_HEADER);
+          writer.write('\n');
+        }
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        generator.setRootValueSeparator(null);
+        ObjectWriter objectWriter = objectMapper.writerFor(MemberTeamDto.class);
+
+        while (iterator.hasNext()) {
+          MemberTeamDto row = iterator.next();
+          if (format == ExportFormat.CSV) {
+            writeCsv(writer, row);
+          } else {
+            objectWriter.writeValue(generator, row);
+            generator.flush();
+            writer.write('\n');
+          }
+
+          if (++count % properties.getFlushInterval() == 0) {
+            writer.flush();
+            em.clear();
+          }
+        }
+      }
+
+      writer.flush();
+      return count;
+    }
+
+    private void writeCsv(Writer writer, MemberTeamDto row) throws IOException {
+      writer.write(csv(row.getMemberId()));
+      writer.write(',');
+      writer.write(csv(row.getUsername()));
+      writer.write(',');
+      writer.write(String.valueOf(row.getAge()));
+      writer.write(',');
+      writer.write(csv(row.getTeamId()));
+      writer.write(',');
+      writer.write(csv(row.getTeamName()));
+      writer.write('\n');
+    }
+
+    private String csv(Object value) {
+      if (value == null) {
+        return "";
+      }
+      String text = value.toString();
+      if (text.indexOf(',') < 0
+          && text.indexOf('"') < 0
+          && text.indexOf('\n') < 0
+          && text.indexOf('\r') < 0) {
+        return text;
+      }
+      return '"' + text.replace("\"", "\"\"") + '"';
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.controller;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.export")
+public class MemberExportProperties {
+
+  /** JDBC fetch size. 커서가 한 번에 메모리에 올리는 행 수 */
+  private int fetchSize = 500;
+
+  /** 이 행 수마다 응답을 flush 하고 영속성 컨텍스트를 비운다 */
+  private int flushInterval = 1000;
+}
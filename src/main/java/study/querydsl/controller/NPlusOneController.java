@@ -0,0 +1,28 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.NPlusOneOffender;
+
+import java.util.List;
+
+/** 요청별로 감지된 N+1 기록. 반복 횟수가 많은 순서 */
+@RestController
+@RequiredArgsConstructor
+public class NPlusOneController {
+
+  private final NPlusOneDetector nPlusOneDetector;
+
+  @GetMapping("/admin/n-plus-one")
+  public List<NPlusOneOffender> offenders() {
+    return nPlusOneDetector.getOffenders();
+  }
+
+  @DeleteMapping("/admin/n-plus-one")
+  public void reset() {
+    nPlusOneDetector.reset();
+  }
+}
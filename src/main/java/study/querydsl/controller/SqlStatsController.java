@@ -0,0 +1,30 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.monitor.SqlStatistics;
+import study.querydsl.monitor.SqlStatsSnapshot;
+
+import java.util.List;
+
+/** SQL 모양별 누적 통계. 총 실행 시간이 긴 순서 */
+@RestController
+@RequiredArgsConstructor
+public class SqlStatsController {
+
+  private final SqlStatistics sqlStatistics;
+
+  @GetMapping("/admin/sql-stats")
+  public List<SqlStatsSnapshot> sqlStats(@RequestParam(defaultValue = "50") int limit) {
+    List<SqlStatsSnapshot> snapshot = sqlStatistics.snapshot();
+    return snapshot.subList(0, Math.min(Math.max(limit, 0), snapshot.size()));
+  }
+
+  @DeleteMapping("/admin/sql-stats")
+  public void reset() {
+    sqlStatistics.reset();
+  }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.datagen;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+@Getter
+@ToString
+public class DataGenerationResult {
+
+  private final int teams;
+  private final long members;
+  private final Duration elapsed;
+
+  public DataGenerationResult(int teams, long members, Duration elapsed) {
+    this.teams = teams;
+    this.members = members;
+    this.elapsed = elapsed;
+  }
+
+  public double getRowsPerSecond() {
+    long millis = Math.max(1, elapsed.toMillis());
+    return (teams + members) * 1000.0 / millis;
+  }
+}
@@ -0,0 +1,234 @@
+package study.querydsl.datagen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.IdBlockAllocator;
+import study.querydsl.repository.support.TableChangeTracker;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 운영 규모의 실행 계획을 재현하기 위한 팀/회원 데이터를 대량으로 넣는다.
+ *
+ * <p>영속성 컨텍스트를 거치지 않고 JDBC batch insert 로 넣는다. 회원은 chunkSize 단위로 나눠 작업 스레드마다 별도 커넥션, 별도 트랜잭션에서 넣는다.
+ * 각 청크는 (seed, 청크 번호) 를 섞어 만든 난수만 쓰므로 스레드 수나 실행 순서와 관계없이 같은 설정이면 같은 데이터가 만들어진다.
+ *
+ * <p>식별자는 엔티티와 같은 시퀀스에서 block 단위로 받는다. 작업을 나눠 주는 스레드가 청크를 넘기기 전에 청크 순서대로 block 을 받아 두고, 청크는 행 번호
+ * 순으로 식별자를 매긴다. 그래서 시퀀스를 같은 상태에서 시작하면 식별자와 행의 대응도 스레드 수와 관계없이 같다.
+ *
+ * <p>실패한 청크가 있으면 나머지를 취소하고 예외를 던진다. 이미 커밋된 청크는 남는다.
+ */
+@Slf4j
+@Component
+public class MemberDataGenerator {
+
+  private static final String MEMBER_TABLE = "member";
+  private static final String TEAM_TABLE = "team";
+
+  private final DataSource dataSource;
+  private final SessionFactoryImplementor sessionFactory;
+  private final TableChangeTracker tableChangeTracker;
+  private final MemberDataGeneratorProperties properties;
+
+  public MemberDataGenerator(
+      DataSource dataSource,
+      EntityManagerFactory entityManagerFactory,
+      TableChangeTracker tableChangeTracker,
+      MemberDataGeneratorProperties properties) {
+    this.dataSource = dataSource;
+    this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    this.tableChangeTracker = tableChangeTracker;
+    this.properties = properties;
+  }
+
+  public DataGenerationResult generate() {
+    return generate(properties);
+  }
+
+  public DataGenerationResult generate(MemberDataGeneratorProperties spec) {
+    long start = System.nanoTime();
+
+    long[] teamIds;
+    try (IdBlockAllocator teamIdAllocator =
+        IdBlockAllocator.forEntity(dataSource, sessionFactory, Team.class)) {
+      teamIds = insertTeams(spec, teamIdAllocator);
+    }
+
+    long chunks = (spec.getMembers() + spec.getChunkSize() - 1) / spec.getChunkSize();
+    int threads = Math.max(1, spec.getThreads());
+    ExecutorService executor =
+        Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("datagen-"));
+    // 미리 받으면 호출 스레드와 미리 받는 스레드가 시퀀스를 동시에 불러 block 순서가 섞이므로 요청할 때마다 받는다
+    try (IdBlockAllocator memberIdAllocator =
+        IdBlockAllocator.forEntity(dataSource, sessionFactory, Member.class, 0)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (long chunk = 0; chunk < chunks; chunk++) {
+        long chunkIndex = chunk;
+        long[] idBlocks = reserveIdBlocks(spec, memberIdAllocator, chunk);
+        int blockSize = memberIdAllocator.getBlockSize();
+        futures.add(
+            executor.submit(
+                () -> insertMemberChunk(spec, teamIds, idBlocks, blockSize, chunkIndex)));
+      }
+      awaitAll(futures);
+    } finally {
+      executor.shutdownNow();
+      // 팀과 회원을 한 번에 알려서 member_team_view 같은 파생 데이터를 한 번만 다시 만들게 한다
+      tableChangeTracker.tableChanged(TEAM_TABLE, MEMBER_TABLE);
+    }
+
+    DataGenerationResult result =
+        new DataGenerationResult(
+            spec.getTeams(), spec.getMembers(), Duration.ofNanos(System.nanoTime() - start));
+    log.info(
+        "generated {} teams, {} members in {}ms ({} rows/s)",
+        result.getTeams(),
+        result.getMembers(),
+        result.getElapsed().toMillis(),
+        Math.round(result.getRowsPerSecond()));
+    return result;
+  }
+
+  private long[] insertTeams(MemberDataGeneratorProperties spec, IdBlockAllocator idAllocator) {
+    long[] teamIds = new long[spec.getTeams()];
+
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement insert =
+          connection.prepareStatement("insert into team (id, name) values (?, ?)")) {
+        for (int i = 0; i < teamIds.length; i++) {
+          teamIds[i] = idAllocator.next();
+          insert.setLong(1, teamIds[i]);
+          insert.setString(2, teamName(i));
+          insert.addBatch();
+          if ((i + 1) % spec.getBatchSize() == 0) {
+            insert.executeBatch();
+          }
+        }
+        insert.executeBatch();
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("failed to insert teams", e);
+    }
+    return teamIds;
+  }
+
+  /** 청크의 행 수만큼 block 을 받는다. 청크의 i 번째 행은 idBlocks[i / blockSize] + i % blockSize 를 쓴다 */
+  private static long[] reserveIdBlocks(
+      MemberDataGeneratorProperties spec, IdBlockAllocator idAllocator, long chunk) {
+    long from = chunk * spec.getChunkSize();
+    long rows = Math.min(from + spec.getChunkSize(), spec.getMembers()) - from;
+    long[] idBlocks =
+        new long[(int) ((rows + idAllocator.getBlockSize() - 1) / idAllocator.getBlockSize())];
+    for (int i = 0; i < idBlocks.length; i++) {
+      idBlocks[i] = idAllocator.nextBlock();
+    }
+    return idBlocks;
+  }
+
+  private void insertMemberChunk(
+      MemberDataGeneratorProperties spec,
+      long[] teamIds,
+      long[] idBlocks,
+      int blockSize,
+      long chunk) {
+    long from = chunk * spec.getChunkSize();
+    long to = Math.min(from + spec.getChunkSize(), spec.getMembers());
+
+    SplittableRandom random = new SplittableRandom(chunkSeed(spec.getSeed(), chunk));
+    ZipfDistribution teamDistribution =
+        teamIds.length > 0 ? new ZipfDistribution(teamIds.length, spec.getTeamSkew()) : null;
+    ZipfDistribution ageDistribution =
+        new ZipfDistribution(spec.getMaxAge() - spec.getMinAge() + 1, spec.getAgeSkew());
+
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement insert =
+          connection.prepareStatement(
+              "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)")) {
+        for (long index = from; index < to; index++) {
+          long row = index - from;
+          insert.setLong(1, idBlocks[(int) (row / blockSize)] + row % blockSize);
+          insert.setString(2, username(spec, index));
+          insert.setInt(3, spec.getMinAge() + ageDistribution.sample(random));
+          if (teamDistribution != null) {
+            insert.setLong(4, teamIds[teamDistribution.sample(random)]);
+          } else {
+            insert.setNull(4, Types.BIGINT);
+          }
+          insert.addBatch();
+          if ((index - from + 1) % spec.getBatchSize() == 0) {
+            insert.executeBatch();
+          }
+        }
+        insert.executeBatch();
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("failed to insert member chunk " + chunk, e);
+    }
+    log.debug("inserted members [{}, {})", from, to);
+  }
+
+  /**
+   * seed + chunk 를 그대로 쓰면 (seed S, 청크 1) 과 (seed S+1, 청크 0) 이 같은 데이터가 되므로 SplitMix64 로 섞는다. seed 를
+   * 먼저 섞고 청크마다 황금비 상수만큼 떨어뜨린 뒤 한 번 더 섞는다.
+   */
+  private static long chunkSeed(long seed, long chunk) {
+    return mix64(mix64(seed) + chunk * 0x9E3779B97F4A7C15L);
+  }
+
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static String teamName(int index) {
+    return index < 26 ? "Team" + (char) ('A' + index) : "Team" + index;
+  }
+
+  private static String username(MemberDataGeneratorProperties spec, long index) {
+    long cardinality = spec.getUsernameCardinality();
+    return "member" + (cardinality > 0 ? index % cardinality : index);
+  }
+
+  private static void awaitAll(List<Future<?>> futures) {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      throw new IllegalStateException("data generation failed", e.getCause());
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("data generation interrupted", e);
+    }
+  }
+}
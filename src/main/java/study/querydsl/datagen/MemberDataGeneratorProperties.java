@@ -0,0 +1,45 @@
+package study.querydsl.datagen;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/** 테스트 데이터 생성 설정. 같은 설정과 seed 면 항상 같은 데이터가 만들어진다. */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.datagen")
+public class MemberDataGeneratorProperties {
+
+  /** local 프로필에서 고정 데이터(member0~99) 대신 이 설정대로 대량 데이터를 넣는다 */
+  private boolean enabled = false;
+
+  private int teams = 2;
+
+  private long members = 100;
+
+  private long seed = 42;
+
+  /** 팀 크기 쏠림(Zipf 지수). 0 이면 균등, 클수록 앞쪽 팀에 회원이 몰린다 */
+  private double teamSkew = 0;
+
+  private int minAge = 0;
+
+  private int maxAge = 99;
+
+  /** 나이 쏠림(Zipf 지수). 0 이면 균등, 클수록 어린 나이에 몰린다 */
+  private double ageSkew = 0;
+
+  /** 서로 다른 username 개수. 0 이면 모두 다르다 */
+  private long usernameCardinality = 0;
+
+  /** 한 작업 스레드가 한 트랜잭션으로 넣는 회원 수 */
+  private int chunkSize = 50_000;
+
+  /** JDBC batch 크기 */
+  private int batchSize = 1_000;
+
+  /** 작업 스레드 수. 커넥션 풀 크기를 넘지 않게 잡는다 */
+  private int threads = 4;
+}
@@ -0,0 +1,29 @@
+package study.querydsl.datagen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/** 0 ~ size-1 사이의 값을 1 / (k + 1)^exponent 비율로 뽑는다. exponent 가 0 이면 균등 분포 */
+class ZipfDistribution {
+
+  private final double[] cumulative;
+
+  ZipfDistribution(int size, double exponent) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be positive: " + size);
+    }
+    cumulative = new double[size];
+    double sum = 0;
+    for (int k = 0; k < size; k++) {
+      sum += 1 / Math.pow(k + 1, exponent);
+      cumulative[k] = sum;
+    }
+  }
+
+  int sample(SplittableRandom random) {
+    double target = random.nextDouble() * cumulative[cumulative.length - 1];
+    int index = Arrays.binarySearch(cumulative, target);
+    index = index >= 0 ? index + 1 : -index - 1;
+    return Math.min(index, cumulative.length - 1);
+  }
+}
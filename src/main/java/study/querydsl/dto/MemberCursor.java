@@ -0,0 +1,102 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋(seek) 페이지네이션 위치.
+ *
+ * <p>정렬 키, 방향, 마지막으로 내려준 행의 (정렬 키 값, member_id) 를 담는다. 클라이언트에는 {@link #encode()} 로 만든 불투명 토큰만 노출하고,
+ * 다음 요청에서 {@link #decode(String)} 로 복원한다. 정렬 조건은 토큰에 포함되므로 이어지는 요청의 sort 파라미터와 무관하게 첫 페이지의 정렬이
+ * 유지된다.
+ */
+@Getter
+@ToString
+public class MemberCursor {
+
+  private static final String SEPARATOR = ":";
+  private static final String NULL_VALUE = "n";
+  private static final String PRESENT_VALUE = "v";
+
+  private final MemberSortKey sortKey;
+  private final boolean ascending;
+  private final Long lastMemberId;
+  private final String lastValue;
+  /** 정렬 키가 AGE 일 때 lastValue 를 숫자로 바꾼 값 */
+  private final Integer lastAge;
+
+  private MemberCursor(
+      MemberSortKey sortKey, boolean ascending, Long lastMemberId, String lastValue) {
+    this.sortKey = sortKey;
+    this.ascending = ascending;
+    this.lastMemberId = lastMemberId;
+    this.lastValue = lastValue;
+    this.lastAge = lastMemberId != null ? parseLastAge(sortKey, lastValue) : null;
+  }
+
+  /** 첫 페이지용 커서. sort 는 "age" 또는 "age,desc" 형식이다. */
+  public static MemberCursor first(String sort) {
+    if (!StringUtils.hasText(sort)) {
+      return new MemberCursor(MemberSortKey.ID, true, null, null);
+    }
+    String[] parts = sort.split(",");
+    MemberSortKey sortKey = MemberSortKey.from(parts[0].trim());
+    boolean ascending = parts.length < 2 || !"desc".equalsIgnoreCase(parts[1].trim());
+    return new MemberCursor(sortKey, ascending, null, null);
+  }
+
+  /** 위조되거나 깨진 토큰이면 IllegalArgumentException. 정렬 키 값의 형식도 여기서 검사한다 */
+  public static MemberCursor decode(String token) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] parts = decoded.split(SEPARATOR, 5);
+      if (parts.length != 5) {
+        throw new IllegalArgumentException("잘못된 커서: " + token);
+      }
+      MemberSortKey sortKey = MemberSortKey.valueOf(parts[0]);
+      boolean ascending = "a".equals(parts[1]);
+      Long lastMemberId = Long.valueOf(parts[2]);
+      String lastValue = NULL_VALUE.equals(parts[3]) ? null : parts[4];
+      return new MemberCursor(sortKey, ascending, lastMemberId, lastValue);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("잘못된 커서: " + token, e);
+    }
+  }
+
+  public String encode() {
+    String raw =
+        String.join(
+            SEPARATOR,
+            sortKey.name(),
+            ascending ? "a" : "d",
+            String.valueOf(lastMemberId),
+            lastValue == null ? NULL_VALUE : PRESENT_VALUE,
+            lastValue == null ? "" : lastValue);
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** 같은 정렬 조건으로 last 행 다음부터 읽는 커서 */
+  public MemberCursor next(MemberTeamDto last) {
+    return new MemberCursor(sortKey, ascending, last.getMemberId(), sortKey.valueOf(last));
+  }
+
+  public boolean hasPosition() {
+    return lastMemberId != null;
+  }
+
+  private static Integer parseLastAge(MemberSortKey sortKey, String lastValue) {
+    if (sortKey != MemberSortKey.AGE) {
+      return null;
+    }
+    if (lastValue == null) {
+      throw new IllegalArgumentException("나이 커서에 값이 없습니다.");
+    }
+    return Integer.valueOf(lastValue);
+  }
+}
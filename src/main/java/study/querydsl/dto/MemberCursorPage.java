@@ -0,0 +1,13 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MemberCursorPage {
+
+  private final List<MemberTeamDto> content;
+  private final boolean hasNext;
+  private final String nextCursor;
+}
@@ -1,6 +1,7 @@
 package study.querydsl.dto;
 
 import lombok.Data;
+import org.springframework.util.StringUtils;
 
 @Data
 public class MemberSearchCondition {
@@ -9,4 +10,14 @@ public class MemberSearchCondition {
   private String teamName;
   private Integer ageGoe;
   private Integer ageLoe;
+
+  /** 같은 쿼리가 되는 조건끼리 equals 가 같도록 정리한 복사본. 공백뿐인 문자열은 조건 없음(null)과 같다. 캐시 키로 쓴다. */
+  public MemberSearchCondition normalized() {
+    MemberSearchCondition normalized = new MemberSearchCondition();
+    normalized.setUsername(StringUtils.hasText(username) ? username : null);
+    normalized.setTeamName(StringUtils.hasText(teamName) ? teamName : null);
+    normalized.setAgeGoe(ageGoe);
+    normalized.setAgeLoe(ageLoe);
+    return normalized;
+  }
 }
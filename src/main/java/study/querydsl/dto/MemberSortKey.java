@@ -0,0 +1,36 @@
+package study.querydsl.dto;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/** 커서 기반 조회에서 허용하는 정렬 키 (화이트리스트) */
+public enum MemberSortKey {
+  ID("id", dto -> String.valueOf(dto.getMemberId())),
+  USERNAME("username", MemberTeamDto::getUsername),
+  AGE("age", dto -> String.valueOf(dto.getAge()));
+
+  private final String property;
+  private final Function<MemberTeamDto, String> extractor;
+
+  MemberSortKey(String property, Function<MemberTeamDto, String> extractor) {
+    this.property = property;
+    this.extractor = extractor;
+  }
+
+  public String getProperty() {
+    return property;
+  }
+
+  /** 마지막 행에서 다음 커서에 담을 정렬 키 값을 꺼낸다. null 일 수 있다. */
+  public String valueOf(MemberTeamDto dto) {
+    return extractor.apply(dto);
+  }
+
+  public static MemberSortKey from(String property) {
+    return Arrays.stream(values())
+        .filter(key -> Objects.equals(key.property, property))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("지원하지 않는 정렬 키: " + property));
+  }
+}
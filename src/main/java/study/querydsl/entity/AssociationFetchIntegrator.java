@@ -0,0 +1,43 @@
+package study.querydsl.entity;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.Collection;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link AssociationFetchProperties.CollectionFetch#SUBSELECT} 면 모든 컬렉션 매핑을
+ * {@code @Fetch(SUBSELECT)} 와 같게 바꾼다.
+ *
+ * <p>{@link study.querydsl.repository.support.HibernateIntegrators} 가 등록한다. Integrator 는 persister
+ * 를 만들기 전에 호출되므로 여기서 바꾼 매핑이 반영된다.
+ */
+@Component
+public class AssociationFetchIntegrator implements Integrator {
+
+  private final AssociationFetchProperties properties;
+
+  public AssociationFetchIntegrator(AssociationFetchProperties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  public void integrate(
+      Metadata metadata,
+      SessionFactoryImplementor sessionFactory,
+      SessionFactoryServiceRegistry serviceRegistry) {
+    if (properties.getCollectionFetch() != AssociationFetchProperties.CollectionFetch.SUBSELECT) {
+      return;
+    }
+    for (Collection collection : metadata.getCollectionBindings()) {
+      collection.setSubselectLoadable(true);
+      collection.getOwner().setSubselectLoadableCollections(true);
+    }
+  }
+
+  @Override
+  public void disintegrate(
+      SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {}
+}
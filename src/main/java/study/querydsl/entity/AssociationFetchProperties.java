@@ -0,0 +1,46 @@
+package study.querydsl.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.loader.BatchFetchStyle;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 지연 로딩 연관관계(Member.team, Team.members)를 여러 건 한 번에 읽는 설정. 영속성 컨텍스트에 초기화되지 않은 프록시/컬렉션이 여러 개 있을 때 하나를
+ * 건드리면 나머지도 {@code in (?, ...)} 한 번으로 채운다.
+ *
+ * <p>컬렉션은 {@link CollectionFetch#SUBSELECT} 로 바꿀 수 있다. 이때는 {@link AssociationFetchIntegrator} 가 매핑을
+ * 바꾼다.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.association-fetch")
+public class AssociationFetchProperties implements HibernatePropertiesCustomizer {
+
+  /** 한 번에 채우는 프록시/컬렉션 개수. 1 이하면 하나씩 읽는다 */
+  private int batchSize = 100;
+
+  private CollectionFetch collectionFetch = CollectionFetch.BATCH;
+
+  public enum CollectionFetch {
+    /** batchSize 개씩 in 으로 읽는다 */
+    BATCH,
+    /** 처음 컬렉션을 건드리면 주인 엔티티를 읽은 쿼리를 서브쿼리로 해서 모든 주인의 컬렉션을 한 번에 읽는다 */
+    SUBSELECT
+  }
+
+  @Override
+  public void customize(Map<String, Object> hibernateProperties) {
+    if (batchSize > 1) {
+      hibernateProperties.put(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE, batchSize);
+      // 남은 개수에 맞춘 in 절 대신 정해진 크기로 채워서 SQL 모양이 몇 개로 유지된다
+      hibernateProperties.put(AvailableSettings.BATCH_FETCH_STYLE, BatchFetchStyle.PADDED.name());
+    }
+  }
+}
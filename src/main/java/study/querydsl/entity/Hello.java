@@ -2,9 +2,12 @@ package study.querydsl.entity;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 
 @Entity
@@ -12,6 +15,10 @@ import javax.persistence.Id;
 @Setter
 public class Hello {
   @Id
-  @GeneratedValue
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hello_seq")
+  @GenericGenerator(
+      name = "hello_seq",
+      strategy = PooledLoSequenceGenerator.STRATEGY,
+      parameters = @Parameter(name = "sequence_name", value = "hello_seq"))
   private Long id;
 }
@@ -0,0 +1,32 @@
+package study.querydsl.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@link PooledLoSequenceGenerator} 의 block 크기. Hibernate 설정으로 넘겨서 생성기가 읽게 한다 */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.id")
+public class IdGeneratorProperties implements HibernatePropertiesCustomizer {
+
+  /** 시퀀스 호출 한 번으로 확보하는 식별자 개수 */
+  private int blockSize = 50;
+
+  /** 시퀀스 이름별 block 크기. 없으면 blockSize */
+  private Map<String, Integer> blockSizes = new HashMap<>();
+
+  @Override
+  public void customize(Map<String, Object> hibernateProperties) {
+    hibernateProperties.put(PooledLoSequenceGenerator.BLOCK_SIZE, blockSize);
+    blockSizes.forEach(
+        (sequence, size) ->
+            hibernateProperties.put(PooledLoSequenceGenerator.BLOCK_SIZE_PREFIX + sequence, size));
+  }
+}
@@ -1,6 +1,8 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 
@@ -9,16 +11,29 @@ import javax.persistence.*;
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+// MemberSearchCondition 의 username =, age 범위, team_id (+ age) 조건용. MemberSearchIndexAdvisor 로 검색
+// 모양별 사용 여부를 확인한다
+@Table(
+    indexes = {
+      @Index(name = "idx_member_username", columnList = "username"),
+      @Index(name = "idx_member_age", columnList = "age"),
+      @Index(name = "idx_member_team_age", columnList = "team_id, age")
+    })
 public class Member {
 
   @Id
-  @GeneratedValue
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq")
+  @GenericGenerator(
+      name = "member_seq",
+      strategy = PooledLoSequenceGenerator.STRATEGY,
+      parameters = @Parameter(name = "sequence_name", value = "member_seq"))
   @Column(name = "member_id")
   private Long id;
 
   private String username;
   private int age;
 
+  // 여러 회원의 팀 프록시는 AssociationFetchProperties.batchSize 개씩 한 번에 채운다
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "team_id")
   private Team team;
@@ -41,6 +56,6 @@ public class Member {
 
   private void changeTeam(Team team) {
     this.team = team;
-    team.getMembers().add(this);
+    team.addMember(this);
   }
 }
@@ -0,0 +1,44 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * member left join team 을 미리 펼쳐 둔 읽기 전용 테이블. join 없이 teamName 을 조회하고 거르기 위해 쓴다.
+ *
+ * <p>엔티티로 쓰지 않고 MemberTeamViewMaintainer 가 SQL 로 채운다.
+ */
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(
+    name = "member_team_view",
+    indexes = {
+      @Index(name = "idx_member_team_view_team_name", columnList = "team_name"),
+      @Index(name = "idx_member_team_view_team_id", columnList = "team_id")
+    })
+public class MemberTeamView {
+
+  @Id
+  @Column(name = "member_id")
+  private Long memberId;
+
+  private String username;
+
+  private int age;
+
+  @Column(name = "team_id")
+  private Long teamId;
+
+  @Column(name = "team_name")
+  private String teamName;
+}
@@ -0,0 +1,41 @@
+package study.querydsl.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 엔티티마다 자기 시퀀스를 쓰는 pooled-lo 생성기.
+ *
+ * <p>시퀀스 값 하나로 block-size 개의 식별자를 메모리에서 나눠 주므로 persist 마다 시퀀스를 호출하지 않는다. block 크기는
+ * querydsl.id.block-size (전체), querydsl.id.block-sizes.&lt;시퀀스 이름&gt; (개별) 로 바꿀 수 있다. 시퀀스의
+ * increment 도 같은 값으로 만들어지므로 이미 만들어진 DB 에서 바꾸려면 시퀀스도 함께 바꿔야 한다.
+ */
+public class PooledLoSequenceGenerator extends SequenceStyleGenerator {
+
+  public static final String STRATEGY = "study.querydsl.entity.PooledLoSequenceGenerator";
+
+  static final String BLOCK_SIZE = "querydsl.id.block-size";
+  static final String BLOCK_SIZE_PREFIX = "querydsl.id.block-sizes.";
+
+  @Override
+  public void configure(Type type, Properties params, ServiceRegistry serviceRegistry)
+      throws MappingException {
+    Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+    Object blockSize = settings.get(BLOCK_SIZE_PREFIX + params.getProperty(SEQUENCE_PARAM));
+    if (blockSize == null) {
+      blockSize = settings.get(BLOCK_SIZE);
+    }
+    if (blockSize != null) {
+      params.setProperty(INCREMENT_PARAM, blockSize.toString());
+    }
+    params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+    super.configure(type, params, serviceRegistry);
+  }
+}
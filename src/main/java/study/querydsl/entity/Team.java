@@ -1,11 +1,21 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,15 +24,46 @@ import java.util.List;
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
+// 거의 바뀌지 않으므로 2차 캐시에 둔다. member.team 지연 로딩도 캐시에서 채워진다 (리전 설정은 application.conf)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
 public class Team {
-  @Id @GeneratedValue private Long id;
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq")
+  @GenericGenerator(
+      name = "team_seq",
+      strategy = PooledLoSequenceGenerator.STRATEGY,
+      parameters = @Parameter(name = "sequence_name", value = "team_seq"))
+  private Long id;
 
   private String name;
 
+  /**
+   * 연관관계의 주인은 Member.team 이다. EXTRA 라서 size(), isEmpty() 는 count 쿼리로 처리되고 컬렉션 전체를 읽지 않는다.
+   *
+   * <p>여러 팀의 컬렉션은 {@link AssociationFetchProperties} 설정대로 batch 또는 subselect 로 한 번에 읽는다.
+   *
+   * <p>영속 상태에서 초기화되지 않은 컬렉션에 add 하면 Hibernate 가 대기열에 쌓아 두었다가 초기화될 때 합친다.
+   */
   @OneToMany(mappedBy = "team")
+  @LazyCollection(LazyCollectionOption.EXTRA)
   private List<Member> members = new ArrayList<>();
 
   public Team(String name) {
     this.name = name;
   }
+
+  /**
+   * 회원 컬렉션을 초기화하지 않고 추가한다. 팀이 커도 비용이 일정하다.
+   *
+   * @throws IllegalStateException 준영속 팀의 초기화되지 않은 컬렉션이라 추가할 수 없으면. 팀을 merge 하거나 다시 조회한 뒤 추가한다
+   */
+  void addMember(Member member) {
+    try {
+      members.add(member);
+    } catch (LazyInitializationException e) {
+      throw new IllegalStateException(
+          "준영속 팀(id=" + id + ")에는 회원을 추가할 수 없습니다. 팀을 merge 하거나 다시 조회하세요.", e);
+    }
+  }
 }
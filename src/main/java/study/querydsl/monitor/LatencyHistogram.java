@@ -0,0 +1,70 @@
+package study.querydsl.monitor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 락 없는 지연 시간 히스토그램(마이크로초).
+ *
+ * <p>2 의 거듭제곱 구간마다 8 개의 하위 구간으로 나눈 로그-선형 버킷이라 백분위 오차는 12.5% 이내다. 버킷마다 LongAdder 를 써서 여러 스레드가 동시에
+ * 기록해도 경합하지 않는다.
+ */
+class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (40 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+  LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  void record(long micros) {
+    buckets[index(Math.max(0, micros))].increment();
+  }
+
+  /** percentile(0 ~ 100) 에 해당하는 값의 상한. 기록이 없으면 0 */
+  long percentile(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return upperBound(i);
+      }
+    }
+    return upperBound(BUCKETS - 1);
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    int index = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    return Math.min(index, BUCKETS - 1);
+  }
+
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lower + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.monitor;
+
+/**
+ * fail-fast 모드에서 N+1 을 감지하면 던진다.
+ *
+ * <p>Spring 의 JPA 예외 변환 대상(IllegalStateException 등)이 아니도록 RuntimeException 을 바로 상속한다.
+ */
+public class NPlusOneDetectedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public NPlusOneDetectedException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,124 @@
+package study.querydsl.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 구간(요청)이 끝날 때 같은 모양의 SQL 이 threshold 번 이상 실행됐으면 N+1 로 보고 로그를 남기고 기록한다.
+ *
+ * <p>fail-fast 모드에서는 threshold 번째 실행을 기록해 두었다가 트랜잭션 커밋 직전이나 구간이 닫힐 때 중 먼저 오는 시점에 예외를 던진다. JDBC 문장
+ * 도중에 던지면 Hibernate 가 결과를 읽다 만 상태로 남기 때문이다. 커밋 직전에 던지면 트랜잭션은 롤백된다.
+ */
+@Slf4j
+@Component
+public class NPlusOneDetector {
+
+  private final NPlusOneProperties properties;
+  private final Map<String, NPlusOneOffender> offenders = new ConcurrentHashMap<>();
+
+  public NPlusOneDetector(NPlusOneProperties properties) {
+    this.properties = properties;
+  }
+
+  /** 현재 스레드에서 통계를 모으기 시작한다. try-with-resources 로 닫는다 */
+  public QueryStatistics open(String name) {
+    return QueryStatistics.open(name, this::report);
+  }
+
+  void statementExecuted(String sql) {
+    QueryStatistics statistics = QueryStatistics.current();
+    if (statistics == null) {
+      return;
+    }
+
+    String fingerprint = SqlFingerprint.of(sql);
+    int repeats = statistics.statementExecuted(fingerprint);
+    if (properties.isFailFast()
+        && repeats == properties.getThreshold()
+        && statistics.violated(
+            String.format(
+                "N+1 detected in %s: same statement executed %d times: %s",
+                statistics.getName(), repeats, fingerprint))
+        && TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+              raiseViolation(statistics);
+            }
+          });
+    }
+  }
+
+  public List<NPlusOneOffender> getOffenders() {
+    List<NPlusOneOffender> result = new ArrayList<>(offenders.values());
+    result.sort(Comparator.comparing(NPlusOneOffender::getMaxRepeats).reversed());
+    return result;
+  }
+
+  public void reset() {
+    offenders.clear();
+  }
+
+  private void report(QueryStatistics statistics) {
+    try {
+      logStatistics(statistics);
+    } finally {
+      if (properties.isFailFast()) {
+        raiseViolation(statistics);
+      }
+    }
+  }
+
+  private static void raiseViolation(QueryStatistics statistics) {
+    String violation = statistics.takeViolation();
+    if (violation != null) {
+      throw new NPlusOneDetectedException(violation);
+    }
+  }
+
+  private void logStatistics(QueryStatistics statistics) {
+    log.debug(
+        "{}: statements={}, entityLoads={}, proxyInitializations={}, collectionInitializations={}",
+        statistics.getName(),
+        statistics.getStatements(),
+        statistics.getEntityLoads(),
+        statistics.getProxyInitializations(),
+        statistics.getCollectionInitializations());
+
+    statistics
+        .getStatementCounts()
+        .forEach(
+            (fingerprint, repeats) -> {
+              if (repeats >= properties.getThreshold()) {
+                log.warn(
+                    "N+1 suspected in {}: {} times ({} statements, {} lazy loads): {}",
+                    statistics.getName(),
+                    repeats,
+                    statistics.getStatements(),
+                    statistics.getProxyInitializations()
+                        + statistics.getCollectionInitializations(),
+                    fingerprint);
+                offender(statistics.getName(), fingerprint).record(statistics, repeats);
+              }
+            });
+  }
+
+  private NPlusOneOffender offender(String name, String fingerprint) {
+    String key = name + '\n' + fingerprint;
+    NPlusOneOffender offender = offenders.get(key);
+    if (offender == null && offenders.size() >= properties.getMaxOffenders()) {
+      // 가득 차면 새 기록은 버리고 로그로만 남긴다
+      return new NPlusOneOffender(name, fingerprint);
+    }
+    return offenders.computeIfAbsent(key, k -> new NPlusOneOffender(name, fingerprint));
+  }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/** 같은 요청에서 같은 SQL 이 반복된 기록. 요청 이름과 SQL 모양별로 하나씩 모은다 */
+@Getter
+public class NPlusOneOffender {
+
+  private final String name;
+  private final String fingerprint;
+  private long occurrences;
+  private int maxRepeats;
+  private int lastStatements;
+  private int lastEntityLoads;
+  private int lastLazyInitializations;
+  private Instant lastSeen;
+
+  NPlusOneOffender(String name, String fingerprint) {
+    this.name = name;
+    this.fingerprint = fingerprint;
+  }
+
+  synchronized void record(QueryStatistics statistics, int repeats) {
+    occurrences++;
+    maxRepeats = Math.max(maxRepeats, repeats);
+    lastStatements = statistics.getStatements();
+    lastEntityLoads = statistics.getEntityLoads();
+    lastLazyInitializations =
+        statistics.getProxyInitializations() + statistics.getCollectionInitializations();
+    lastSeen = Instant.now();
+  }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.n-plus-one")
+public class NPlusOneProperties {
+
+  /** HTTP 요청마다 통계를 모은다 */
+  private boolean enabled = true;
+
+  /** 한 요청에서 같은 모양의 SQL 이 이 횟수 이상 실행되면 N+1 로 본다 */
+  private int threshold = 5;
+
+  /** 감지하면 트랜잭션 커밋 직전이나 구간이 끝날 때 NPlusOneDetectedException 을 던진다. 테스트용 */
+  private boolean failFast = false;
+
+  /** 관리자 화면에 보관하는 위반 건수 */
+  private int maxOffenders = 100;
+}
@@ -0,0 +1,131 @@
+package study.querydsl.monitor;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 한 요청(또는 테스트 구간)에서 실행된 SQL 과 엔티티 로딩 통계. 현재 스레드에 묶이며 close 하면 이전 통계로 돌아간다.
+ *
+ * <p>{@link NPlusOneDetector#open} 으로 연다.
+ */
+public class QueryStatistics implements AutoCloseable {
+
+  private static final ThreadLocal<QueryStatistics> CURRENT = new ThreadLocal<>();
+
+  private final QueryStatistics previous;
+  private final Consumer<QueryStatistics> onClose;
+  private final Map<String, Integer> statementCounts = new LinkedHashMap<>();
+
+  private String name;
+  private int statements;
+  private int entityLoads;
+  private int proxyInitializations;
+  private int collectionInitializations;
+  private String violation;
+  private boolean violationRaised;
+  private boolean closed;
+
+  private QueryStatistics(
+      String name, QueryStatistics previous, Consumer<QueryStatistics> onClose) {
+    this.name = name;
+    this.previous = previous;
+    this.onClose = onClose;
+  }
+
+  static QueryStatistics open(String name, Consumer<QueryStatistics> onClose) {
+    QueryStatistics statistics = new QueryStatistics(name, CURRENT.get(), onClose);
+    CURRENT.set(statistics);
+    return statistics;
+  }
+
+  /** 현재 스레드의 통계. 열려 있지 않으면 null */
+  public static QueryStatistics current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * @return 같은 모양의 SQL 이 이 구간에서 실행된 횟수
+   */
+  int statementExecuted(String fingerprint) {
+    statements++;
+    return statementCounts.merge(fingerprint, 1, Integer::sum);
+  }
+
+  void entityLoaded() {
+    entityLoads++;
+  }
+
+  void proxyInitialized() {
+    proxyInitializations++;
+  }
+
+  void collectionInitialized() {
+    collectionInitializations++;
+  }
+
+  /**
+   * @return 이 구간의 첫 위반이면 true
+   */
+  boolean violated(String message) {
+    if (violation != null) {
+      return false;
+    }
+    violation = message;
+    return true;
+  }
+
+  /** fail-fast 로 던질 위반. 이미 던졌거나 없으면 null */
+  String takeViolation() {
+    if (violation == null || violationRaised) {
+      return null;
+    }
+    violationRaised = true;
+    return violation;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** 요청 처리 후 매핑된 URL 패턴처럼 더 알맞은 이름을 알게 되면 바꾼다 */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getStatements() {
+    return statements;
+  }
+
+  public int getEntityLoads() {
+    return entityLoads;
+  }
+
+  public int getProxyInitializations() {
+    return proxyInitializations;
+  }
+
+  public int getCollectionInitializations() {
+    return collectionInitializations;
+  }
+
+  /** SQL 모양별 실행 횟수 */
+  public Map<String, Integer> getStatementCounts() {
+    return Collections.unmodifiableMap(statementCounts);
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (previous != null) {
+      CURRENT.set(previous);
+    } else {
+      CURRENT.remove();
+    }
+    onClose.accept(this);
+  }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.monitor;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/** HTTP 요청마다 SQL 통계를 모으고 끝나면 N+1 을 검사한다. 이름은 매핑된 URL 패턴(GET /v1/members 등)이다 */
+@Component
+public class QueryStatisticsFilter extends OncePerRequestFilter {
+
+  private final NPlusOneDetector detector;
+  private final NPlusOneProperties properties;
+
+  public QueryStatisticsFilter(NPlusOneDetector detector, NPlusOneProperties properties) {
+    this.detector = detector;
+    this.properties = properties;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !properties.isEnabled();
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    try (QueryStatistics statistics =
+        detector.open(request.getMethod() + " " + request.getRequestURI())) {
+      filterChain.doFilter(request, response);
+
+      Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      if (pattern != null) {
+        statistics.setName(request.getMethod() + " " + pattern);
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package study.querydsl.monitor;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate 이벤트로 엔티티 로딩과 지연 로딩 횟수를 현재 통계에 더한다.
+ *
+ * <p>{@link study.querydsl.repository.support.HibernateIntegrators} 가 등록한다. 프록시 초기화는 IMMEDIATE_LOAD
+ * 타입의 load 이벤트로, 컬렉션 지연 로딩은 initialize-collection 이벤트로 잡는다.
+ */
+@Component
+public class QueryStatisticsIntegrator implements Integrator {
+
+  @Override
+  public void integrate(
+      Metadata metadata,
+      SessionFactoryImplementor sessionFactory,
+      SessionFactoryServiceRegistry serviceRegistry) {
+    EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+
+    registry.appendListeners(
+        EventType.POST_LOAD,
+        (PostLoadEventListener)
+            event -> {
+              QueryStatistics statistics = QueryStatistics.current();
+              if (statistics != null) {
+                statistics.entityLoaded();
+              }
+            });
+    registry.appendListeners(
+        EventType.LOAD,
+        (LoadEventListener)
+            (event, loadType) -> {
+              QueryStatistics statistics = QueryStatistics.current();
+              if (statistics != null && loadType == LoadEventListener.IMMEDIATE_LOAD) {
+                statistics.proxyInitialized();
+              }
+            });
+    registry.appendListeners(
+        EventType.INIT_COLLECTION,
+        (InitializeCollectionEventListener)
+            event -> {
+              QueryStatistics statistics = QueryStatistics.current();
+              if (statistics != null) {
+                statistics.collectionInitialized();
+              }
+            });
+  }
+
+  @Override
+  public void disintegrate(
+      SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {}
+}
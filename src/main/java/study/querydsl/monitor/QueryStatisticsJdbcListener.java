@@ -0,0 +1,24 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/** p6spy 가 감싼 DataSource 에서 실행되는 모든 SQL 을 현재 통계에 더한다. batch 실행은 한 번으로 센다 */
+@Component
+public class QueryStatisticsJdbcListener extends SimpleJdbcEventListener {
+
+  private final NPlusOneDetector detector;
+
+  public QueryStatisticsJdbcListener(NPlusOneDetector detector) {
+    this.detector = detector;
+  }
+
+  @Override
+  public void onAfterAnyExecute(
+      StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+    detector.statementExecuted(statementInformation.getSql());
+  }
+}
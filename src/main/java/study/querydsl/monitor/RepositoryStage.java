@@ -0,0 +1,29 @@
+package study.querydsl.monitor;
+
+/** 저장소 호출을 나누는 단계. 메트릭의 stage 태그 값이 된다 */
+public enum RepositoryStage {
+  /** 조건(Predicate)과 JPAQuery 를 조립하는 시간. 저장소가 fetch 직전에 기록한다 */
+  PREDICATE("predicate"),
+  /** Querydsl 메타데이터를 JPQL 문자열로 바꿔 EntityManager.createQuery 에 넘길 때까지의 시간 */
+  SERIALIZE("serialize"),
+  /** createQuery 부터 JDBC 실행 직전까지. Hibernate 실행 계획 조회/컴파일, 파라미터 바인딩, auto flush 가 들어간다 */
+  PLAN("plan"),
+  /** JDBC 실행과 ResultSet 읽기 시간 (p6spy 로 잰다) */
+  EXECUTE("execute"),
+  /** 엔티티/DTO 로 만드는 시간. JDBC 실행 이후 fetch 가 끝날 때까지에서 JDBC 시간을 뺀 값 */
+  MAP("map"),
+  /** 페이징 전체 개수를 구하는 시간 */
+  COUNT("count"),
+  /** 응답 JSON 직렬화 시간. operation 은 요청 URL 패턴이다 */
+  RESPONSE("response");
+
+  private final String tag;
+
+  RepositoryStage(String tag) {
+    this.tag = tag;
+  }
+
+  public String getTag() {
+    return tag;
+  }
+}
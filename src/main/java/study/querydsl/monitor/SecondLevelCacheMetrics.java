@@ -0,0 +1,35 @@
+package study.querydsl.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate 2차 캐시 리전(JCache)의 hit/miss/put/eviction 을 cache.* 메트릭(cache=리전 이름)으로 내보낸다.
+ *
+ * <p>JCache 통계는 리전 설정(application.conf)에서 monitoring.statistics 를 켠 리전만 나온다.
+ */
+@Component
+public class SecondLevelCacheMetrics {
+
+  public SecondLevelCacheMetrics(
+      EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+    SessionFactoryImplementor sessionFactory =
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    RegionFactory regionFactory = sessionFactory.getCache().getRegionFactory();
+    if (!(regionFactory instanceof JCacheRegionFactory)) {
+      return;
+    }
+
+    CacheManager cacheManager = ((JCacheRegionFactory) regionFactory).getCacheManager();
+    for (String cacheName : cacheManager.getCacheNames()) {
+      JCacheMetrics.monitor(meterRegistry, cacheManager.getCache(cacheName));
+    }
+  }
+}
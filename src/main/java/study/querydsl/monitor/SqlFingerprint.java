@@ -0,0 +1,48 @@
+package study.querydsl.monitor;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 파라미터만 다른 SQL 이 같은 문자열이 되도록 정규화한다. 리터럴과 IN 목록 길이, 공백 차이를 지운다.
+ *
+ * <p>PreparedStatement 의 SQL 은 종류가 많지 않으므로 결과를 캐시한다. 리터럴이 박힌 SQL 이 쏟아져도 캐시가 무한히 커지지 않도록 개수를 제한한다.
+ */
+public final class SqlFingerprint {
+
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private static final int MAX_CACHED = 10_000;
+  private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+  private SqlFingerprint() {}
+
+  public static String of(String sql) {
+    if (sql == null) {
+      return "";
+    }
+    String cached = CACHE.get(sql);
+    if (cached != null) {
+      return cached;
+    }
+
+    String fingerprint = normalize(sql);
+    if (CACHE.size() < MAX_CACHED) {
+      CACHE.put(sql, fingerprint);
+    }
+    return fingerprint;
+  }
+
+  private static String normalize(String sql) {
+    String fingerprint = STRING_LITERAL.matcher(sql).replaceAll("?");
+    fingerprint = NUMBER_LITERAL.matcher(fingerprint).replaceAll("?");
+    fingerprint = IN_LIST.matcher(fingerprint).replaceAll("(?)");
+    fingerprint = WHITESPACE.matcher(fingerprint).replaceAll(" ");
+    return fingerprint.trim().toLowerCase(Locale.ROOT);
+  }
+}
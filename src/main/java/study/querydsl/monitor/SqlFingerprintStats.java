@@ -0,0 +1,47 @@
+package study.querydsl.monitor;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** SQL 모양 하나의 누적 통계. 모든 카운터가 스트라이프 방식(LongAdder)이라 기록할 때 락이 없다 */
+class SqlFingerprintStats {
+
+  private final String fingerprint;
+  private final LongAdder count = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+  private final LongAdder rows = new LongAdder();
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  SqlFingerprintStats(String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  void recordExecution(long micros, boolean failed) {
+    count.increment();
+    if (failed) {
+      errors.increment();
+    }
+    totalMicros.add(micros);
+    maxMicros.accumulate(micros);
+    histogram.record(micros);
+  }
+
+  void recordRows(long rowCount) {
+    rows.add(rowCount);
+  }
+
+  SqlStatsSnapshot snapshot() {
+    return new SqlStatsSnapshot(
+        fingerprint,
+        count.sum(),
+        errors.sum(),
+        totalMicros.sum(),
+        maxMicros.get(),
+        rows.sum(),
+        histogram.percentile(50),
+        histogram.percentile(95),
+        histogram.percentile(99));
+  }
+}
@@ -0,0 +1,76 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * p6spy 이벤트로 SQL 모양(fingerprint)별 실행 횟수, 시간, 읽은 행 수, 지연 시간 분포를 모은다.
+ *
+ * <p>실행 시간은 execute 호출 시간이고 결과를 읽는 시간은 포함하지 않는다. 행 수는 ResultSet 을 닫을 때 읽은 행까지 더한다.
+ */
+@Component
+public class SqlStatistics extends SimpleJdbcEventListener {
+
+  static final String OTHER = "OTHER";
+
+  private final SqlStatsProperties properties;
+  private volatile ConcurrentMap<String, SqlFingerprintStats> stats = new ConcurrentHashMap<>();
+
+  public SqlStatistics(SqlStatsProperties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  public void onAfterAnyExecute(
+      StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+    if (properties.isEnabled()) {
+      stats(statementInformation.getSql())
+          .recordExecution(TimeUnit.NANOSECONDS.toMicros(timeElapsedNanos), e != null);
+    }
+  }
+
+  @Override
+  public void onAfterResultSetClose(ResultSetInformation resultSetInformation, SQLException e) {
+    if (properties.isEnabled()) {
+      int rows = resultSetInformation.getCurrRow() + 1;
+      if (rows > 0) {
+        stats(resultSetInformation.getSql()).recordRows(rows);
+      }
+    }
+  }
+
+  /** 총 실행 시간이 긴 순서 */
+  public List<SqlStatsSnapshot> snapshot() {
+    return stats.values().stream()
+        .map(SqlFingerprintStats::snapshot)
+        .sorted(Comparator.comparingDouble(SqlStatsSnapshot::getTotalMillis).reversed())
+        .collect(Collectors.toList());
+  }
+
+  public void reset() {
+    stats = new ConcurrentHashMap<>();
+  }
+
+  private SqlFingerprintStats stats(String sql) {
+    ConcurrentMap<String, SqlFingerprintStats> current = stats;
+    String fingerprint = SqlFingerprint.of(sql);
+    SqlFingerprintStats fingerprintStats = current.get(fingerprint);
+    if (fingerprintStats != null) {
+      return fingerprintStats;
+    }
+    if (current.size() >= properties.getMaxFingerprints()) {
+      fingerprint = OTHER;
+    }
+    return current.computeIfAbsent(fingerprint, SqlFingerprintStats::new);
+  }
+}
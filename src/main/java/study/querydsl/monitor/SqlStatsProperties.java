@@ -0,0 +1,18 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.sql-stats")
+public class SqlStatsProperties {
+
+  private boolean enabled = true;
+
+  /** 모으는 SQL 모양 개수. 넘으면 나머지는 하나(OTHER)로 합친다 */
+  private int maxFingerprints = 1000;
+}
@@ -0,0 +1,45 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+
+/** SQL 모양별 통계의 한 시점 값. 시간 단위는 밀리초, 백분위는 버킷 상한이라 실제 값보다 약간 크다 */
+@Getter
+public class SqlStatsSnapshot {
+
+  private final String fingerprint;
+  private final long count;
+  private final long errors;
+  private final double totalMillis;
+  private final double meanMillis;
+  private final double maxMillis;
+  private final long rows;
+  private final double p50Millis;
+  private final double p95Millis;
+  private final double p99Millis;
+
+  SqlStatsSnapshot(
+      String fingerprint,
+      long count,
+      long errors,
+      long totalMicros,
+      long maxMicros,
+      long rows,
+      long p50Micros,
+      long p95Micros,
+      long p99Micros) {
+    this.fingerprint = fingerprint;
+    this.count = count;
+    this.errors = errors;
+    this.totalMillis = millis(totalMicros);
+    this.meanMillis = count > 0 ? millis(totalMicros) / count : 0;
+    this.maxMillis = millis(maxMicros);
+    this.rows = rows;
+    this.p50Millis = millis(p50Micros);
+    this.p95Millis = millis(p95Micros);
+    this.p99Millis = millis(p99Micros);
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
@@ -0,0 +1,230 @@
+package study.querydsl.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 저장소 메서드 호출을 단계별로 나눠 querydsl.repository.stage 타이머(operation, stage 태그)에 기록한다. 단계 합계는 stage=total
+ * 이다.
+ *
+ * <p>쿼리는 JPAQuery.fetch() 그대로 실행하고 단계 경계는 훅으로 잡는다. {@link #instrument} 한 EntityManager 의
+ * createQuery 가 JPQL 직렬화의 끝, {@link StageMetricsJdbcListener} 가 보는 JDBC 실행 직전이 plan 의 끝이다. JDBC 실행과
+ * ResultSet.next() 시간은 execute, 나머지는 map 이다. 한 구간에서 쿼리를 여러 번 실행하면 두 번째 쿼리부터의 직렬화와 plan 은 map 에 섞인다.
+ *
+ * <p>호출 안에서 쓴 시간을 단계별로 더해 두었다가 호출이 끝날 때 한 번씩 기록한다. predicate, count 처럼 훅으로 잡을 수 없는 경계는 저장소가 {@link
+ * #mark} 로 알린다.
+ */
+@Component
+public class StageMetrics {
+
+  public static final String METRIC_NAME = "querydsl.repository.stage";
+  private static final String TOTAL = "total";
+
+  private static final ThreadLocal<Invocation> CURRENT = new ThreadLocal<>();
+  private static final RepositoryStage[] STAGES = RepositoryStage.values();
+
+  private final MeterRegistry meterRegistry;
+  private final StageMetricsProperties properties;
+  private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+  public StageMetrics(MeterRegistry meterRegistry, StageMetricsProperties properties) {
+    this.meterRegistry = meterRegistry;
+    this.properties = properties;
+  }
+
+  /** createQuery 호출 시점을 현재 스레드의 호출에 알리는 EntityManager. JPAQueryFactory 에 넘긴다. 나머지 메서드는 그대로 위임한다 */
+  public static EntityManager instrument(EntityManager em) {
+    InvocationHandler handler =
+        (proxy, method, args) -> {
+          if ("createQuery".equals(method.getName())) {
+            Invocation invocation = CURRENT.get();
+            if (invocation != null) {
+              invocation.queryCreated();
+            }
+          }
+          try {
+            return method.invoke(em, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        };
+    return (EntityManager)
+        Proxy.newProxyInstance(
+            EntityManager.class.getClassLoader(), new Class<?>[] {EntityManager.class}, handler);
+  }
+
+  /** call 을 operation 호출 하나로 재서 기록한다. 꺼져 있으면 call 만 실행한다 */
+  public <T> T measure(String operation, Supplier<T> call) {
+    if (!properties.isEnabled()) {
+      return call.get();
+    }
+    Invocation invocation = new Invocation(this, operation, timers(operation));
+    CURRENT.set(invocation);
+    try {
+      return call.get();
+    } finally {
+      invocation.finish();
+    }
+  }
+
+  /** 현재 스레드 호출에서 마지막 기록 이후 지난 시간을 모두 stage 에 더한다. 그 사이에 실행한 쿼리도 stage 로 본다 */
+  public static void mark(RepositoryStage stage) {
+    Invocation invocation = CURRENT.get();
+    if (invocation != null) {
+      invocation.mark(stage);
+    }
+  }
+
+  /** 현재 스레드 호출에서 마지막 기록 이후 지난 시간을 훅이 잡은 경계로 나눠 serialize, plan, execute, map 에 더한다 */
+  public static void fetched() {
+    Invocation invocation = CURRENT.get();
+    if (invocation != null) {
+      invocation.split(System.nanoTime());
+    }
+  }
+
+  /** 저장소 밖에서 잰 단계 하나를 기록한다 */
+  public void record(String operation, RepositoryStage stage, long nanos) {
+    if (properties.isEnabled()) {
+      timer(timers(operation), operation, stage.ordinal(), stage.getTag())
+          .record(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /** 현재 스레드에서 진행 중인 호출의 JDBC 실행이 시작됐다 */
+  static void statementStarted() {
+    Invocation invocation = CURRENT.get();
+    if (invocation != null) {
+      invocation.statementStarted();
+    }
+  }
+
+  /** 현재 스레드에서 진행 중인 호출에 JDBC 시간을 더한다 */
+  static void jdbcTime(long nanos) {
+    Invocation invocation = CURRENT.get();
+    if (invocation != null) {
+      invocation.jdbcNanos += nanos;
+    }
+  }
+
+  private Timer[] timers(String operation) {
+    return timers.computeIfAbsent(operation, key -> new Timer[STAGES.length + 1]);
+  }
+
+  /** 처음 기록할 때 등록한다. 동시에 등록해도 레지스트리가 같은 타이머를 돌려준다 */
+  private Timer timer(Timer[] timers, String operation, int index, String stage) {
+    Timer timer = timers[index];
+    if (timer == null) {
+      timer =
+          Timer.builder(METRIC_NAME)
+              .tag("operation", operation)
+              .tag("stage", stage)
+              .publishPercentileHistogram(properties.isPercentileHistogram())
+              .register(meterRegistry);
+      timers[index] = timer;
+    }
+    return timer;
+  }
+
+  /** 저장소 메서드 호출 하나. 한 스레드에서만 쓴다 */
+  private static class Invocation {
+
+    private final StageMetrics metrics;
+    private final String operation;
+    private final Timer[] timers;
+    private final Invocation previous = CURRENT.get();
+    private final long[] stageNanos = new long[STAGES.length];
+    private final long start = System.nanoTime();
+
+    /** 현재 구간의 시작과 구간 안에서 훅이 잡은 경계 */
+    private long last = start;
+
+    private boolean queryCreated;
+    private long queryCreatedAt;
+    private boolean statementStarted;
+    private long statementStartedAt;
+    private long jdbcNanos;
+
+    private Invocation(StageMetrics metrics, String operation, Timer[] timers) {
+      this.metrics = metrics;
+      this.operation = operation;
+      this.timers = timers;
+    }
+
+    private void mark(RepositoryStage stage) {
+      long now = System.nanoTime();
+      stageNanos[stage.ordinal()] += now - last;
+      next(now);
+    }
+
+    private void queryCreated() {
+      if (!queryCreated && !statementStarted) {
+        queryCreated = true;
+        queryCreatedAt = System.nanoTime();
+      }
+    }
+
+    private void statementStarted() {
+      if (!statementStarted) {
+        statementStarted = true;
+        statementStartedAt = System.nanoTime();
+      }
+    }
+
+    private void split(long now) {
+      long planStart = last;
+      if (queryCreated) {
+        stageNanos[RepositoryStage.SERIALIZE.ordinal()] += queryCreatedAt - last;
+        planStart = queryCreatedAt;
+      }
+      long mapStart = planStart;
+      if (statementStarted) {
+        stageNanos[RepositoryStage.PLAN.ordinal()] += statementStartedAt - planStart;
+        mapStart = statementStartedAt;
+      }
+      stageNanos[RepositoryStage.EXECUTE.ordinal()] += jdbcNanos;
+      stageNanos[RepositoryStage.MAP.ordinal()] += Math.max(0, now - mapStart - jdbcNanos);
+      next(now);
+    }
+
+    private void next(long now) {
+      last = now;
+      queryCreated = false;
+      statementStarted = false;
+      jdbcNanos = 0;
+    }
+
+    private void finish() {
+      long end = System.nanoTime();
+      split(end);
+      if (previous != null) {
+        CURRENT.set(previous);
+        previous.jdbcNanos += stageNanos[RepositoryStage.EXECUTE.ordinal()];
+      } else {
+        CURRENT.remove();
+      }
+
+      for (RepositoryStage stage : STAGES) {
+        long nanos = stageNanos[stage.ordinal()];
+        if (nanos > 0) {
+          metrics
+              .timer(timers, operation, stage.ordinal(), stage.getTag())
+              .record(nanos, TimeUnit.NANOSECONDS);
+        }
+      }
+      metrics
+          .timer(timers, operation, STAGES.length, TOTAL)
+          .record(end - start, TimeUnit.NANOSECONDS);
+    }
+  }
+}
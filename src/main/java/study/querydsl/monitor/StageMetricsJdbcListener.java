@@ -0,0 +1,37 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * JDBC 실행이 시작된 시점과 실행, ResultSet.next() 시간을 현재 스레드의 {@link StageMetrics} 호출에 알린다.
+ *
+ * <p>DataSource 를 감쌀 때 만들어지므로 EntityManager 나 MeterRegistry 에 의존하지 않는다.
+ */
+@Component
+public class StageMetricsJdbcListener extends SimpleJdbcEventListener {
+
+  @Override
+  public void onBeforeAnyExecute(StatementInformation statementInformation) {
+    StageMetrics.statementStarted();
+  }
+
+  @Override
+  public void onAfterAnyExecute(
+      StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+    StageMetrics.jdbcTime(timeElapsedNanos);
+  }
+
+  @Override
+  public void onAfterResultSetNext(
+      ResultSetInformation resultSetInformation,
+      long timeElapsedNanos,
+      boolean hasNext,
+      SQLException e) {
+    StageMetrics.jdbcTime(timeElapsedNanos);
+  }
+}
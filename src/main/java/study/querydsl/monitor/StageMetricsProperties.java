@@ -0,0 +1,18 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.metrics.stages")
+public class StageMetricsProperties {
+
+  private boolean enabled = true;
+
+  /** 백분위 계산용 히스토그램 버킷을 내보낸다 (Prometheus 등). 기록할 때마다 버킷도 갱신하므로 필요할 때만 켠다 */
+  private boolean percentileHistogram = false;
+}
@@ -0,0 +1,55 @@
+package study.querydsl.monitor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * 응답 JSON 직렬화 시간을 {@link RepositoryStage#RESPONSE} 로 기록한다. operation 은 요청 URL 패턴(GET /v3/members
+ * 등)이다.
+ *
+ * <p>MappingJackson2HttpMessageConverter 빈을 대신하므로 Spring Boot 가 구성한 ObjectMapper 를 그대로 쓴다.
+ */
+@Component
+public class StageTimingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+  private final StageMetrics stageMetrics;
+
+  public StageTimingJackson2HttpMessageConverter(
+      ObjectMapper objectMapper, StageMetrics stageMetrics) {
+    super(objectMapper);
+    this.stageMetrics = stageMetrics;
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    long start = System.nanoTime();
+    super.writeInternal(object, type, outputMessage);
+
+    String operation = currentOperation();
+    if (operation != null) {
+      stageMetrics.record(operation, RepositoryStage.RESPONSE, System.nanoTime() - start);
+    }
+  }
+
+  private static String currentOperation() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (!(attributes instanceof ServletRequestAttributes)) {
+      return null;
+    }
+    HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    return pattern != null ? request.getMethod() + " " + pattern : null;
+  }
+}
@@ -0,0 +1,156 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.support.TableChangeListener;
+import study.querydsl.repository.support.TableChangeTracker;
+import study.querydsl.repository.support.TotalCount;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * 회원 검색 전체 개수 캐시.
+ *
+ * <p>키는 정리된 MemberSearchCondition 이라 페이지가 달라도 같은 조건이면 count 를 다시 실행하지 않는다. member/team 테이블에 쓰기가
+ * 감지되면 전부 비운다. 현재 트랜잭션에서 해당 테이블에 쓴 적이 있으면 커밋되지 않은 데이터가 섞이므로 캐시를 읽지도 채우지도 않는다.
+ *
+ * <p>근사 모드(approximate-threshold &gt; 0)에서는 threshold+1 개까지만 세어 본다. 넘으면 조건이 없을 때는 DB 통계의 테이블 행 수를
+ * 추정값으로, 조건이 있거나 통계가 threshold 이하이면 threshold+1 을 하한값으로 돌려준다. 하한값은 Page 의 totalLowerBound 로 표시된다.
+ */
+@Component
+public class MemberCountCache implements TableChangeListener {
+
+  private static final String MEMBER_TABLE = "member";
+  private static final String TEAM_TABLE = "team";
+  private static final String ROW_COUNT_ESTIMATE_SQL =
+      "select row_count_estimate from information_schema.tables where upper(table_name) = 'MEMBER'";
+
+  private final MemberCountCacheProperties properties;
+  private final TableChangeTracker tableChangeTracker;
+  private final JdbcTemplate jdbcTemplate;
+  private final Cache<MemberSearchCondition, TotalCount> cache;
+  private final AtomicLong generation = new AtomicLong();
+
+  public MemberCountCache(
+      MemberCountCacheProperties properties,
+      TableChangeTracker tableChangeTracker,
+      JdbcTemplate jdbcTemplate) {
+    this.properties = properties;
+    this.tableChangeTracker = tableChangeTracker;
+    this.jdbcTemplate = jdbcTemplate;
+    this.cache =
+        Caffeine.newBuilder()
+            .expireAfterWrite(properties.getTtl())
+            .maximumSize(properties.getMaximumSize())
+            .recordStats()
+            .build();
+    tableChangeTracker.addListener(this);
+  }
+
+  /** 캐시에 있거나 근사 모드라서 정확한 count 가 필요 없으면 false */
+  public boolean needsExactCount(MemberSearchCondition condition) {
+    return !isApproximateMode()
+        && (!isCacheable() || cache.getIfPresent(condition.normalized()) == null);
+  }
+
+  /**
+   * 전체 개수를 캐시에서 찾거나 센다.
+   *
+   * @param exactCount 정확한 count. 시간 안에 끝나지 않은 동시 count 처럼 추정값을 돌려줄 수도 있다
+   * @param cappedCount 최대 limit 개까지만 세는 count (근사 모드에서 사용)
+   */
+  public TotalCount total(
+      MemberSearchCondition condition,
+      Supplier<TotalCount> exactCount,
+      LongUnaryOperator cappedCount) {
+    MemberSearchCondition key = condition.normalized();
+    if (!isCacheable()) {
+      return count(key, exactCount, cappedCount);
+    }
+
+    TotalCount cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    // 세는 동안 테이블이 바뀌었으면 옛 값일 수 있으므로 캐시에 넣지 않는다. 정확한 count 대신 받은 추정값도 넣지 않는다
+    long generationBefore = generation.get();
+    TotalCount total = count(key, exactCount, cappedCount);
+    if (generation.get() == generationBefore && (isApproximateMode() || !total.isApproximate())) {
+      cache.put(key, total);
+    }
+    return total;
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  @Override
+  public void onTableChanged(String table) {
+    if (MEMBER_TABLE.equals(table) || TEAM_TABLE.equals(table)) {
+      invalidateAll();
+    }
+  }
+
+  private TotalCount count(
+      MemberSearchCondition condition,
+      Supplier<TotalCount> exactCount,
+      LongUnaryOperator cappedCount) {
+    if (!isApproximateMode()) {
+      return exactCount.get();
+    }
+
+    long threshold = properties.getApproximateThreshold();
+    long counted = cappedCount.applyAsLong(threshold + 1);
+    if (counted <= threshold) {
+      return TotalCount.exact(counted);
+    }
+    long estimate = estimate(condition);
+    return estimate > threshold
+        ? TotalCount.approximate(estimate)
+        : TotalCount.atLeast(threshold + 1);
+  }
+
+  private long estimate(MemberSearchCondition condition) {
+    boolean unfiltered =
+        condition.getUsername() == null
+            && condition.getTeamName() == null
+            && condition.getAgeGoe() == null
+            && condition.getAgeLoe() == null;
+    if (!unfiltered) {
+      return 0;
+    }
+
+    try {
+      Long estimate = jdbcTemplate.queryForObject(ROW_COUNT_ESTIMATE_SQL, Long.class);
+      return estimate != null ? estimate : 0;
+    } catch (DataAccessException e) {
+      return 0;
+    }
+  }
+
+  private boolean isApproximateMode() {
+    return properties.getApproximateThreshold() > 0;
+  }
+
+  private boolean isCacheable() {
+    return properties.isEnabled()
+        && !tableChangeTracker.isAnyWrittenInCurrentTransaction(MEMBER_TABLE, TEAM_TABLE);
+  }
+}
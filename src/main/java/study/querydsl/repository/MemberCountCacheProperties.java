@@ -0,0 +1,24 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.pagination.count-cache")
+public class MemberCountCacheProperties {
+
+  private boolean enabled = true;
+
+  private Duration ttl = Duration.ofSeconds(30);
+
+  private long maximumSize = 10_000;
+
+  /** 0 보다 크면 근사 모드. 이 개수를 넘는 결과는 정확히 세지 않고 추정값이나 하한값을 돌려준다 */
+  private long approximateThreshold = 0;
+}
@@ -0,0 +1,18 @@
+package study.querydsl.repository;
+
+import study.querydsl.repository.support.FetchPlan;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 회원/팀 검색에서 쓰는 fetch plan */
+public final class MemberFetchPlans {
+
+  /** 회원과 팀을 함께 읽는다 */
+  public static final FetchPlan TEAM = FetchPlan.of(member.team);
+
+  /** 팀과 소속 회원 컬렉션을 함께 읽는다. 페이징하면 식별자부터 페이징한다 */
+  public static final FetchPlan MEMBERS = FetchPlan.of(team.members);
+
+  private MemberFetchPlans() {}
+}
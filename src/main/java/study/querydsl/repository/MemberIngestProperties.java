@@ -0,0 +1,19 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.ingest")
+public class MemberIngestProperties {
+
+  /**
+   * saveAll 이 이 개수마다 flush 하고 영속성 컨텍스트를 비운다. hibernate.jdbc.batch_size 와 같거나 배수로 두면 batch 가 꽉 차서
+   * 나간다
+   */
+  private int flushInterval = 1000;
+}
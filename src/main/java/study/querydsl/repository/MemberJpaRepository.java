@@ -3,17 +3,25 @@ package study.querydsl.repository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.RepositoryStage;
+import study.querydsl.monitor.StageMetrics;
+import study.querydsl.repository.support.FetchPlan;
+import study.querydsl.repository.support.ReadOnlyQueryExecutor;
 
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
@@ -23,16 +31,68 @@ public class MemberJpaRepository {
 
   private final EntityManager em;
   private final JPAQueryFactory queryFactory;
+  private final MemberSearchQueryCache searchQueryCache;
+  private final MemberReadModel readModel;
+  private final TeamNameDictionary teamNameDictionary;
+  private final MemberTeamViewSearch memberTeamViewSearch;
+  private final MemberIngestProperties ingestProperties;
+  private final StageMetrics stageMetrics;
+  private final ReadOnlyQueryExecutor readOnlyQueryExecutor;
 
-  public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
+  public MemberJpaRepository(
+      EntityManager em,
+      JPAQueryFactory queryFactory,
+      MemberSearchQueryCache searchQueryCache,
+      MemberReadModel readModel,
+      TeamNameDictionary teamNameDictionary,
+      MemberTeamViewSearch memberTeamViewSearch,
+      MemberIngestProperties ingestProperties,
+      StageMetrics stageMetrics,
+      ReadOnlyQueryExecutor readOnlyQueryExecutor) {
     this.em = em;
     this.queryFactory = queryFactory;
+    this.searchQueryCache = searchQueryCache;
+    this.readModel = readModel;
+    this.teamNameDictionary = teamNameDictionary;
+    this.memberTeamViewSearch = memberTeamViewSearch;
+    this.ingestProperties = ingestProperties;
+    this.stageMetrics = stageMetrics;
+    this.readOnlyQueryExecutor = readOnlyQueryExecutor;
   }
 
   public void save(Member member) {
     em.persist(member);
   }
 
+  /**
+   * 대량 저장. 아직 저장되지 않은 팀도 함께 저장한다.
+   *
+   * <p>flush-interval 개마다 flush 하고 영속성 컨텍스트를 비우고, hibernate.jdbc.batch_size / order_inserts 설정에 따라
+   * Team, Member insert 가 각각 batch 로 묶여 나간다. 호출한 트랜잭션의 영속성 컨텍스트도 비워지므로 이전에 조회한 엔티티는 준영속 상태가 된다.
+   *
+   * <p>비우는 것만으로 메모리가 일정해지지는 않는다. 회원을 만들면 팀의 members 에도 들어가므로 한 팀 객체로 계속 만들면 그 팀이 지금까지 만든 회원을 모두
+   * 붙잡는다. 메모리를 일정하게 두려면 팀을 먼저 저장해 두고, members 를 목록 대신 Iterable 로 넘겨 회원을 만들 때마다 em.getReference 로 받은
+   * 팀을 쓴다. 비운 뒤에 받은 참조는 새 프록시라 이전 구간의 회원을 붙잡지 않는다.
+   */
+  public void saveAll(Iterable<Member> members) {
+    int flushInterval = ingestProperties.getFlushInterval();
+    int count = 0;
+    for (Member member : members) {
+      Team team = member.getTeam();
+      if (team != null && team.getId() == null) {
+        em.persist(team);
+      }
+      em.persist(member);
+
+      if (++count % flushInterval == 0) {
+        em.flush();
+        em.clear();
+      }
+    }
+    em.flush();
+    em.clear();
+  }
+
   public Optional<Member> findById(Long id) {
     Member findMember = em.find(Member.class, id);
     return Optional.ofNullable(findMember);
@@ -57,14 +117,39 @@ public class MemberJpaRepository {
   }
 
   public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
+    return stageMetrics.measure(
+        "searchByBuilder",
+        () -> {
+          JPAQuery<MemberTeamDto> query = searchByBuilderQuery(condition);
+          StageMetrics.mark(RepositoryStage.PREDICATE);
+          return query.fetch();
+        });
+  }
+
+  /** searchByBuilder 가 실행하는 쿼리. 벤치마크에서 JPQL 직렬화 비용을 잴 때도 쓴다 */
+  JPAQuery<MemberTeamDto> searchByBuilderQuery(MemberSearchCondition condition) {
+    return queryFactory
+        .select(
+            new QMemberTeamDto(
+                member.id.as("memberId"),
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName")))
+        .from(member)
+        .leftJoin(member.team, team)
+        .where(builderPredicate(condition));
+  }
 
+  /** searchByBuilder 의 BooleanBuilder 조건 */
+  BooleanBuilder builderPredicate(MemberSearchCondition condition) {
     BooleanBuilder builder = new BooleanBuilder();
     if (StringUtils.hasText(condition.getUsername())) {
       builder.and(member.username.eq(condition.getUsername()));
     }
 
     if (StringUtils.hasText(condition.getTeamName())) {
-      builder.and(team.name.eq(condition.getTeamName()));
+      builder.and(teamNameEq(condition.getTeamName()));
     }
 
     if (condition.getAgeGoe() != null) {
@@ -74,22 +159,29 @@ public class MemberJpaRepository {
     if (condition.getAgeLoe() != null) {
       builder.and(member.age.loe(condition.getAgeLoe()));
     }
-
-    return queryFactory
-        .select(
-            new QMemberTeamDto(
-                member.id.as("memberId"),
-                member.username,
-                member.age,
-                team.id.as("teamId"),
-                team.name.as("teamName")))
-        .from(member)
-        .leftJoin(member.team, team)
-        .where(builder)
-        .fetch();
+    return builder;
   }
 
   public List<MemberTeamDto> searchByWhere(MemberSearchCondition condition) {
+    // 읽기 모델이 켜져 있으면 메모리에서, member_team_view 를 쓸 수 있으면 join 없이,
+    // 아니면 조건 모양별로 미리 직렬화해 둔 쿼리에 값만 바인딩한다
+    return stageMetrics.measure(
+        "searchByWhere",
+        () ->
+            readModel.search(
+                condition,
+                () ->
+                    memberTeamViewSearch.isReadable()
+                        ? memberTeamViewSearch.searchQuery(condition).fetch()
+                        : searchQueryCache.search(em, condition)));
+  }
+
+  /**
+   * searchByWhere 와 같은 조건을 forward-only 커서로 한 행씩 읽는다. 트랜잭션 안에서 호출하고 반드시 닫아야 한다.
+   *
+   * @param fetchSize JDBC 드라이버가 한 번에 가져올 행 수
+   */
+  public Stream<MemberTeamDto> streamByWhere(MemberSearchCondition condition, int fetchSize) {
     return queryFactory
         .select(
             new QMemberTeamDto(
@@ -100,12 +192,21 @@ public class MemberJpaRepository {
                 team.name.as("teamName")))
         .from(member)
         .leftJoin(member.team, team)
-        .where(
-            usernameEq(condition.getUsername()),
-            teamNameEq(condition.getTeamName()),
-            ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe()))
-        .fetch();
+        .where(wherePredicates(condition))
+        .orderBy(member.id.asc())
+        .setHint(QueryHints.FETCH_SIZE, fetchSize)
+        .setHint(QueryHints.READ_ONLY, true)
+        .stream();
+  }
+
+  /** where 다중 파라미터 방식의 조건. null 인 조건은 Querydsl 이 무시한다 */
+  Predicate[] wherePredicates(MemberSearchCondition condition) {
+    return new Predicate[] {
+      usernameEq(condition.getUsername()),
+      teamNameEq(condition.getTeamName()),
+      ageGoe(condition.getAgeGoe()),
+      ageLoe(condition.getAgeLoe())
+    };
   }
 
   private BooleanExpression ageLoe(Integer ageLoe) {
@@ -116,8 +217,9 @@ public class MemberJpaRepository {
     return ageGoe != null ? member.age.goe(ageGoe) : null;
   }
 
+  /** 팀 이름 사전으로 team_id 조건이 되면 team 을 join 하지 않고 거를 수 있다 */
   private Predicate teamNameEq(String teamName) {
-    return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    return teamNameDictionary.teamNameEq(teamName);
   }
 
   private Predicate usernameEq(String username) {
@@ -125,15 +227,36 @@ public class MemberJpaRepository {
   }
 
   public List<Member> searchMember(MemberSearchCondition condition) {
-    return queryFactory
-        .selectFrom(member)
-        .leftJoin(member.team, team)
-        .where(
-            usernameEq(condition.getUsername()),
-            teamNameEq(condition.getTeamName()),
-            ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe()))
-        .fetch();
+    return searchMember(condition, FetchPlan.NONE);
+  }
+
+  /**
+   * fetchPlan 의 연관관계를 fetch join 으로 함께 읽는다. 예: {@link MemberFetchPlans#TEAM}
+   *
+   * <p>결과는 읽기 전용 엔티티다({@link ReadOnlyQueryExecutor})
+   */
+  public List<Member> searchMember(MemberSearchCondition condition, FetchPlan fetchPlan) {
+    return stageMetrics.measure(
+        "searchMember",
+        () ->
+            readOnlyQueryExecutor.execute(
+                () -> {
+                  Predicate teamNameEq = teamNameEq(condition.getTeamName());
+                  JPAQuery<Member> query = queryFactory.selectFrom(member);
+                  // team 컬럼은 조회하지 않으므로 이름 조건에 필요할 때만 join 한다
+                  if (TeamNameDictionary.joinsTeam(teamNameEq)) {
+                    query.leftJoin(member.team, team);
+                  }
+                  // 조건용 team join 이 있으면 그 join 에 fetch 를 붙인다
+                  fetchPlan.applyTo(query);
+                  query.where(
+                      usernameEq(condition.getUsername()),
+                      teamNameEq,
+                      ageGoe(condition.getAgeGoe()),
+                      ageLoe(condition.getAgeLoe()));
+                  StageMetrics.mark(RepositoryStage.PREDICATE);
+                  return query.fetch();
+                }));
   }
 
   private BooleanExpression ageBetween(int ageLoe, int ageGoe) {
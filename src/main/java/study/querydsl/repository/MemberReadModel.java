@@ -0,0 +1,153 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.TableChangeListener;
+import study.querydsl.repository.support.TableChangeTracker;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * MemberSearchCondition 검색을 DB 대신 메모리에서 처리하는 읽기 모델.
+ *
+ * <p>member/team 테이블에 쓰기가 감지되면(save, 벌크 update/delete, 데이터 생성기) 스냅샷을 버리고, 다음 검색에서 DB 를 한 번 읽어 다시
+ * 만든다. 다시 만드는 동안 들어온 검색과 현재 트랜잭션에서 해당 테이블에 쓴 검색은 DB 로 간다. 읽는 동안 테이블이 바뀌었으면 만든 스냅샷을 버린다.
+ */
+@Slf4j
+@Component
+public class MemberReadModel implements TableChangeListener {
+
+  private static final String MEMBER_TABLE = "member";
+  private static final String TEAM_TABLE = "team";
+  private static final String LOAD_SQL =
+      "select m.member_id, m.username, m.age, t.id, t.name"
+          + " from member m left join team t on m.team_id = t.id"
+          + " order by m.member_id";
+
+  private final MemberReadModelProperties properties;
+  private final TableChangeTracker tableChangeTracker;
+  private final JdbcTemplate jdbcTemplate;
+  private final AtomicLong generation = new AtomicLong();
+  private final ReentrantLock loadLock = new ReentrantLock();
+  private volatile MemberReadModelSnapshot snapshot;
+  private volatile long estimatedBytes;
+
+  public MemberReadModel(
+      MemberReadModelProperties properties,
+      TableChangeTracker tableChangeTracker,
+      JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.tableChangeTracker = tableChangeTracker;
+    this.jdbcTemplate = jdbcTemplate;
+    tableChangeTracker.addListener(this);
+
+    Gauge.builder("querydsl.read-model.rows", this, MemberReadModel::getRowCount)
+        .register(meterRegistry);
+    Gauge.builder("querydsl.read-model.bytes", this, MemberReadModel::getEstimatedBytes)
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  /** 읽기 모델로 검색한다. 꺼져 있거나 스냅샷을 쓸 수 없으면 fallback(DB 검색)을 쓴다 */
+  public List<MemberTeamDto> search(
+      MemberSearchCondition condition, Supplier<List<MemberTeamDto>> fallback) {
+    if (!properties.isEnabled()
+        || tableChangeTracker.isAnyWrittenInCurrentTransaction(MEMBER_TABLE, TEAM_TABLE)) {
+      return fallback.get();
+    }
+
+    MemberReadModelSnapshot current = currentSnapshot();
+    return current != null ? current.search(condition.normalized()) : fallback.get();
+  }
+
+  public long getRowCount() {
+    MemberReadModelSnapshot current = snapshot;
+    return current != null ? current.size() : 0;
+  }
+
+  /** 마지막으로 만든 스냅샷의 힙 사용량 추정치 */
+  public long getEstimatedBytes() {
+    return snapshot != null ? estimatedBytes : 0;
+  }
+
+  /** 행 100만 개당 힙 사용량 추정치 */
+  public long getBytesPerMillionRows() {
+    long rows = getRowCount();
+    return rows > 0 ? getEstimatedBytes() * 1_000_000 / rows : 0;
+  }
+
+  public void invalidate() {
+    generation.incrementAndGet();
+    snapshot = null;
+  }
+
+  @Override
+  public void onTableChanged(String table) {
+    if (MEMBER_TABLE.equals(table) || TEAM_TABLE.equals(table)) {
+      invalidate();
+    }
+  }
+
+  private MemberReadModelSnapshot currentSnapshot() {
+    MemberReadModelSnapshot current = snapshot;
+    if (current != null && current.getGeneration() == generation.get()) {
+      return current;
+    }
+
+    // 한 스레드만 적재하고 나머지는 기다리지 않고 DB 로 간다
+    if (!loadLock.tryLock()) {
+      return null;
+    }
+    try {
+      current = snapshot;
+      long generationBefore = generation.get();
+      if (current != null && current.getGeneration() == generationBefore) {
+        return current;
+      }
+
+      MemberReadModelSnapshot loaded = load(generationBefore);
+      if (generation.get() != generationBefore) {
+        return null;
+      }
+      estimatedBytes = loaded.estimatedBytes();
+      snapshot = loaded;
+      log.info(
+          "member read model loaded: {} rows, {} KB ({} KB per 1M rows)",
+          loaded.size(),
+          estimatedBytes / 1024,
+          getBytesPerMillionRows() / 1024);
+      return loaded;
+    } finally {
+      loadLock.unlock();
+    }
+  }
+
+  private MemberReadModelSnapshot load(long generation) {
+    MemberReadModelSnapshot.Builder builder = new MemberReadModelSnapshot.Builder();
+    jdbcTemplate.query(
+        connection -> {
+          PreparedStatement statement = connection.prepareStatement(LOAD_SQL);
+          statement.setFetchSize(properties.getFetchSize());
+          return statement;
+        },
+        rs -> {
+          builder.add(
+              rs.getLong(1),
+              rs.getString(2),
+              rs.getInt(3),
+              rs.getObject(4, Long.class),
+              rs.getString(5));
+        });
+    return builder.build(generation);
+  }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.read-model")
+public class MemberReadModelProperties {
+
+  /** 켜면 search 를 메모리의 읽기 모델에서 처리한다. 회원 전체를 힙에 올리므로 기본은 꺼져 있다 */
+  private boolean enabled = false;
+
+  /** 적재할 때 JDBC 드라이버가 한 번에 가져올 행 수 */
+  private int fetchSize = 1000;
+}
@@ -0,0 +1,271 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 어느 시점의 member left join team 결과를 열(column) 배열로 들고 있는 읽기 전용 스냅샷.
+ *
+ * <p>행 번호는 member_id 오름차순이다. username, 팀 이름은 해시 인덱스(값 → 행 번호 배열), age 는 age 로 정렬한 int 배열과 그 순서의 행
+ * 번호 배열로 찾는다. 조건이 여러 개면 후보가 가장 적은 인덱스 하나로 후보를 고르고 나머지 조건은 열 값을 직접 비교한다.
+ */
+class MemberReadModelSnapshot {
+
+  private static final int[] NO_ROWS = new int[0];
+
+  private final long generation;
+  private final int size;
+  private final long[] memberIds;
+  private final String[] usernames;
+  private final int[] ages;
+  /** 팀이 없으면 -1 */
+  private final int[] teamRows;
+
+  private final long[] teamIds;
+  private final String[] teamNames;
+
+  private final Map<String, int[]> usernameIndex;
+  private final Map<String, int[]> teamNameIndex;
+  private final int[] sortedAges;
+  private final int[] rowsByAge;
+
+  private MemberReadModelSnapshot(Builder builder, long generation) {
+    this.generation = generation;
+    this.size = builder.size;
+    this.memberIds = Arrays.copyOf(builder.memberIds, size);
+    this.usernames = Arrays.copyOf(builder.usernames, size);
+    this.ages = Arrays.copyOf(builder.ages, size);
+    this.teamRows = Arrays.copyOf(builder.teamRows, size);
+    this.teamIds = Arrays.copyOf(builder.teamIds, builder.teamCount);
+    this.teamNames = Arrays.copyOf(builder.teamNames, builder.teamCount);
+
+    this.usernameIndex = hashIndex(usernames, size);
+    String[] rowTeamNames = new String[size];
+    for (int row = 0; row < size; row++) {
+      rowTeamNames[row] = teamRows[row] >= 0 ? teamNames[teamRows[row]] : null;
+    }
+    this.teamNameIndex = hashIndex(rowTeamNames, size);
+
+    this.rowsByAge = sortByAge(ages, size);
+    this.sortedAges = new int[size];
+    for (int i = 0; i < size; i++) {
+      sortedAges[i] = ages[rowsByAge[i]];
+    }
+  }
+
+  long getGeneration() {
+    return generation;
+  }
+
+  int size() {
+    return size;
+  }
+
+  List<MemberTeamDto> search(MemberSearchCondition condition) {
+    String username = condition.getUsername();
+    String teamName = condition.getTeamName();
+    int ageFrom = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+    int ageTo = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+    if (ageFrom > ageTo) {
+      return new ArrayList<>();
+    }
+
+    // 후보가 가장 적은 인덱스를 고른다. null 이면 전체 행
+    int[] candidates = null;
+    if (username != null) {
+      candidates = usernameIndex.getOrDefault(username, NO_ROWS);
+    }
+    if (teamName != null) {
+      candidates = smaller(candidates, teamNameIndex.getOrDefault(teamName, NO_ROWS));
+    }
+    if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+      int from = lowerBound(sortedAges, ageFrom);
+      int to = ageTo == Integer.MAX_VALUE ? size : lowerBound(sortedAges, ageTo + 1);
+      if (candidates == null || to - from < candidates.length) {
+        // age 순서라서 member_id 순서로 되돌린다
+        candidates = Arrays.copyOfRange(rowsByAge, from, to);
+        Arrays.sort(candidates);
+      }
+    }
+
+    int count = candidates != null ? candidates.length : size;
+    List<MemberTeamDto> results = new ArrayList<>(Math.min(count, 1024));
+    for (int i = 0; i < count; i++) {
+      int row = candidates != null ? candidates[i] : i;
+      if (matches(row, username, teamName, ageFrom, ageTo)) {
+        results.add(toDto(row));
+      }
+    }
+    return results;
+  }
+
+  /** 힙 사용량 추정치(바이트). compressed oops(참조 4바이트), Latin-1 문자열 기준이다. 같은 문자열은 한 번만 센다. */
+  long estimatedBytes() {
+    long bytes = 0;
+    bytes += array(size, 8) + array(size, 4) * 4; // memberIds, usernames, ages, teamRows
+    bytes += array(teamIds.length, 8) + array(teamNames.length, 4);
+    bytes += array(size, 4) * 2; // sortedAges, rowsByAge
+    bytes += hashIndexBytes(usernameIndex) + hashIndexBytes(teamNameIndex);
+    for (String username : usernameIndex.keySet()) {
+      bytes += stringBytes(username);
+    }
+    for (String teamName : teamNames) {
+      bytes += teamName != null ? stringBytes(teamName) : 0;
+    }
+    return bytes;
+  }
+
+  private boolean matches(int row, String username, String teamName, int ageFrom, int ageTo) {
+    int age = ages[row];
+    if (age < ageFrom || age > ageTo) {
+      return false;
+    }
+    if (username != null && !username.equals(usernames[row])) {
+      return false;
+    }
+    return teamName == null || (teamRows[row] >= 0 && teamName.equals(teamNames[teamRows[row]]));
+  }
+
+  private MemberTeamDto toDto(int row) {
+    int teamRow = teamRows[row];
+    return new MemberTeamDto(
+        memberIds[row],
+        usernames[row],
+        ages[row],
+        teamRow >= 0 ? teamIds[teamRow] : null,
+        teamRow >= 0 ? teamNames[teamRow] : null);
+  }
+
+  private static int[] smaller(int[] candidates, int[] rows) {
+    return candidates == null || rows.length < candidates.length ? rows : candidates;
+  }
+
+  /** key 이상인 첫 위치 */
+  private static int lowerBound(int[] sorted, int key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** 값 → 행 번호 배열. 행 번호는 오름차순이다 */
+  private static Map<String, int[]> hashIndex(String[] values, int size) {
+    Map<String, Integer> counts = new HashMap<>();
+    for (int row = 0; row < size; row++) {
+      if (values[row] != null) {
+        counts.merge(values[row], 1, Integer::sum);
+      }
+    }
+
+    Map<String, int[]> index = new HashMap<>(counts.size() * 4 / 3 + 1);
+    Map<String, Integer> filled = new HashMap<>(counts.size() * 4 / 3 + 1);
+    for (int row = 0; row < size; row++) {
+      String value = values[row];
+      if (value == null) {
+        continue;
+      }
+      int[] rows = index.computeIfAbsent(value, key -> new int[counts.get(key)]);
+      int position = filled.merge(value, 1, Integer::sum) - 1;
+      rows[position] = row;
+    }
+    return index;
+  }
+
+  /** counting sort 가 아니라 (age, row) 를 long 으로 묶어 정렬한다. age 범위가 넓어도 된다 */
+  private static int[] sortByAge(int[] ages, int size) {
+    long[] keys = new long[size];
+    for (int row = 0; row < size; row++) {
+      keys[row] = ((long) ages[row] << 32) | row;
+    }
+    Arrays.sort(keys);
+    int[] rows = new int[size];
+    for (int i = 0; i < size; i++) {
+      rows[i] = (int) keys[i];
+    }
+    return rows;
+  }
+
+  private static long array(long length, int elementBytes) {
+    return align(16 + length * elementBytes);
+  }
+
+  private static long stringBytes(String value) {
+    return align(24) + array(value.length(), 1);
+  }
+
+  private static long hashIndexBytes(Map<String, int[]> index) {
+    long bytes =
+        align(48) + array(Integer.highestOneBit(Math.max(1, index.size() * 4 / 3)) * 2L, 4);
+    for (int[] rows : index.values()) {
+      bytes += 32 + array(rows.length, 4); // HashMap.Node + 행 번호 배열
+    }
+    return bytes;
+  }
+
+  private static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  /** member_id 오름차순으로 한 행씩 받아 스냅샷을 만든다 */
+  static class Builder {
+    private int size;
+    private long[] memberIds = new long[1024];
+    private String[] usernames = new String[1024];
+    private int[] ages = new int[1024];
+    private int[] teamRows = new int[1024];
+
+    private int teamCount;
+    private long[] teamIds = new long[16];
+    private String[] teamNames = new String[16];
+    private final Map<Long, Integer> teamRowsById = new HashMap<>();
+    /** 같은 username 은 같은 String 인스턴스를 쓰게 해서 메모리를 줄인다 */
+    private final Map<String, String> usernamePool = new HashMap<>();
+
+    void add(long memberId, String username, int age, Long teamId, String teamName) {
+      if (size == memberIds.length) {
+        int capacity = size + (size >> 1);
+        memberIds = Arrays.copyOf(memberIds, capacity);
+        usernames = Arrays.copyOf(usernames, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        teamRows = Arrays.copyOf(teamRows, capacity);
+      }
+      memberIds[size] = memberId;
+      usernames[size] = username != null ? usernamePool.computeIfAbsent(username, u -> u) : null;
+      ages[size] = age;
+      teamRows[size] = teamId != null ? teamRow(teamId, teamName) : -1;
+      size++;
+    }
+
+    MemberReadModelSnapshot build(long generation) {
+      return new MemberReadModelSnapshot(this, generation);
+    }
+
+    private int teamRow(long teamId, String teamName) {
+      Integer row = teamRowsById.get(teamId);
+      if (row != null) {
+        return row;
+      }
+      if (teamCount == teamIds.length) {
+        teamIds = Arrays.copyOf(teamIds, teamCount * 2);
+        teamNames = Arrays.copyOf(teamNames, teamCount * 2);
+      }
+      teamIds[teamCount] = teamId;
+      teamNames[teamCount] = teamName;
+      teamRowsById.put(teamId, teamCount);
+      return teamCount++;
+    }
+  }
+}
@@ -2,6 +2,9 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
@@ -14,4 +17,12 @@ public interface MemberRepositoryCustom {
   Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
 
   Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+  /**
+   * pageable 의 정렬은 MemberTeamDto 속성 이름(memberId, username, age, teamId, teamName)으로 준다. 마지막 정렬 키는
+   * 항상 memberId 다.
+   */
+  Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+
+  MemberCursorPage searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size);
 }
@@ -1,36 +1,239 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
-import study.querydsl.entity.Member;
+import study.querydsl.monitor.RepositoryStage;
+import study.querydsl.monitor.StageMetrics;
+import study.querydsl.repository.support.CountQueryExecutor;
+import study.querydsl.repository.support.CountQueryOptimizer;
+import study.querydsl.repository.support.DeferredJoin;
+import study.querydsl.repository.support.DeferredJoinProperties;
+import study.querydsl.repository.support.PendingCount;
+import study.querydsl.repository.support.SliceResults;
+import study.querydsl.repository.support.TotalCount;
+import study.querydsl.repository.support.TotalCountPage;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+  /** MemberTeamDto 속성 이름별 정렬 경로 */
+  private static final Map<String, ComparableExpressionBase<?>> SORT_COLUMNS =
+      Map.of(
+          MemberTeamSort.MEMBER_ID,
+          member.id,
+          "username",
+          member.username,
+          "age",
+          member.age,
+          "teamId",
+          team.id,
+          "teamName",
+          team.name);
+
+  private final EntityManager em;
   private final JPAQueryFactory queryFactory;
+  private final CountQueryExecutor countQueryExecutor;
+  private final CountQueryOptimizer countQueryOptimizer;
+  private final MemberSearchQueryCache searchQueryCache;
+  private final MemberReadModel readModel;
+  private final TeamNameDictionary teamNameDictionary;
+  private final MemberTeamViewSearch memberTeamViewSearch;
+  private final MemberCountCache memberCountCache;
+  private final StageMetrics stageMetrics;
+  private final DeferredJoinProperties deferredJoinProperties;
+  private final MemberSearchExecutor searchExecutor;
 
-  public MemberRepositoryImpl(EntityManager em) {
-    this.queryFactory = new JPAQueryFactory(em);
+  public MemberRepositoryImpl(
+      EntityManager em,
+      CountQueryExecutor countQueryExecutor,
+      CountQueryOptimizer countQueryOptimizer,
+      MemberSearchQueryCache searchQueryCache,
+      MemberReadModel readModel,
+      TeamNameDictionary teamNameDictionary,
+      MemberTeamViewSearch memberTeamViewSearch,
+      MemberCountCache memberCountCache,
+      StageMetrics stageMetrics,
+      DeferredJoinProperties deferredJoinProperties,
+      MemberSearchExecutor searchExecutor) {
+    this.em = em;
+    this.queryFactory = new JPAQueryFactory(StageMetrics.instrument(em));
+    this.countQueryExecutor = countQueryExecutor;
+    this.countQueryOptimizer = countQueryOptimizer;
+    this.searchQueryCache = searchQueryCache;
+    this.readModel = readModel;
+    this.teamNameDictionary = teamNameDictionary;
+    this.memberTeamViewSearch = memberTeamViewSearch;
+    this.memberCountCache = memberCountCache;
+    this.stageMetrics = stageMetrics;
+    this.deferredJoinProperties = deferredJoinProperties;
+    this.searchExecutor = searchExecutor;
   }
 
+  /** 결과 캐시, 같은 검색 합치기, 단계별 측정은 {@link MemberSearchExecutor} 가 감싼다. 페이지 검색도 같다 */
   @Override
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    return searchExecutor.search(
+        "search",
+        condition,
+        () ->
+            readModel.search(
+                condition,
+                () ->
+                    memberTeamViewSearch.isReadable()
+                        ? memberTeamViewSearch.searchQuery(condition).fetch()
+                        : searchQueryCache.search(em, condition)));
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? member.age.loe(ageLoe) : null;
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? member.age.goe(ageGoe) : null;
+  }
+
+  /** 팀 이름 사전으로 team_id 조건이 되면 team 을 join 하지 않고 거를 수 있다 */
+  private Predicate teamNameEq(String teamName) {
+    return teamNameDictionary.teamNameEq(teamName);
+  }
+
+  private Predicate usernameEq(String username) {
+    return StringUtils.hasText(username) ? member.username.eq(username) : null;
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    return searchExecutor.searchPage(
+        "searchPageSimple",
+        condition,
+        pageable,
+        () -> {
+          JPAQuery<MemberTeamDto> contentQuery = contentQuery(condition);
+          Function<JPAQueryFactory, JPAQuery<?>> countQuery =
+              countQueryOptimizer.derive(contentQuery);
+          StageMetrics.mark(RepositoryStage.PREDICATE);
+
+          List<MemberTeamDto> content = fetchPage(contentQuery, pageable);
+          StageMetrics.fetched();
+
+          // 같은 조건의 전체 개수는 캐시에서 가져온다
+          TotalCount total =
+              memberCountCache.total(
+                  condition,
+                  () -> TotalCount.exact(countQuery.apply(queryFactory).fetchCount()),
+                  limit -> cappedCount(countQuery, limit));
+          StageMetrics.mark(RepositoryStage.COUNT);
+
+          return new TotalCountPage<>(content, pageable, total);
+        });
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    return searchExecutor.searchPage(
+        "searchPageComplex",
+        condition,
+        pageable,
+        () -> {
+          JPAQuery<MemberTeamDto> contentQuery = contentQuery(condition);
+
+          // count 쿼리는 컨텐츠 쿼리에서 뽑는다. teamName 조건이 없거나 team_id 조건으로 바뀌었으면 team join 이 빠진다.
+          // 캐시에 없을 때만 미리 시작하고, 옵션이 켜져 있으면 별도 커넥션에서 컨텐츠 쿼리와 동시에 실행된다
+          Function<JPAQueryFactory, JPAQuery<?>> countQuery =
+              countQueryOptimizer.derive(contentQuery);
+          try (PendingCount exactCount =
+              memberCountCache.needsExactCount(condition)
+                  ? countQueryExecutor.submit(countQuery, queryFactory)
+                  : PendingCount.inline(() -> countQuery.apply(queryFactory).fetchCount())) {
+            StageMetrics.mark(RepositoryStage.PREDICATE);
+            List<MemberTeamDto> results = fetchPage(contentQuery, pageable);
+            StageMetrics.fetched();
+
+            //    return new PageImpl<>(results, pageable, total);
+
+            Page<MemberTeamDto> page =
+                TotalCountPage.of(
+                    results,
+                    pageable,
+                    () ->
+                        memberCountCache.total(
+                            condition,
+                            () -> exactCount.get(pageable, results),
+                            limit -> cappedCount(countQuery, limit)));
+            StageMetrics.mark(RepositoryStage.COUNT);
+            return page;
+          }
+        });
+  }
+
+  @Override
+  public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+    return searchExecutor.uncached(
+        "searchSlice",
+        Arrays.asList(condition.normalized(), pageable),
+        () -> {
+          JPAQuery<MemberTeamDto> contentQuery = sortedContentQuery(condition, pageable.getSort());
+          StageMetrics.mark(RepositoryStage.PREDICATE);
+
+          // 한 건 더 읽어서 다음 페이지 여부만 판단한다. count 쿼리는 실행하지 않는다
+          List<MemberTeamDto> results = SliceResults.limitPlusOne(contentQuery, pageable).fetch();
+          return SliceResults.of(results, pageable);
+        });
+  }
+
+  /** 깊은 offset 이면 식별자만 먼저 페이징하고 그 회원들만 읽는다 */
+  private List<MemberTeamDto> fetchPage(JPAQuery<MemberTeamDto> contentQuery, Pageable pageable) {
+    if (deferredJoinProperties.appliesTo(pageable.getOffset())) {
+      return DeferredJoin.fetch(
+          contentQuery, pageable, MemberTeamDto::getMemberId, countQueryOptimizer, queryFactory);
+    }
+    return contentQuery.offset(pageable.getOffset()).limit(pageable.getPageSize()).fetch();
+  }
+
+  /** member_team_view 를 읽을 수 있으면 join 없이, 아니면 member left join team 으로 검색한다 */
+  private JPAQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition) {
+    if (memberTeamViewSearch.isReadable()) {
+      return memberTeamViewSearch.searchQuery(condition);
+    }
+    return memberQuery(condition);
+  }
+
+  /**
+   * contentQuery 에 MemberTeamDto 속성 이름으로 된 정렬을 붙인다. 정렬 값이 같은 행이 연속된 페이지에서 빠지거나 겹치지 않도록 memberId 를
+   * 마지막 정렬 키로 쓴다.
+   */
+  private JPAQuery<MemberTeamDto> sortedContentQuery(MemberSearchCondition condition, Sort sort) {
+    if (memberTeamViewSearch.isReadable()) {
+      return memberTeamViewSearch
+          .searchQuery(condition)
+          .orderBy(MemberTeamSort.orderBy(sort, MemberTeamViewSearch.SORT_COLUMNS));
+    }
+    return memberQuery(condition).orderBy(MemberTeamSort.orderBy(sort, SORT_COLUMNS));
+  }
+
+  private JPAQuery<MemberTeamDto> memberQuery(MemberSearchCondition condition) {
     return queryFactory
         .select(
             new QMemberTeamDto(
@@ -45,88 +248,99 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
             usernameEq(condition.getUsername()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe()))
-        .fetch();
+            ageLoe(condition.getAgeLoe()));
   }
 
-  private BooleanExpression ageLoe(Integer ageLoe) {
-    return ageLoe != null ? member.age.loe(ageLoe) : null;
+  /** 최대 limit 개의 식별자만 읽어서 센다. 결과가 아무리 커도 비용이 limit 에 비례한다 */
+  private long cappedCount(Function<JPAQueryFactory, JPAQuery<?>> countQuery, long limit) {
+    JPAQuery<?> query = countQuery.apply(queryFactory);
+    return query.limit(limit).fetch().size();
   }
 
-  private BooleanExpression ageGoe(Integer ageGoe) {
-    return ageGoe != null ? member.age.goe(ageGoe) : null;
-  }
+  @Override
+  public MemberCursorPage searchByCursor(
+      MemberSearchCondition condition, MemberCursor cursor, int size) {
+    return stageMetrics.measure(
+        "searchByCursor",
+        () -> {
+          // offset 대신 마지막 (정렬 키, member_id) 다음부터 읽으므로 깊은 페이지도 첫 페이지와 비용이 같다
+          JPAQuery<MemberTeamDto> contentQuery =
+              queryFactory
+                  .select(
+                      new QMemberTeamDto(
+                          member.id.as("memberId"),
+                          member.username,
+                          member.age,
+                          team.id.as("teamId"),
+                          team.name.as("teamName")))
+                  .from(member)
+                  .leftJoin(member.team, team)
+                  .where(
+                      usernameEq(condition.getUsername()),
+                      teamNameEq(condition.getTeamName()),
+                      ageGoe(condition.getAgeGoe()),
+                      ageLoe(condition.getAgeLoe()),
+                      cursorAfter(cursor))
+                  .orderBy(cursorOrder(cursor))
+                  .limit(size + 1);
+          StageMetrics.mark(RepositoryStage.PREDICATE);
+          List<MemberTeamDto> results = contentQuery.fetch();
 
-  private Predicate teamNameEq(String teamName) {
-    return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
-  }
+          boolean hasNext = results.size() > size;
+          List<MemberTeamDto> content = hasNext ? results.subList(0, size) : results;
+          String nextCursor = hasNext ? cursor.next(content.get(size - 1)).encode() : null;
 
-  private Predicate usernameEq(String username) {
-    return StringUtils.hasText(username) ? member.username.eq(username) : null;
+          return new MemberCursorPage(content, hasNext, nextCursor);
+        });
   }
 
-  @Override
-  public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-    QueryResults<MemberTeamDto> results =
-        queryFactory
-            .select(
-                new QMemberTeamDto(
-                    member.id.as("memberId"),
-                    member.username,
-                    member.age,
-                    team.id.as("teamId"),
-                    team.name.as("teamName")))
-            .from(member)
-            .leftJoin(member.team, team)
-            .where(
-                usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
-                ageGoe(condition.getAgeGoe()),
-                ageLoe(condition.getAgeLoe()))
-            .offset(pageable.getOffset())
-            .limit(pageable.getPageSize())
-            .fetchResults();
-
-    List<MemberTeamDto> content = results.getResults();
-    long total = results.getTotal();
-
-    return new PageImpl<>(content, pageable, total);
+  private BooleanExpression cursorAfter(MemberCursor cursor) {
+    if (!cursor.hasPosition()) {
+      return null;
+    }
+
+    Long lastId = cursor.getLastMemberId();
+    BooleanExpression idAfter = cursor.isAscending() ? member.id.gt(lastId) : member.id.lt(lastId);
+
+    switch (cursor.getSortKey()) {
+      case AGE:
+        int lastAge = cursor.getLastAge();
+        return cursor.isAscending()
+            ? member.age.gt(lastAge).or(member.age.eq(lastAge).and(idAfter))
+            : member.age.lt(lastAge).or(member.age.eq(lastAge).and(idAfter));
+      case USERNAME:
+        // username 은 null 일 수 있다. 오름차순은 null 이 먼저, 내림차순은 null 이 마지막이다.
+        String lastUsername = cursor.getLastValue();
+        if (cursor.isAscending()) {
+          return lastUsername == null
+              ? member.username.isNull().and(idAfter).or(member.username.isNotNull())
+              : member.username.gt(lastUsername).or(member.username.eq(lastUsername).and(idAfter));
+        }
+        return lastUsername == null
+            ? member.username.isNull().and(idAfter)
+            : member
+                .username
+                .lt(lastUsername)
+                .or(member.username.eq(lastUsername).and(idAfter))
+                .or(member.username.isNull());
+      default:
+        return idAfter;
+    }
   }
 
-  @Override
-  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-    List<MemberTeamDto> results =
-        queryFactory
-            .select(
-                new QMemberTeamDto(
-                    member.id.as("memberId"),
-                    member.username,
-                    member.age,
-                    team.id.as("teamId"),
-                    team.name.as("teamName")))
-            .from(member)
-            .leftJoin(member.team, team)
-            .where(
-                usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
-                ageGoe(condition.getAgeGoe()),
-                ageLoe(condition.getAgeLoe()))
-            .offset(pageable.getOffset())
-            .limit(pageable.getPageSize())
-            .fetch();
-
-    JPAQuery<Member> countQuery =
-        queryFactory
-            .selectFrom(member)
-            .leftJoin(member.team, team)
-            .where(
-                usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
-                ageGoe(condition.getAgeGoe()),
-                ageLoe(condition.getAgeLoe()));
-
-    //    return new PageImpl<>(results, pageable, total);
-
-    return PageableExecutionUtils.getPage(results, pageable, () -> countQuery.fetchCount());
+  private OrderSpecifier<?>[] cursorOrder(MemberCursor cursor) {
+    boolean asc = cursor.isAscending();
+    OrderSpecifier<Long> idOrder = asc ? member.id.asc() : member.id.desc();
+
+    switch (cursor.getSortKey()) {
+      case AGE:
+        return new OrderSpecifier<?>[] {asc ? member.age.asc() : member.age.desc(), idOrder};
+      case USERNAME:
+        return new OrderSpecifier<?>[] {
+          asc ? member.username.asc().nullsFirst() : member.username.desc().nullsLast(), idOrder
+        };
+      default:
+        return new OrderSpecifier<?>[] {idOrder};
+    }
   }
 }
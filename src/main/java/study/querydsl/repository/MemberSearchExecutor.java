@@ -0,0 +1,63 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.monitor.StageMetrics;
+import study.querydsl.repository.support.QueryCoalescer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 회원 검색 한 번을 결과 캐시({@link MemberSearchResultCache}) → 같은 검색 합치기({@link QueryCoalescer}) → 단계별
+ * 측정({@link StageMetrics}) 순서로 감싼다. 캐시에 있으면 나머지는 건너뛰고, 합쳐진 호출은 먼저 실행한 호출 하나만 측정된다.
+ *
+ * <p>operation 은 세 곳 모두에서 검색을 구분하는 이름이다.
+ */
+@Component
+public class MemberSearchExecutor {
+
+  private final MemberSearchResultCache searchResultCache;
+  private final QueryCoalescer queryCoalescer;
+  private final StageMetrics stageMetrics;
+
+  public MemberSearchExecutor(
+      MemberSearchResultCache searchResultCache,
+      QueryCoalescer queryCoalescer,
+      StageMetrics stageMetrics) {
+    this.searchResultCache = searchResultCache;
+    this.queryCoalescer = queryCoalescer;
+    this.stageMetrics = stageMetrics;
+  }
+
+  public List<MemberTeamDto> search(
+      String operation, MemberSearchCondition condition, Supplier<List<MemberTeamDto>> search) {
+    return searchResultCache.search(
+        operation, condition, () -> uncached(operation, condition.normalized(), search));
+  }
+
+  public Page<MemberTeamDto> searchPage(
+      String operation,
+      MemberSearchCondition condition,
+      Pageable pageable,
+      Supplier<Page<MemberTeamDto>> search) {
+    return searchResultCache.searchPage(
+        operation,
+        condition,
+        pageable,
+        () -> uncached(operation, Arrays.asList(condition.normalized(), pageable), search));
+  }
+
+  /**
+   * 결과 캐시 없이 합치기와 측정만 한다. Slice 처럼 캐시하지 않는 검색용
+   *
+   * @param key 같은 쿼리가 되는 호출끼리 equals 가 같은 값
+   */
+  public <T> T uncached(String operation, Object key, Supplier<T> search) {
+    return queryCoalescer.execute(operation, key, () -> stageMetrics.measure(operation, search));
+  }
+}
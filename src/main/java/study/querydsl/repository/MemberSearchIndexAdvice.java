@@ -0,0 +1,26 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/** 검색 모양 하나의 실행 계획. tableScans 는 인덱스 없이 훑는 테이블이다 */
+@Getter
+public class MemberSearchIndexAdvice {
+
+  private final String shape;
+  private final String sql;
+  private final String plan;
+  private final List<String> tableScans;
+
+  MemberSearchIndexAdvice(String shape, String sql, String plan, List<String> tableScans) {
+    this.shape = shape;
+    this.sql = sql;
+    this.plan = plan;
+    this.tableScans = tableScans;
+  }
+
+  public boolean isIndexed() {
+    return tableScans.isEmpty();
+  }
+}
@@ -0,0 +1,133 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.QuerySplitter;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.hibernate.hql.spi.QueryTranslatorFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 회원 검색 16가지 모양의 SQL 을 H2 EXPLAIN 으로 확인해서 인덱스 없이 테이블을 훑는 모양을 찾는다.
+ *
+ * <p>{@link MemberSearchQueryCache} 가 만드는 JPQL 을 Hibernate 의 QueryTranslator 로 SQL 로 바꾸고 예시 값을
+ * 바인딩해서 실행 계획을 받는다. H2 의 계획에는 테이블마다 고른 인덱스가 주석으로 붙고, 인덱스를 쓰지 않으면 {@code TABLE.tableScan} 으로 나온다.
+ * 조건이 없는 모양은 항상 훑으므로 결과에는 넣지만 경고하지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberSearchIndexAdvisor {
+
+  private static final Pattern TABLE_SCAN = Pattern.compile("/\\* ([\\w.]+)\\.tableScan");
+
+  private final EntityManager em;
+  private final MemberSearchQueryCache searchQueryCache;
+  private final JdbcTemplate jdbcTemplate;
+
+  public MemberSearchIndexAdvisor(
+      EntityManager em, MemberSearchQueryCache searchQueryCache, JdbcTemplate jdbcTemplate) {
+    this.em = em;
+    this.searchQueryCache = searchQueryCache;
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public List<MemberSearchIndexAdvice> advise() {
+    SessionFactoryImplementor sessionFactory =
+        em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    QueryTranslatorFactory translatorFactory =
+        sessionFactory.getServiceRegistry().getService(QueryTranslatorFactory.class);
+
+    List<MemberSearchIndexAdvice> advices = new ArrayList<>(16);
+    for (int key = 0; key < 16; key++) {
+      MemberSearchCondition condition = sampleCondition(key);
+      String jpql = searchQueryCache.jpqlOf(em, condition);
+      // 쿼리 계획 캐시처럼 엔티티 이름을 클래스 이름으로 바꾼 뒤 번역한다. Member 는 HQL 의 member 키워드와 겹친다
+      String hql = QuerySplitter.concreteQueries(jpql, sessionFactory)[0];
+      QueryTranslator translator =
+          translatorFactory.createQueryTranslator(
+              hql, hql, Collections.emptyMap(), sessionFactory, null);
+      translator.compile(Collections.emptyMap(), false);
+      String sql = translator.getSQLString();
+
+      String plan =
+          jdbcTemplate.query(
+              "explain " + sql,
+              statement -> bind(statement, condition),
+              rs -> rs.next() ? rs.getString(1) : "");
+      MemberSearchIndexAdvice advice =
+          new MemberSearchIndexAdvice(shapeOf(condition), sql, plan, tableScans(plan));
+      if (!advice.isIndexed() && key != 0) {
+        log.warn("search shape [{}] scans {}: {}", advice.getShape(), advice.getTableScans(), plan);
+      }
+      advices.add(advice);
+    }
+    return advices;
+  }
+
+  /** 예시 값은 실행 계획을 고르는 데만 쓴다 */
+  private static MemberSearchCondition sampleCondition(int key) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername((key & 1) != 0 ? "member1" : null);
+    condition.setTeamName((key & 2) != 0 ? "TeamA" : null);
+    condition.setAgeGoe((key & 4) != 0 ? 20 : null);
+    condition.setAgeLoe((key & 8) != 0 ? 40 : null);
+    return condition;
+  }
+
+  private static void bind(PreparedStatement statement, MemberSearchCondition condition)
+      throws SQLException {
+    int index = 1;
+    if (condition.getUsername() != null) {
+      statement.setString(index++, condition.getUsername());
+    }
+    if (condition.getTeamName() != null) {
+      statement.setString(index++, condition.getTeamName());
+    }
+    if (condition.getAgeGoe() != null) {
+      statement.setInt(index++, condition.getAgeGoe());
+    }
+    if (condition.getAgeLoe() != null) {
+      statement.setInt(index, condition.getAgeLoe());
+    }
+  }
+
+  private static String shapeOf(MemberSearchCondition condition) {
+    List<String> fields = new ArrayList<>(4);
+    if (condition.getUsername() != null) {
+      fields.add("username");
+    }
+    if (condition.getTeamName() != null) {
+      fields.add("teamName");
+    }
+    if (condition.getAgeGoe() != null) {
+      fields.add("ageGoe");
+    }
+    if (condition.getAgeLoe() != null) {
+      fields.add("ageLoe");
+    }
+    return fields.isEmpty() ? "-" : String.join(", ", fields);
+  }
+
+  private static List<String> tableScans(String plan) {
+    Set<String> tables = new LinkedHashSet<>();
+    Matcher matcher = TABLE_SCAN.matcher(plan);
+    while (matcher.find()) {
+      tables.add(matcher.group(1).toLowerCase(Locale.ROOT));
+    }
+    return new ArrayList<>(tables);
+  }
+}
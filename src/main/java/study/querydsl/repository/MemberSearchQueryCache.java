@@ -0,0 +1,207 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition 검색 쿼리의 모양(shape) 캐시.
+ *
+ * <p>조건의 4개 필드(username, teamName, ageGoe, ageLoe)가 있고 없고에 따라 쿼리 모양은 16가지뿐이다. 모양마다 한 번만 파라미터화된 JPQL
+ * 로 직렬화해 두고, 요청마다 BooleanExpression 트리를 만들고 직렬화하는 대신 값만 바인딩한다.
+ *
+ * <p>hit/miss 와 컴파일된 모양 수는 cache.* 메트릭(cache=memberSearchShape)으로 나간다.
+ */
+@Component
+public class MemberSearchQueryCache {
+
+  static final String CACHE_NAME = "memberSearchShape";
+
+  private static final int USERNAME = 1;
+  private static final int TEAM_NAME = 1 << 1;
+  private static final int AGE_GOE = 1 << 2;
+  private static final int AGE_LOE = 1 << 3;
+  private static final int SHAPE_COUNT = 1 << 4;
+
+  private static final Param<String> usernameParam = new Param<>(String.class, "username");
+  private static final Param<String> teamNameParam = new Param<>(String.class, "teamName");
+  private static final Param<Integer> ageGoeParam = new Param<>(Integer.class, "ageGoe");
+  private static final Param<Integer> ageLoeParam = new Param<>(Integer.class, "ageLoe");
+
+  private final AtomicReferenceArray<CompiledShape> shapes =
+      new AtomicReferenceArray<>(SHAPE_COUNT);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public MemberSearchQueryCache(MeterRegistry meterRegistry) {
+    FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+        .tags("cache", CACHE_NAME, "result", "hit")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+        .tags("cache", CACHE_NAME, "result", "miss")
+        .register(meterRegistry);
+    Gauge.builder("cache.size", this, MemberSearchQueryCache::getCompiledShapeCount)
+        .tag("cache", CACHE_NAME)
+        .register(meterRegistry);
+  }
+
+  public List<MemberTeamDto> search(EntityManager em, MemberSearchCondition condition) {
+    CompiledShape shape = shapeOf(em, condition);
+
+    Query query = em.createQuery(shape.jpql);
+    JPAUtil.setConstants(query, shape.constants, paramsOf(condition));
+
+    List<?> rows = query.getResultList();
+    List<MemberTeamDto> results = new ArrayList<>(rows.size());
+    for (Object row : rows) {
+      results.add(shape.projection.newInstance((Object[]) row));
+    }
+    return results;
+  }
+
+  /** 조건과 같은 모양의 파라미터화된 JPQL. 파라미터는 username, teamName, ageGoe, ageLoe 중 있는 것만 이 순서로 나온다 */
+  public String jpqlOf(EntityManager em, MemberSearchCondition condition) {
+    return compile(em, keyOf(condition)).jpql;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /** 지금까지 컴파일된 모양의 수 (최대 16) */
+  public int getCompiledShapeCount() {
+    int count = 0;
+    for (int i = 0; i < SHAPE_COUNT; i++) {
+      if (shapes.get(i) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private CompiledShape shapeOf(EntityManager em, MemberSearchCondition condition) {
+    int key = keyOf(condition);
+    CompiledShape shape = shapes.get(key);
+    if (shape != null) {
+      hits.increment();
+      return shape;
+    }
+
+    // 같은 모양을 동시에 컴파일해도 결과는 같으므로 먼저 끝난 쪽을 쓴다
+    misses.increment();
+    shapes.compareAndSet(key, null, compile(em, key));
+    return shapes.get(key);
+  }
+
+  private CompiledShape compile(EntityManager em, int key) {
+    QMemberTeamDto projection =
+        new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+
+    // team.name 조건이 있으면 팀이 없는 회원은 어차피 걸러지므로 inner join 으로 바꿔서 team 쪽 인덱스부터 읽을 수 있게 한다
+    JPAQuery<MemberTeamDto> query = new JPAQuery<>(em).select(projection).from(member);
+    if ((key & TEAM_NAME) != 0) {
+      query.join(member.team, team);
+    } else {
+      query.leftJoin(member.team, team);
+    }
+    query.where(
+        (key & USERNAME) != 0 ? usernameEq() : null,
+        (key & TEAM_NAME) != 0 ? teamNameEq() : null,
+        (key & AGE_GOE) != 0 ? ageGoe() : null,
+        (key & AGE_LOE) != 0 ? ageLoe() : null);
+
+    JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+    serializer.serialize(query.getMetadata(), false, null);
+    return new CompiledShape(serializer.toString(), serializer.getConstants(), projection);
+  }
+
+  private static int keyOf(MemberSearchCondition condition) {
+    int key = 0;
+    if (StringUtils.hasText(condition.getUsername())) {
+      key |= USERNAME;
+    }
+    if (StringUtils.hasText(condition.getTeamName())) {
+      key |= TEAM_NAME;
+    }
+    if (condition.getAgeGoe() != null) {
+      key |= AGE_GOE;
+    }
+    if (condition.getAgeLoe() != null) {
+      key |= AGE_LOE;
+    }
+    return key;
+  }
+
+  private static Map<ParamExpression<?>, Object> paramsOf(MemberSearchCondition condition) {
+    Map<ParamExpression<?>, Object> params = new HashMap<>(8);
+    params.put(usernameParam, condition.getUsername());
+    params.put(teamNameParam, condition.getTeamName());
+    params.put(ageGoeParam, condition.getAgeGoe());
+    params.put(ageLoeParam, condition.getAgeLoe());
+    return params;
+  }
+
+  private static BooleanExpression ageLoe() {
+    return member.age.loe(ageLoeParam);
+  }
+
+  private static BooleanExpression ageGoe() {
+    return member.age.goe(ageGoeParam);
+  }
+
+  private static Predicate teamNameEq() {
+    return team.name.eq(teamNameParam);
+  }
+
+  private static Predicate usernameEq() {
+    return member.username.eq(usernameParam);
+  }
+
+  private static class CompiledShape {
+    private final String jpql;
+    private final List<Object> constants;
+    private final FactoryExpression<MemberTeamDto> projection;
+
+    private CompiledShape(
+        String jpql, List<Object> constants, FactoryExpression<MemberTeamDto> projection) {
+      this.jpql = jpql;
+      this.constants = constants;
+      this.projection = projection;
+    }
+  }
+}
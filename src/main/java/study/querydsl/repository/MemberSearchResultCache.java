@@ -0,0 +1,424 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.EntityChange;
+import study.querydsl.repository.support.EntityChangeListener;
+import study.querydsl.repository.support.EntityChangeTracker;
+import study.querydsl.repository.support.TableChangeListener;
+import study.querydsl.repository.support.TableChangeTracker;
+import study.querydsl.repository.support.TotalCount;
+import study.querydsl.repository.support.TotalCountPage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 회원 검색 결과 캐시. 같은 조건(정리된 MemberSearchCondition + Pageable)을 반복해서 여는 대시보드용이다.
+ *
+ * <p>추정 크기(bytes)의 합이 maximum-weight 를 넘으면 Caffeine 의 W-TinyLFU 로 자주 쓰이지 않는 결과부터 내보낸다. 바뀐 데이터가 영향을
+ * 줄 수 있는 결과만 트랜잭션이 끝난 뒤 지운다.
+ *
+ * <ul>
+ *   <li>회원 insert/update/delete: 바뀌기 전이나 후의 회원이 조건에 맞는 결과. 팀이 초기화되지 않은 프록시면 팀 이름 조건은 맞는 것으로 본다.
+ *   <li>팀 update/delete: 그 팀의 회원이 들어 있거나, 팀 이름 조건이 바뀌기 전이나 후의 이름인 결과.
+ *   <li>JPQL/Querydsl 벌크 update, delete 처럼 이벤트가 없는 쓰기와 JDBC 로 직접 커밋한 쓰기: member 면 전부, team 이면 팀이 들어
+ *       있거나 팀 이름 조건이 있는 결과.
+ * </ul>
+ *
+ * <p>읽기/쓰기 트랜잭션 안의 검색은 flush 되지 않은 변경을 봐야 하므로 캐시를 쓰지 않는다. 캐시에는 DTO 까지 복사해서 넣고, 캐시에서 꺼낸 결과도 매번 복사한
+ * 읽기 전용 목록으로 돌려준다. 호출자가 결과를 고쳐도 캐시된 결과나 다른 호출자의 결과는 바뀌지 않는다.
+ */
+@Component
+public class MemberSearchResultCache
+    implements TableChangeListener, EntityChangeListener<MemberSearchResultCache.Pending> {
+
+  static final String CACHE_NAME = "memberSearchResults";
+  private static final List<Class<?>> ENTITY_CLASSES = List.of(Member.class, Team.class);
+  private static final String MEMBER_TABLE = "member";
+  private static final String TEAM_TABLE = "team";
+  /** 캐시 키(List + 조건 복사본 + Pageable)와 Caffeine 노드, Entry 의 대략적인 크기 */
+  private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+  private final MemberSearchResultCacheProperties properties;
+  private final EntityChangeTracker entityChangeTracker;
+  private final Cache<List<Object>, Entry> cache;
+  private final AtomicLong generation = new AtomicLong();
+
+  public MemberSearchResultCache(
+      MemberSearchResultCacheProperties properties,
+      TableChangeTracker tableChangeTracker,
+      EntityChangeTracker entityChangeTracker,
+      MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.entityChangeTracker = entityChangeTracker;
+    this.cache =
+        Caffeine.newBuilder()
+            .expireAfterWrite(properties.getTtl())
+            .maximumWeight(properties.getMaximumWeight().toBytes())
+            .weigher((List<Object> key, Entry entry) -> entry.weight)
+            .recordStats()
+            .build();
+    tableChangeTracker.addListener(this);
+    entityChangeTracker.addListener(this);
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    Gauge.builder(
+            "querydsl.search-result-cache.bytes", this, MemberSearchResultCache::getWeightedSize)
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("querydsl.search-result-cache.hit-ratio", this, c -> c.cache.stats().hitRate())
+        .register(meterRegistry);
+  }
+
+  /** 목록 검색 결과를 캐시에서 찾거나 search 로 검색한다 */
+  public List<MemberTeamDto> search(
+      String operation, MemberSearchCondition condition, Supplier<List<MemberTeamDto>> search) {
+    return get(
+        operation, condition, null, search, Function.identity(), MemberSearchResultCache::copyOf);
+  }
+
+  /** 페이지 검색 결과를 캐시에서 찾거나 search 로 검색한다 */
+  public Page<MemberTeamDto> searchPage(
+      String operation,
+      MemberSearchCondition condition,
+      Pageable pageable,
+      Supplier<Page<MemberTeamDto>> search) {
+    return get(
+        operation, condition, pageable, search, Page::getContent, MemberSearchResultCache::copyOf);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T get(
+      String operation,
+      MemberSearchCondition condition,
+      Pageable pageable,
+      Supplier<T> search,
+      Function<T, List<MemberTeamDto>> content,
+      UnaryOperator<T> copy) {
+    if (!properties.isEnabled() || isReadWriteTransactionActive()) {
+      return search.get();
+    }
+
+    MemberSearchCondition normalized = condition.normalized();
+    List<Object> key = Arrays.asList(operation, normalized, pageable);
+    Entry cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return copy.apply((T) cached.result);
+    }
+
+    // 검색하는 동안 지워야 할 쓰기가 끝났으면 옛 결과일 수 있으므로 넣지 않는다
+    long generationBefore = generation.get();
+    T result = search.get();
+    if (generation.get() == generationBefore) {
+      T stored = copy.apply(result);
+      cache.put(key, Entry.of(stored, normalized, content.apply(stored)));
+    }
+    return result;
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public long getEntryCount() {
+    cache.cleanUp();
+    return cache.estimatedSize();
+  }
+
+  /** 캐시된 결과의 추정 크기 합(bytes) */
+  public long getWeightedSize() {
+    return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  @Override
+  public void onTableChanged(String table) {}
+
+  @Override
+  public void onWriteStatement(String table, String sql) {
+    boolean member = MEMBER_TABLE.equals(table);
+    if (!member && !TEAM_TABLE.equals(table)) {
+      return;
+    }
+    if (sql != null && entityChangeTracker.isEntityStatement(sql)) {
+      // 엔티티 이벤트로 반영된다
+      return;
+    }
+
+    // JDBC 로 직접 커밋한 쓰기나 세션 밖의 쓰기는 바로 지운다
+    Pending pending = sql != null ? entityChangeTracker.pending(this) : null;
+    boolean immediate = pending == null;
+    if (immediate) {
+      pending = new Pending();
+    }
+    if (member) {
+      pending.all = true;
+    } else {
+      pending.allTeams = true;
+    }
+    if (immediate) {
+      apply(pending);
+    }
+  }
+
+  @Override
+  public Collection<Class<?>> getEntityClasses() {
+    return ENTITY_CLASSES;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  @Override
+  public Pending newPending() {
+    return new Pending();
+  }
+
+  @Override
+  public void entityChanged(EntityChange change, Pending pending) {
+    if (pending == null) {
+      return;
+    }
+    if (change.getEntity() instanceof Member) {
+      memberChanged((Member) change.getEntity(), change, pending);
+    } else {
+      teamChanged((Team) change.getEntity(), change, pending);
+    }
+  }
+
+  /** 롤백이어도 그 사이 캐시에 들어간 결과는 옛 데이터라 지워도 된다 */
+  @Override
+  public void afterCompletion(Pending pending, boolean success) {
+    apply(pending);
+  }
+
+  private void memberChanged(Member member, EntityChange change, Pending pending) {
+    if (change.isOldStateUnknown()) {
+      // 바뀌기 전 값을 모르면 어떤 결과에 있었는지 알 수 없다
+      pending.all = true;
+      return;
+    }
+    pending.addMember(MemberState.of(member.getUsername(), member.getAge(), member.getTeam()));
+    if (change.hasOldState()) {
+      pending.addMember(
+          MemberState.of(
+              (String) change.getOldValue("username"),
+              (Integer) change.getOldValue("age"),
+              (Team) change.getOldValue("team")));
+    }
+    if (pending.members.size() > properties.getMaxPendingChanges()) {
+      pending.all = true;
+      pending.members.clear();
+    }
+  }
+
+  private void teamChanged(Team team, EntityChange change, Pending pending) {
+    pending.teamIds.add(team.getId());
+    pending.teamNames.add(team.getName());
+    if (change.hasOldState()) {
+      pending.teamNames.add((String) change.getOldValue("name"));
+    }
+  }
+
+  private void apply(Pending pending) {
+    generation.incrementAndGet();
+    if (pending.all) {
+      cache.invalidateAll();
+      return;
+    }
+    cache.asMap().values().removeIf(pending::affects);
+  }
+
+  private static boolean isReadWriteTransactionActive() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  /** 호출자가 고쳐도 캐시가 바뀌지 않도록 DTO 까지 복사한 읽기 전용 목록 */
+  private static List<MemberTeamDto> copyOf(List<MemberTeamDto> content) {
+    List<MemberTeamDto> copy = new ArrayList<>(content.size());
+    for (MemberTeamDto dto : content) {
+      copy.add(
+          new MemberTeamDto(
+              dto.getMemberId(),
+              dto.getUsername(),
+              dto.getAge(),
+              dto.getTeamId(),
+              dto.getTeamName()));
+    }
+    return Collections.unmodifiableList(copy);
+  }
+
+  private static Page<MemberTeamDto> copyOf(Page<MemberTeamDto> page) {
+    List<MemberTeamDto> content = copyOf(page.getContent());
+    if (!(page instanceof TotalCountPage)) {
+      return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
+    }
+    TotalCountPage<MemberTeamDto> totalCountPage = (TotalCountPage<MemberTeamDto>) page;
+    long total = page.getTotalElements();
+    return new TotalCountPage<>(
+        content,
+        page.getPageable(),
+        totalCountPage.isTotalLowerBound()
+            ? TotalCount.atLeast(total)
+            : totalCountPage.isTotalApproximate()
+                ? TotalCount.approximate(total)
+                : TotalCount.exact(total));
+  }
+
+  /** 캐시된 결과와 무효화에 필요한 것 */
+  private static class Entry {
+    private final Object result;
+    private final MemberSearchCondition condition;
+    private final Set<Long> teamIds;
+    private final int weight;
+
+    private Entry(Object result, MemberSearchCondition condition, Set<Long> teamIds, int weight) {
+      this.result = result;
+      this.condition = condition;
+      this.teamIds = teamIds;
+      this.weight = weight;
+    }
+
+    private static Entry of(
+        Object result, MemberSearchCondition condition, List<MemberTeamDto> content) {
+      Set<Long> teamIds = new HashSet<>();
+      long bytes = ENTRY_OVERHEAD_BYTES + align(24) + array(content.size(), 4); // ArrayList
+      for (MemberTeamDto dto : content) {
+        bytes += align(12 + 4 * 4 + 4) + align(16); // MemberTeamDto, memberId
+        bytes += dto.getUsername() != null ? stringBytes(dto.getUsername()) : 0;
+        bytes += dto.getTeamName() != null ? stringBytes(dto.getTeamName()) : 0;
+        if (dto.getTeamId() != null) {
+          bytes += align(16);
+          teamIds.add(dto.getTeamId());
+        }
+      }
+      // HashSet 테이블과 노드. Long 은 DTO 와 공유한다
+      bytes +=
+          align(48) + array(Integer.highestOneBit(Math.max(1, teamIds.size() * 4 / 3)) * 2L, 4);
+      bytes += teamIds.size() * 32L;
+      return new Entry(result, condition, teamIds, (int) Math.min(Integer.MAX_VALUE, bytes));
+    }
+
+    private static long array(long length, int elementBytes) {
+      return align(16 + length * elementBytes);
+    }
+
+    private static long stringBytes(String value) {
+      return align(24) + array(value.length(), 1);
+    }
+
+    private static long align(long bytes) {
+      return (bytes + 7) & ~7L;
+    }
+  }
+
+  /** 검색 조건과 비교할 회원 값. 팀 이름을 모르면 teamNameKnown=false */
+  private static class MemberState {
+    private final String username;
+    private final Integer age;
+    private final String teamName;
+    private final boolean teamNameKnown;
+
+    private MemberState(String username, Integer age, String teamName, boolean teamNameKnown) {
+      this.username = username;
+      this.age = age;
+      this.teamName = teamName;
+      this.teamNameKnown = teamNameKnown;
+    }
+
+    private static MemberState of(String username, Integer age, Team team) {
+      if (team == null) {
+        return new MemberState(username, age, null, true);
+      }
+      if (!Hibernate.isInitialized(team)) {
+        return new MemberState(username, age, null, false);
+      }
+      return new MemberState(username, age, team.getName(), true);
+    }
+
+    private boolean matches(MemberSearchCondition condition) {
+      if (condition.getUsername() != null && !condition.getUsername().equals(username)) {
+        return false;
+      }
+      if (age != null && condition.getAgeGoe() != null && age < condition.getAgeGoe()) {
+        return false;
+      }
+      if (age != null && condition.getAgeLoe() != null && age > condition.getAgeLoe()) {
+        return false;
+      }
+      return condition.getTeamName() == null
+          || !teamNameKnown
+          || condition.getTeamName().equals(teamName);
+    }
+  }
+
+  /** 한 세션(트랜잭션)에서 바뀐 것 */
+  static class Pending {
+    private final List<MemberState> members = new ArrayList<>();
+    private final Set<Long> teamIds = new HashSet<>();
+    private final Set<String> teamNames = new HashSet<>();
+    private boolean all;
+    private boolean allTeams;
+
+    private void addMember(MemberState member) {
+      if (!all) {
+        members.add(member);
+      }
+    }
+
+    private boolean affects(Entry entry) {
+      if (allTeams && (!entry.teamIds.isEmpty() || entry.condition.getTeamName() != null)) {
+        return true;
+      }
+      if (entry.condition.getTeamName() != null
+          && teamNames.contains(entry.condition.getTeamName())) {
+        return true;
+      }
+      for (Long teamId : teamIds) {
+        if (entry.teamIds.contains(teamId)) {
+          return true;
+        }
+      }
+      for (MemberState member : members) {
+        if (member.matches(entry.condition)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
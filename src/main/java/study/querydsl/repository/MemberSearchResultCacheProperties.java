@@ -0,0 +1,27 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.search-result-cache")
+public class MemberSearchResultCacheProperties {
+
+  private boolean enabled = true;
+
+  /** 추적하지 못한 쓰기(다른 노드 등)에 대비한 최대 보관 시간 */
+  private Duration ttl = Duration.ofSeconds(60);
+
+  /** 캐시된 결과의 추정 크기 합의 상한. 넘으면 W-TinyLFU 로 내보낸다 */
+  private DataSize maximumWeight = DataSize.ofMegabytes(64);
+
+  /** 한 트랜잭션에서 바뀐 회원이 이보다 많으면 하나씩 비교하지 않고 전부 비운다 */
+  private int maxPendingChanges = 1000;
+}
@@ -0,0 +1,53 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** MemberTeamDto 속성 이름(memberId, username, age, teamId, teamName)으로 된 Sort 를 쿼리 정렬로 바꾼다. */
+final class MemberTeamSort {
+
+  static final String MEMBER_ID = "memberId";
+
+  private MemberTeamSort() {}
+
+  /**
+   * 정렬 값이 같은 행도 페이지마다 순서가 바뀌지 않도록 memberId 를 마지막 정렬 키로 붙인다.
+   *
+   * @param columns 속성 이름별 정렬 경로. memberId 는 반드시 있어야 한다
+   * @throws IllegalArgumentException 정렬할 수 없는 속성이면
+   */
+  static OrderSpecifier<?>[] orderBy(Sort sort, Map<String, ComparableExpressionBase<?>> columns) {
+    List<OrderSpecifier<?>> orders = new ArrayList<>();
+    boolean memberIdSorted = false;
+    for (Sort.Order order : sort) {
+      ComparableExpressionBase<?> column = columns.get(order.getProperty());
+      if (column == null) {
+        throw new IllegalArgumentException("정렬할 수 없는 속성입니다: " + order.getProperty());
+      }
+      orders.add(orderOf(order, column));
+      memberIdSorted |= MEMBER_ID.equals(order.getProperty());
+    }
+
+    if (!memberIdSorted) {
+      orders.add(columns.get(MEMBER_ID).asc());
+    }
+    return orders.toArray(new OrderSpecifier<?>[0]);
+  }
+
+  private static OrderSpecifier<?> orderOf(Sort.Order order, ComparableExpressionBase<?> column) {
+    OrderSpecifier<?> specifier = order.isAscending() ? column.asc() : column.desc();
+    switch (order.getNullHandling()) {
+      case NULLS_FIRST:
+        return specifier.nullsFirst();
+      case NULLS_LAST:
+        return specifier.nullsLast();
+      default:
+        return specifier;
+    }
+  }
+}
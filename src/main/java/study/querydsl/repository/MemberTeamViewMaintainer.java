@@ -0,0 +1,269 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.EntityChange;
+import study.querydsl.repository.support.EntityChangeListener;
+import study.querydsl.repository.support.EntityChangeTracker;
+import study.querydsl.repository.support.TableChangeListener;
+import study.querydsl.repository.support.TableChangeTracker;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * member_team_view 를 member/team 과 맞춰 둔다.
+ *
+ * <ul>
+ *   <li>엔티티 insert/update/delete 는 {@link EntityChangeTracker} 로 바뀐 회원/팀 식별자를 모아 두었다가, 트랜잭션이 커밋되기
+ *       직전(마지막 flush 후) 같은 커넥션에서 해당 행만 다시 만든다. 팀 이름 변경은 그 팀의 행들만 update 한다. 다른 트랜잭션의 팀 이름 변경과 엇갈려
+ *       예전 이름이 남지 않도록 먼저 관련 팀 행을 잠근다.
+ *   <li>JPQL/네이티브 벌크 update, delete 처럼 이벤트가 없는 쓰기는 {@link TableChangeTracker} 로 감지해서, 같은 트랜잭션 안에서
+ *       전체를 다시 만든다.
+ *   <li>JDBC 로 직접 커밋한 쓰기(데이터 생성기)는 함께 커밋한 테이블을 한 번에 알림받아 전체를 한 번만 다시 만든다.
+ * </ul>
+ *
+ * <p>위 방법으로 반영할 수 없는 쓰기(스프링 트랜잭션 밖의 벌크 쓰기, 꺼져 있는 동안의 쓰기)가 있으면 {@link #rebuild()} 전까지 읽지 않는다. 현재
+ * 트랜잭션에서 member/team 에 쓴 적이 있을 때도 커밋 전이라 반영되지 않았으므로 읽지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberTeamViewMaintainer
+    implements TableChangeListener, EntityChangeListener<MemberTeamViewMaintainer.Pending> {
+
+  private static final List<Class<?>> ENTITY_CLASSES = List.of(Member.class, Team.class);
+  private static final String MEMBER_TABLE = "member";
+  private static final String TEAM_TABLE = "team";
+  private static final String INSERT_ROWS =
+      "insert into member_team_view (member_id, username, age, team_id, team_name)"
+          + " select m.member_id, m.username, m.age, t.id, t.name"
+          + " from member m left join team t on m.team_id = t.id";
+  private static final String DELETE_ALL = "delete from member_team_view";
+  private static final String DELETE_MEMBERS = "delete from member_team_view where member_id in ";
+  private static final String INSERT_MEMBERS = INSERT_ROWS + " where m.member_id in ";
+  private static final String LOCK_ALL_TEAMS = "select t.id from team t order by t.id for update";
+  private static final String LOCK_MEMBER_TEAMS =
+      "select t.id from team t"
+          + " where t.id in (select m.team_id from member m where m.member_id in ";
+  private static final String LOCK_MEMBER_TEAMS_SUFFIX = ") order by t.id for update";
+  private static final String RENAME_TEAMS =
+      "update member_team_view set team_name ="
+          + " (select t.name from team t where t.id = member_team_view.team_id)"
+          + " where team_id in ";
+
+  private final MemberTeamViewProperties properties;
+  private final TableChangeTracker tableChangeTracker;
+  private final EntityChangeTracker entityChangeTracker;
+  private final JdbcTemplate jdbcTemplate;
+  private final AtomicLong generation = new AtomicLong();
+  private volatile long builtGeneration = -1;
+
+  public MemberTeamViewMaintainer(
+      MemberTeamViewProperties properties,
+      TableChangeTracker tableChangeTracker,
+      EntityChangeTracker entityChangeTracker,
+      JdbcTemplate jdbcTemplate) {
+    this.properties = properties;
+    this.tableChangeTracker = tableChangeTracker;
+    this.entityChangeTracker = entityChangeTracker;
+    this.jdbcTemplate = jdbcTemplate;
+    tableChangeTracker.addListener(this);
+    entityChangeTracker.addListener(this);
+  }
+
+  /** 회원 검색을 member_team_view 에서 읽어도 되면 true */
+  public boolean isReadable() {
+    return properties.isEnabled()
+        && builtGeneration == generation.get()
+        && !tableChangeTracker.isAnyWrittenInCurrentTransaction(MEMBER_TABLE, TEAM_TABLE);
+  }
+
+  /** 전체를 한 트랜잭션에서 다시 만든다. 트랜잭션 밖에서 호출한다 */
+  public void rebuild() {
+    long generationBefore = generation.get();
+    long start = System.nanoTime();
+    int rows =
+        jdbcTemplate.execute(
+            (ConnectionCallback<Integer>)
+                connection -> {
+                  boolean autoCommit = connection.getAutoCommit();
+                  connection.setAutoCommit(false);
+                  try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate(DELETE_ALL);
+                    int inserted = statement.executeUpdate(INSERT_ROWS);
+                    connection.commit();
+                    return inserted;
+                  } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                  } finally {
+                    connection.setAutoCommit(autoCommit);
+                  }
+                });
+    // 다시 만드는 동안 반영하지 못한 쓰기가 있었으면 계속 읽지 않는다
+    builtGeneration = generationBefore;
+    log.info(
+        "member_team_view rebuilt: {} rows in {}ms", rows, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuildOnStartup() {
+    if (properties.isEnabled() && builtGeneration != generation.get()) {
+      rebuild();
+    }
+  }
+
+  @Override
+  public void onTableChanged(String table) {}
+
+  /** JDBC 로 직접 커밋한 쓰기 */
+  @Override
+  public void onTablesCommitted(Set<String> tables) {
+    if (!tables.contains(MEMBER_TABLE) && !tables.contains(TEAM_TABLE)) {
+      return;
+    }
+    markStale();
+    if (properties.isEnabled()) {
+      rebuild();
+    }
+  }
+
+  @Override
+  public void onWriteStatement(String table, String sql) {
+    if (!MEMBER_TABLE.equals(table) && !TEAM_TABLE.equals(table)) {
+      return;
+    }
+    if (entityChangeTracker.isEntityStatement(sql)) {
+      // 엔티티 이벤트로 반영된다
+      return;
+    }
+
+    Pending pending = entityChangeTracker.pending(this);
+    if (pending != null) {
+      pending.rebuildAll = true;
+    } else {
+      markStale();
+    }
+  }
+
+  @Override
+  public Collection<Class<?>> getEntityClasses() {
+    return ENTITY_CLASSES;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  @Override
+  public Pending newPending() {
+    return new Pending();
+  }
+
+  /** 꺼져 있으면 pending 이 null 이다. 반영하지 못했으므로 다시 만들기 전까지 읽지 않는다 */
+  @Override
+  public void entityChanged(EntityChange change, Pending pending) {
+    if (pending == null) {
+      markStale();
+    } else if (change.getEntity() instanceof Member) {
+      pending.memberIds.add((Long) change.getId());
+    } else {
+      pending.teamIds.add((Long) change.getId());
+    }
+  }
+
+  @Override
+  public void beforeCompletion(Pending pending, SessionImplementor session) {
+    if (!pending.isEmpty()) {
+      session.doWork(connection -> apply(connection, pending));
+    }
+  }
+
+  private void markStale() {
+    generation.incrementAndGet();
+  }
+
+  /** 팀 행을 잠가 두므로 팀 이름을 바꾸는 트랜잭션과 그 팀으로 회원을 옮기는 트랜잭션은 차례로 반영된다. 먼저 커밋한 쪽의 결과를 나중 쪽이 읽는다. */
+  private void apply(Connection connection, Pending pending) throws SQLException {
+    if (pending.rebuildAll) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(LOCK_ALL_TEAMS);
+        statement.executeUpdate(DELETE_ALL);
+        statement.executeUpdate(INSERT_ROWS);
+      }
+      return;
+    }
+
+    executeInChunks(connection, LOCK_MEMBER_TEAMS, pending.memberIds, LOCK_MEMBER_TEAMS_SUFFIX);
+    executeInChunks(connection, RENAME_TEAMS, pending.teamIds);
+    executeInChunks(connection, DELETE_MEMBERS, pending.memberIds);
+    executeInChunks(connection, INSERT_MEMBERS, pending.memberIds);
+  }
+
+  private void executeInChunks(Connection connection, String sqlPrefix, Collection<Long> ids)
+      throws SQLException {
+    executeInChunks(connection, sqlPrefix, ids, "");
+  }
+
+  private void executeInChunks(
+      Connection connection, String sqlPrefix, Collection<Long> ids, String sqlSuffix)
+      throws SQLException {
+    List<Long> list = new ArrayList<>(ids);
+    int chunkSize = Math.max(1, properties.getChunkSize());
+    String fullChunkSql = null;
+    for (int from = 0; from < list.size(); from += chunkSize) {
+      int size = Math.min(chunkSize, list.size() - from);
+      String sql;
+      if (size == chunkSize) {
+        if (fullChunkSql == null) {
+          fullChunkSql = sqlPrefix + placeholders(chunkSize) + sqlSuffix;
+        }
+        sql = fullChunkSql;
+      } else {
+        sql = sqlPrefix + placeholders(size) + sqlSuffix;
+      }
+
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        for (int i = 0; i < size; i++) {
+          statement.setLong(i + 1, list.get(from + i));
+        }
+        statement.execute();
+      }
+    }
+  }
+
+  private static String placeholders(int count) {
+    StringBuilder sb = new StringBuilder(count * 2 + 1).append('(');
+    for (int i = 0; i < count; i++) {
+      sb.append(i == 0 ? "?" : ",?");
+    }
+    return sb.append(')').toString();
+  }
+
+  /** 한 세션(트랜잭션)에서 바뀐 것 */
+  static class Pending {
+    private final Set<Long> memberIds = new LinkedHashSet<>();
+    private final Set<Long> teamIds = new LinkedHashSet<>();
+    private boolean rebuildAll;
+
+    private boolean isEmpty() {
+      return !rebuildAll && memberIds.isEmpty() && teamIds.isEmpty();
+    }
+  }
+}
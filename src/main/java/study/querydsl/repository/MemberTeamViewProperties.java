@@ -0,0 +1,19 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.member-team-view")
+public class MemberTeamViewProperties {
+
+  /** member_team_view 를 유지하고 회원 검색을 join 없이 이 테이블에서 읽는다 */
+  private boolean enabled = false;
+
+  /** 바뀐 회원/팀을 반영할 때 한 SQL 의 in 목록에 넣을 식별자 수 */
+  private int chunkSize = 1000;
+}
@@ -0,0 +1,80 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.Map;
+
+import static study.querydsl.entity.QMemberTeamView.memberTeamView;
+
+/** member_team_view 에서 join 없이 회원 검색 쿼리를 만든다. 읽기 전에 {@link #isReadable()} 을 확인한다. */
+@Component
+public class MemberTeamViewSearch {
+
+  /** MemberTeamDto 속성 이름별 정렬 경로 */
+  static final Map<String, ComparableExpressionBase<?>> SORT_COLUMNS =
+      Map.of(
+          MemberTeamSort.MEMBER_ID,
+          memberTeamView.memberId,
+          "username",
+          memberTeamView.username,
+          "age",
+          memberTeamView.age,
+          "teamId",
+          memberTeamView.teamId,
+          "teamName",
+          memberTeamView.teamName);
+
+  private final JPAQueryFactory queryFactory;
+  private final MemberTeamViewMaintainer maintainer;
+
+  public MemberTeamViewSearch(JPAQueryFactory queryFactory, MemberTeamViewMaintainer maintainer) {
+    this.queryFactory = queryFactory;
+    this.maintainer = maintainer;
+  }
+
+  public boolean isReadable() {
+    return maintainer.isReadable();
+  }
+
+  public JPAQuery<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
+    return queryFactory
+        .select(
+            new QMemberTeamDto(
+                memberTeamView.memberId,
+                memberTeamView.username,
+                memberTeamView.age,
+                memberTeamView.teamId,
+                memberTeamView.teamName))
+        .from(memberTeamView)
+        .where(
+            usernameEq(condition.getUsername()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()));
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? memberTeamView.age.loe(ageLoe) : null;
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? memberTeamView.age.goe(ageGoe) : null;
+  }
+
+  private Predicate teamNameEq(String teamName) {
+    return StringUtils.hasText(teamName) ? memberTeamView.teamName.eq(teamName) : null;
+  }
+
+  private Predicate usernameEq(String username) {
+    return StringUtils.hasText(username) ? memberTeamView.username.eq(username) : null;
+  }
+}
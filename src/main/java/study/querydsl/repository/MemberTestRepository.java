@@ -5,11 +5,14 @@ import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.support.FetchPlan;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
 
 import java.util.List;
@@ -25,27 +28,46 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
   }
 
   public List<Member> basicSelect() {
-    return select(member).from(member).fetch();
+    return readOnly(() -> select(member).from(member).fetch());
   }
 
   public List<Member> basicSelectFrom() {
-    return selectFrom(member).fetch();
+    return readOnly(() -> selectFrom(member).fetch());
+  }
+
+  public List<Member> basicSelectFrom(FetchPlan fetchPlan) {
+    return readOnly(() -> selectFrom(member, fetchPlan).fetch());
   }
 
   public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
+    return searchPageByApplyPage(condition, pageable, FetchPlan.NONE);
+  }
+
+  /**
+   * offset/limit 을 그대로 걸므로 to-one fetch plan 만 받는다. 컬렉션 fetch 는 {@link
+   * #applyMyPagination(MemberSearchCondition, Pageable, FetchPlan)} 으로 한다
+   */
+  public Page<Member> searchPageByApplyPage(
+      MemberSearchCondition condition, Pageable pageable, FetchPlan fetchPlan) {
+    Assert.isTrue(!fetchPlan.fetchesCollection(), "컬렉션 fetch join 은 offset/limit 을 메모리에서 적용한다");
     JPAQuery<Member> jpaQuery =
-        selectFrom(member)
-            .leftJoin(member.team, team)
+        fetchPlan
+            .applyTo(selectFrom(member).leftJoin(member.team, team))
             .where(
                 usernameEq(condition.getUsername()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()));
 
-    // QuerydslRepositorySupport 방식
-    List<Member> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
+    // count 쿼리는 페이징/정렬 적용 전에 뽑는다. 사용하지 않는 team left join 은 빠진다
+    JPAQuery<?> countQuery = countQueryOf(jpaQuery).apply(getQueryFactory());
 
-    return PageableExecutionUtils.getPage(content, pageable, jpaQuery::fetchCount);
+    // QuerydslRepositorySupport 방식
+    return readOnly(
+        () -> {
+          List<Member> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
+          return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        });
   }
 
   public Page<Member> applyMyPagination(MemberSearchCondition condition, Pageable pageable) {
@@ -62,6 +84,22 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                     ageLoe(condition.getAgeLoe())));
   }
 
+  public Page<Member> applyMyPagination(
+      MemberSearchCondition condition, Pageable pageable, FetchPlan fetchPlan) {
+    return applyPagination(
+        pageable,
+        fetchPlan,
+        query ->
+            query
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(
+                    usernameEq(condition.getUsername()),
+                    teamNameEq(condition.getTeamName()),
+                    ageGoe(condition.getAgeGoe()),
+                    ageLoe(condition.getAgeLoe())));
+  }
+
   public Page<Member> applyMyPagination2(MemberSearchCondition condition, Pageable pageable) {
     return applyPagination(
         pageable,
@@ -86,6 +124,35 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                     ageLoe(condition.getAgeLoe())));
   }
 
+  public Page<Member> applyMyDeferredPagination(
+      MemberSearchCondition condition, Pageable pageable) {
+    return applyDeferredPagination(
+        pageable,
+        query ->
+            query
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(
+                    usernameEq(condition.getUsername()),
+                    teamNameEq(condition.getTeamName()),
+                    ageGoe(condition.getAgeGoe()),
+                    ageLoe(condition.getAgeLoe())));
+  }
+
+  public Slice<Member> applyMySlice(MemberSearchCondition condition, Pageable pageable) {
+    return applySlicePagination(
+        pageable,
+        query ->
+            query
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(
+                    usernameEq(condition.getUsername()),
+                    teamNameEq(condition.getTeamName()),
+                    ageGoe(condition.getAgeGoe()),
+                    ageLoe(condition.getAgeLoe())));
+  }
+
   private BooleanExpression ageLoe(Integer ageLoe) {
     return ageLoe != null ? member.age.loe(ageLoe) : null;
   }
@@ -0,0 +1,19 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.team-cache")
+public class TeamCacheProperties {
+
+  /** 팀 이름 조건을 팀 식별자 조건으로 바꾼다 */
+  private boolean dictionaryEnabled = true;
+
+  /** 사전에 담아 둘 팀 이름 수 */
+  private long maximumSize = 10_000;
+}
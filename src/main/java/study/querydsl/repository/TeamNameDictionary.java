@@ -0,0 +1,114 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathExtractor;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.repository.support.TableChangeListener;
+import study.querydsl.repository.support.TableChangeTracker;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀 이름 → 팀 식별자 사전.
+ *
+ * <p>회원 검색의 팀 이름 조건(team.name = ?)을 member.team.id = ? 로 바꿔서 team 을 join 하지 않아도 되게 한다. 팀 이름은 유일하지
+ * 않으므로 같은 이름의 팀이 여럿이면 in 조건이 된다. team 테이블에 쓰기가 감지되면 전부 비우고, 현재 트랜잭션에서 team 에 쓴 적이 있으면 사전을 쓰지 않는다.
+ *
+ * <p>hit/miss/eviction 은 cache.* 메트릭(cache=teamNameDictionary)으로 나간다.
+ */
+@Component
+public class TeamNameDictionary implements TableChangeListener {
+
+  static final String CACHE_NAME = "teamNameDictionary";
+  private static final String TEAM_TABLE = "team";
+
+  private final JPAQueryFactory queryFactory;
+  private final TableChangeTracker tableChangeTracker;
+  private final TeamCacheProperties properties;
+  private final Cache<String, List<Long>> cache;
+  private final AtomicLong generation = new AtomicLong();
+
+  public TeamNameDictionary(
+      JPAQueryFactory queryFactory,
+      TableChangeTracker tableChangeTracker,
+      TeamCacheProperties properties,
+      MeterRegistry meterRegistry) {
+    this.queryFactory = queryFactory;
+    this.tableChangeTracker = tableChangeTracker;
+    this.properties = properties;
+    this.cache =
+        Caffeine.newBuilder().maximumSize(properties.getMaximumSize()).recordStats().build();
+    tableChangeTracker.addListener(this);
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+  }
+
+  /**
+   * member 검색용 팀 이름 조건. 사전을 쓸 수 있으면 member.team.id 조건, 아니면 team 별칭에 대한 이름 조건이다.
+   *
+   * @see #joinsTeam(Predicate)
+   */
+  public Predicate teamNameEq(String teamName) {
+    if (!StringUtils.hasText(teamName)) {
+      return null;
+    }
+    if (!properties.isDictionaryEnabled()
+        || tableChangeTracker.isWrittenInCurrentTransaction(TEAM_TABLE)) {
+      return team.name.eq(teamName);
+    }
+
+    List<Long> teamIds = teamIds(teamName);
+    if (teamIds.isEmpty()) {
+      return Expressions.FALSE.isTrue();
+    }
+    return teamIds.size() == 1 ? member.team.id.eq(teamIds.get(0)) : member.team.id.in(teamIds);
+  }
+
+  /** {@link #teamNameEq} 가 돌려준 조건이 team 별칭을 참조해서 join 이 필요하면 true */
+  public static boolean joinsTeam(Predicate teamNameEq) {
+    if (teamNameEq == null) {
+      return false;
+    }
+    Path<?> path = teamNameEq.accept(PathExtractor.DEFAULT, null);
+    return path != null && path.getRoot().equals(team);
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  @Override
+  public void onTableChanged(String table) {
+    if (TEAM_TABLE.equals(table)) {
+      invalidateAll();
+    }
+  }
+
+  private List<Long> teamIds(String teamName) {
+    List<Long> cached = cache.getIfPresent(teamName);
+    if (cached != null) {
+      return cached;
+    }
+
+    // 읽는 동안 team 이 바뀌었으면 옛 값일 수 있으므로 사전에 넣지 않는다
+    long generationBefore = generation.get();
+    List<Long> teamIds =
+        List.copyOf(queryFactory.select(team.id).from(team).where(team.name.eq(teamName)).fetch());
+    if (generation.get() == generationBefore) {
+      cache.put(teamName, teamIds);
+    }
+    return teamIds;
+  }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.FetchPlan;
+import study.querydsl.repository.support.Querydsl4RepositorySupport;
+
+import static study.querydsl.entity.QTeam.team;
+
+@Repository
+public class TeamTestRepository extends Querydsl4RepositorySupport {
+
+  public TeamTestRepository() {
+    super(Team.class);
+  }
+
+  public Page<Team> searchPage(String name, Pageable pageable, FetchPlan fetchPlan) {
+    return applyPagination(
+        pageable,
+        fetchPlan,
+        query ->
+            query
+                .selectFrom(team)
+                .where(StringUtils.hasText(name) ? team.name.startsWith(name) : null));
+  }
+}
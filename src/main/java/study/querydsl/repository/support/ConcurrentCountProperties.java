@@ -0,0 +1,26 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.pagination.concurrent-count")
+public class ConcurrentCountProperties {
+
+  /** count 쿼리를 별도 EntityManager 에서 동시에 실행할지 여부 */
+  private boolean enabled = false;
+
+  private int poolSize = 4;
+
+  /** 대기열이 가득 차면 호출 스레드에서 바로 count 를 실행한다 */
+  private int queueCapacity = 32;
+
+  /** 이 시간 안에 끝나지 않으면 취소하고, 다시 세지 않고 offset + 컨텐츠 수를 하한값으로 쓴다 */
+  private Duration timeout = Duration.ofSeconds(2);
+}
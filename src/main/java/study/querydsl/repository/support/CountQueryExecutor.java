@@ -0,0 +1,192 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.FlushMode;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 페이징 count 쿼리를 컨텐츠 쿼리와 동시에 실행한다.
+ *
+ * <p>count 는 전용 읽기 전용 EntityManager(커넥션)에서 실행되므로 커밋된 데이터만 보인다. 그래서 현재 스레드에 읽기/쓰기 트랜잭션이 열려 있으면 자기가 쓴
+ * 데이터를 놓치지 않도록 호출 스레드에서 그대로 실행한다. 기능이 꺼져 있거나 대기열이 가득 찬 경우도 마찬가지다.
+ *
+ * <p>count 가 필요 없어지거나 timeout 이 지나면 실행 중인 JDBC 문장을 {@link java.sql.Statement#cancel()} 로 취소한다. 아직
+ * 시작하지 않았으면 실행하지 않는다. 결과는 querydsl.pagination.concurrent-count(outcome=completed|cancelled|failed)
+ * 메트릭으로 남는다.
+ */
+@Slf4j
+@Component
+public class CountQueryExecutor implements DisposableBean {
+
+  private static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+  private static final String METRIC_NAME = "querydsl.pagination.concurrent-count";
+
+  private final EntityManagerFactory entityManagerFactory;
+  private final ConcurrentCountProperties properties;
+  private final ThreadPoolExecutor executor;
+  private final Counter completed;
+  private final Counter cancelled;
+  private final Counter failed;
+
+  public CountQueryExecutor(
+      EntityManagerFactory entityManagerFactory,
+      ConcurrentCountProperties properties,
+      MeterRegistry meterRegistry) {
+    this.entityManagerFactory = entityManagerFactory;
+    this.properties = properties;
+    this.completed = counter(meterRegistry, "completed");
+    this.cancelled = counter(meterRegistry, "cancelled");
+    this.failed = counter(meterRegistry, "failed");
+    this.executor =
+        new ThreadPoolExecutor(
+            properties.getPoolSize(),
+            properties.getPoolSize(),
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+            new CustomizableThreadFactory("count-query-"));
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * count 쿼리를 시작한다.
+   *
+   * @param countQuery 주어진 JPAQueryFactory 로 count 쿼리를 만드는 함수. 워커 스레드와 호출 스레드 양쪽에서 호출될 수 있다.
+   * @param callerQueryFactory 폴백 시 사용할 호출 스레드의 JPAQueryFactory
+   */
+  public PendingCount submit(
+      Function<JPAQueryFactory, JPAQuery<?>> countQuery, JPAQueryFactory callerQueryFactory) {
+    PendingCount inline =
+        PendingCount.inline(() -> countQuery.apply(callerQueryFactory).fetchCount());
+    if (!properties.isEnabled() || isReadWriteTransactionActive()) {
+      return inline;
+    }
+
+    CountTask task = new CountTask(countQuery);
+    try {
+      Future<Long> future = executor.submit(task);
+      return PendingCount.concurrent(future, properties.getTimeout(), task::cancel);
+    } catch (RejectedExecutionException e) {
+      return inline;
+    }
+  }
+
+  private boolean isReadWriteTransactionActive() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder(METRIC_NAME).tag("outcome", outcome).register(meterRegistry);
+  }
+
+  /** 전용 읽기 전용 EntityManager 에서 count 한다. 다른 스레드에서 {@link #cancel()} 할 수 있다 */
+  private class CountTask implements Callable<Long> {
+
+    private final Function<JPAQueryFactory, JPAQuery<?>> countQuery;
+    private volatile SessionImplementor session;
+    private volatile boolean cancelRequested;
+
+    private CountTask(Function<JPAQueryFactory, JPAQuery<?>> countQuery) {
+      this.countQuery = countQuery;
+    }
+
+    @Override
+    public Long call() {
+      EntityManager em = entityManagerFactory.createEntityManager();
+      EntityTransaction tx = em.getTransaction();
+      try {
+        SessionImplementor current = em.unwrap(SessionImplementor.class);
+        current.setDefaultReadOnly(true);
+        current.setHibernateFlushMode(FlushMode.MANUAL);
+        current.addEventListeners(new CancelCheck());
+        session = current;
+
+        tx.begin();
+        current.doWork(connection -> connection.setReadOnly(true));
+        JPAQuery<?> query = countQuery.apply(new JPAQueryFactory(em));
+        // Hibernate 는 Integer(ms) 만 받는다
+        query.setHint(
+            QUERY_TIMEOUT_HINT,
+            (int) Math.min(Integer.MAX_VALUE, properties.getTimeout().toMillis()));
+        checkCancelled();
+        long count = query.fetchCount();
+        completed.increment();
+        return count;
+      } catch (RuntimeException e) {
+        if (cancelRequested) {
+          cancelled.increment();
+        } else {
+          failed.increment();
+        }
+        throw e;
+      } finally {
+        session = null;
+        if (tx.isActive()) {
+          tx.rollback();
+        }
+        em.close();
+      }
+    }
+
+    private void checkCancelled() {
+      if (cancelRequested) {
+        throw new CancellationException("count query cancelled before execution");
+      }
+    }
+
+    private void cancel() {
+      cancelRequested = true;
+      SessionImplementor current = session;
+      if (current == null) {
+        return;
+      }
+      try {
+        current.getJdbcCoordinator().cancelLastQuery();
+      } catch (RuntimeException e) {
+        // 이미 끝났거나 닫힌 문장
+        log.debug("could not cancel count query", e);
+      }
+    }
+
+    /**
+     * cancelLastQuery 는 이미 준비된 문장만 취소하므로 JPQL 번역이나 문장 준비 중에 들어온 취소는 놓친다. JDBC 실행 직전에 한 번 더 확인한다.
+     * 확인과 실행 사이의 짧은 틈은 query timeout 이 막는다
+     */
+    private class CancelCheck extends BaseSessionEventListener {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public void jdbcExecuteStatementStart() {
+        checkCancelled();
+      }
+    }
+  }
+}
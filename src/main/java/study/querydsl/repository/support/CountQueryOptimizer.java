@@ -0,0 +1,265 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 컨텐츠 쿼리로부터 최소한의 count 쿼리를 만든다.
+ *
+ * <ul>
+ *   <li>ORDER BY, offset/limit, 프로젝션을 버리고 루트 엔티티의 식별자를 센다. (count(member.id))
+ *   <li>fetch join 은 일반 join 으로 바꾼다.
+ *   <li>where/having/group by 나 다른 join 에서 참조하지 않는 단일 값 연관관계(to-one) left join 은 제거한다. left join 된
+ *       to-one 연관관계는 행 수를 바꾸지 않기 때문이다. 컬렉션 left join 과 연관관계 없는 join 은 행 수가 바뀔 수 있으므로 남겨 둔다.
+ * </ul>
+ */
+@Component
+public class CountQueryOptimizer {
+
+  private final Metamodel metamodel;
+
+  public CountQueryOptimizer(EntityManagerFactory entityManagerFactory) {
+    this.metamodel = entityManagerFactory.getMetamodel();
+  }
+
+  /**
+   * 컨텐츠 쿼리의 현재 상태로 count 쿼리를 만드는 함수를 돌려준다. 이후 컨텐츠 쿼리에 페이징/정렬을 적용해도 count 쿼리에는 영향이 없다.
+   *
+   * <p>반환된 함수는 주어진 JPAQueryFactory 의 EntityManager 로 쿼리를 만들므로 {@link CountQueryExecutor} 에 그대로 넘길 수
+   * 있다.
+   */
+  public Function<JPAQueryFactory, JPAQuery<?>> derive(JPAQuery<?> contentQuery) {
+    return derive(contentQuery.getMetadata(), false);
+  }
+
+  /**
+   * 컨텐츠 쿼리와 같은 조건, 같은 정렬로 루트 엔티티의 식별자만 읽는 쿼리를 만드는 함수. offset/limit 은 버린다. 정렬에서 참조하는 join 은 남기고 나머지는
+   * count 쿼리와 같은 규칙으로 제거한다.
+   */
+  public Function<JPAQueryFactory, JPAQuery<?>> deriveIdQuery(JPAQuery<?> contentQuery) {
+    return derive(contentQuery.getMetadata(), true);
+  }
+
+  /** 컨텐츠 쿼리 루트 엔티티의 식별자 경로. {@link #deriveIdQuery} 가 읽는 값이다 */
+  public Expression<?> identifierOf(JPAQuery<?> contentQuery) {
+    return identifierOf(contentQuery.getMetadata().getJoins().get(0).getTarget());
+  }
+
+  private Function<JPAQueryFactory, JPAQuery<?>> derive(QueryMetadata source, boolean keepOrder) {
+    List<JoinExpression> joins = requiredJoins(source, keepOrder);
+    Expression<?> countTarget = identifierOf(joins.get(0).getTarget());
+    List<OrderSpecifier<?>> orderBy =
+        keepOrder ? new ArrayList<>(source.getOrderBy()) : Collections.emptyList();
+
+    Predicate where = source.getWhere();
+    List<Expression<?>> groupBy = new ArrayList<>(source.getGroupBy());
+    Predicate having = source.getHaving();
+    boolean distinct = source.isDistinct();
+    Map<ParamExpression<?>, Object> params = source.getParams();
+
+    return queryFactory -> {
+      JPAQuery<?> countQuery = queryFactory.query();
+      QueryMetadata target = countQuery.getMetadata();
+      for (JoinExpression join : joins) {
+        target.addJoin(join.getType(), join.getTarget());
+        if (join.getCondition() != null) {
+          target.addJoinCondition(join.getCondition());
+        }
+        for (JoinFlag flag : join.getFlags()) {
+          if (!flag.equals(JPAQueryMixin.FETCH)
+              && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+            target.addJoinFlag(flag);
+          }
+        }
+      }
+      if (where != null) {
+        target.addWhere(where);
+      }
+      groupBy.forEach(target::addGroupBy);
+      if (having != null) {
+        target.addHaving(having);
+      }
+      orderBy.forEach(target::addOrderBy);
+      target.setDistinct(distinct);
+      target.setProjection(countTarget);
+      params.forEach((param, value) -> setParam(target, param, value));
+      return countQuery;
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void setParam(QueryMetadata metadata, ParamExpression<T> param, Object value) {
+    metadata.setParam(param, (T) value);
+  }
+
+  private List<JoinExpression> requiredJoins(QueryMetadata source, boolean keepOrder) {
+    List<JoinExpression> joins = source.getJoins();
+
+    Set<Expression<?>> referenced = new HashSet<>();
+    collectRoots(source.getWhere(), referenced);
+    collectRoots(source.getHaving(), referenced);
+    source.getGroupBy().forEach(expr -> collectRoots(expr, referenced));
+    if (keepOrder) {
+      source.getOrderBy().forEach(order -> collectRoots(order.getTarget(), referenced));
+    }
+
+    // 뒤쪽 join 이 앞쪽 별칭을 참조할 수 있으므로 뒤에서부터 판단한다
+    List<JoinExpression> required = new ArrayList<>();
+    for (int i = joins.size() - 1; i >= 0; i--) {
+      JoinExpression join = joins.get(i);
+      if (i > 0 && isRemovable(join, referenced)) {
+        continue;
+      }
+      required.add(join);
+      collectRoots(join.getTarget(), referenced);
+      collectRoots(join.getCondition(), referenced);
+    }
+    Collections.reverse(required);
+    return required;
+  }
+
+  private boolean isRemovable(JoinExpression join, Set<Expression<?>> referenced) {
+    if (join.getType() != JoinType.LEFTJOIN || !(join.getTarget() instanceof Operation)) {
+      return false;
+    }
+
+    Operation<?> alias = (Operation<?>) join.getTarget();
+    if (alias.getOperator() != Ops.ALIAS || !(alias.getArg(0) instanceof Path)) {
+      return false;
+    }
+
+    Path<?> association = (Path<?>) alias.getArg(0);
+    return !referenced.contains(alias.getArg(1)) && isSingleValued(association);
+  }
+
+  private boolean isSingleValued(Path<?> association) {
+    Path<?> parent = association.getMetadata().getParent();
+    if (parent == null) {
+      return false;
+    }
+
+    try {
+      ManagedType<?> owner = metamodel.managedType(parent.getType());
+      Attribute<?, ?> attribute = owner.getAttribute(association.getMetadata().getName());
+      return !attribute.isCollection();
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private Expression<?> identifierOf(Expression<?> from) {
+    if (!(from instanceof EntityPath)) {
+      return from;
+    }
+
+    EntityPath<?> root = (EntityPath<?>) from;
+    try {
+      EntityType<?> entityType = metamodel.entity(root.getType());
+      for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+        if (attribute.isId()) {
+          return Expressions.path(attribute.getJavaType(), root, attribute.getName());
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      // 메타모델에 없는 타입이면 루트 별칭을 그대로 센다
+    }
+    return root;
+  }
+
+  private static void collectRoots(Expression<?> expr, Set<Expression<?>> roots) {
+    if (expr != null) {
+      expr.accept(RootCollector.INSTANCE, roots);
+    }
+  }
+
+  /** 표현식에서 참조하는 모든 경로의 루트(별칭)를 모은다. 서브쿼리 안쪽도 포함한다. */
+  private enum RootCollector implements Visitor<Void, Set<Expression<?>>> {
+    INSTANCE;
+
+    @Override
+    public Void visit(Constant<?> expr, Set<Expression<?>> roots) {
+      return null;
+    }
+
+    @Override
+    public Void visit(FactoryExpression<?> expr, Set<Expression<?>> roots) {
+      expr.getArgs().forEach(arg -> arg.accept(this, roots));
+      return null;
+    }
+
+    @Override
+    public Void visit(Operation<?> expr, Set<Expression<?>> roots) {
+      expr.getArgs().forEach(arg -> arg.accept(this, roots));
+      return null;
+    }
+
+    @Override
+    public Void visit(ParamExpression<?> expr, Set<Expression<?>> roots) {
+      return null;
+    }
+
+    @Override
+    public Void visit(Path<?> expr, Set<Expression<?>> roots) {
+      roots.add(expr.getRoot());
+      return null;
+    }
+
+    @Override
+    public Void visit(SubQueryExpression<?> expr, Set<Expression<?>> roots) {
+      QueryMetadata metadata = expr.getMetadata();
+      for (JoinExpression join : metadata.getJoins()) {
+        collectRoots(join.getTarget(), roots);
+        collectRoots(join.getCondition(), roots);
+      }
+      collectRoots(metadata.getWhere(), roots);
+      collectRoots(metadata.getHaving(), roots);
+      collectRoots(metadata.getProjection(), roots);
+      metadata.getGroupBy().forEach(groupBy -> collectRoots(groupBy, roots));
+      return null;
+    }
+
+    @Override
+    public Void visit(TemplateExpression<?> expr, Set<Expression<?>> roots) {
+      for (Object arg : expr.getArgs()) {
+        if (arg instanceof Expression) {
+          ((Expression<?>) arg).accept(this, roots);
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 지연 join(late row lookup) 페이징.
+ *
+ * <p>먼저 같은 조건, 같은 정렬로 루트 식별자만 offset/limit 해서 읽고, 그 식별자의 행만 컨텐츠 쿼리로 읽어 식별자 순서대로 맞춘다. 깊은 offset 에서
+ * 건너뛰는 행은 인덱스에서 식별자만 읽으므로 join 이나 프로젝션을 만들지 않는다. 식별자 쿼리는 {@link CountQueryOptimizer#deriveIdQuery}
+ * 로 만든다.
+ */
+public final class DeferredJoin {
+
+  private DeferredJoin() {}
+
+  /**
+   * 컨텐츠 쿼리의 한 페이지. 컨텐츠 쿼리에는 정렬까지만 적용해서 넘긴다.
+   *
+   * @param idOf 컨텐츠 쿼리 결과 한 건의 루트 식별자
+   */
+  public static <T> List<T> fetch(
+      JPAQuery<T> contentQuery,
+      Pageable pageable,
+      Function<? super T, ?> idOf,
+      CountQueryOptimizer countQueryOptimizer,
+      JPAQueryFactory queryFactory) {
+    return fetch(contentQuery, pageable, idOf, FetchPlan.NONE, countQueryOptimizer, queryFactory);
+  }
+
+  /** fetchPlan 은 식별자 쿼리를 만든 뒤 컨텐츠 쿼리에만 건다. 컬렉션 fetch 가 있어도 식별자 쿼리는 루트 행 단위로 페이징된다 */
+  public static <T> List<T> fetch(
+      JPAQuery<T> contentQuery,
+      Pageable pageable,
+      Function<? super T, ?> idOf,
+      FetchPlan fetchPlan,
+      CountQueryOptimizer countQueryOptimizer,
+      JPAQueryFactory queryFactory) {
+    JPAQuery<?> idQuery = countQueryOptimizer.deriveIdQuery(contentQuery).apply(queryFactory);
+    if (pageable.isPaged()) {
+      idQuery.offset(pageable.getOffset()).limit(pageable.getPageSize());
+    }
+    List<?> ids = idQuery.fetch();
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    // 순서는 아래에서 식별자 순서로 맞추므로 컨텐츠 쿼리에서는 정렬하지 않는다
+    Expression<?> id = countQueryOptimizer.identifierOf(contentQuery);
+    contentQuery.where(Expressions.booleanOperation(Ops.IN, id, Expressions.constant(ids)));
+    contentQuery.getMetadata().setModifiers(QueryModifiers.EMPTY);
+    contentQuery.getMetadata().clearOrderBy();
+    fetchPlan.applyTo(contentQuery);
+    List<T> rows = contentQuery.fetch();
+
+    Map<Object, List<T>> rowsById = new LinkedHashMap<>(rows.size() * 2);
+    for (T row : rows) {
+      rowsById.computeIfAbsent(idOf.apply(row), key -> new ArrayList<>(1)).add(row);
+    }
+    List<T> content = new ArrayList<>(rows.size());
+    for (Object rowId : ids) {
+      content.addAll(rowsById.getOrDefault(rowId, Collections.emptyList()));
+    }
+    return content;
+  }
+}
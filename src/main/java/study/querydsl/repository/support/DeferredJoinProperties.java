@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.pagination.deferred-join")
+public class DeferredJoinProperties {
+
+  /** offset 페이징을 식별자 페이징 + 식별자 조회로 나눠서 할지 여부 */
+  private boolean enabled = true;
+
+  /** offset 이 이 값 이상인 페이지만 나눈다. 앞쪽 페이지는 쿼리 한 번이 더 싸다 */
+  private long minOffset = 1000;
+
+  public boolean appliesTo(long offset) {
+    return enabled && offset >= minOffset;
+  }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import org.hibernate.persister.entity.EntityPersister;
+
+/** Hibernate 가 실행한 엔티티 insert/update/delete 하나. 바뀌기 전 값은 update 에만 있다. */
+public class EntityChange {
+
+  @Getter private final Object entity;
+  @Getter private final Object id;
+  @Getter private final boolean update;
+  private final Object[] oldState;
+  private final EntityPersister persister;
+
+  EntityChange(
+      Object entity, Object id, boolean update, Object[] oldState, EntityPersister persister) {
+    this.entity = entity;
+    this.id = id;
+    this.update = update;
+    this.oldState = oldState;
+    this.persister = persister;
+  }
+
+  public boolean hasOldState() {
+    return oldState != null;
+  }
+
+  /** update 인데 바뀌기 전 값을 모른다. 분리된 엔티티를 update 한 경우 등 */
+  public boolean isOldStateUnknown() {
+    return update && oldState == null;
+  }
+
+  /** 바뀌기 전 property 값. 바뀌기 전 값이 없으면 null */
+  public Object getOldValue(String property) {
+    if (oldState == null) {
+      return null;
+    }
+    return oldState[persister.getEntityMetamodel().getPropertyIndex(property)];
+  }
+}
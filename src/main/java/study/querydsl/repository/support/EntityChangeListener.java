@@ -0,0 +1,27 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.util.Collection;
+
+/** {@link EntityChangeTracker} 가 엔티티 변경을 세션(트랜잭션)마다 모아서 넘긴다. P 는 한 세션에서 모으는 변경이다. */
+public interface EntityChangeListener<P> {
+
+  /** 변경을 받을 엔티티 클래스 */
+  Collection<Class<?>> getEntityClasses();
+
+  /** false 면 변경을 모으지 않는다 */
+  boolean isEnabled();
+
+  /** 세션에서 처음 변경을 모을 때 만든다 */
+  P newPending();
+
+  /** 엔티티를 쓴 직후 실행 스레드에서 호출된다. 꺼져 있으면 pending 은 null 이다 */
+  void entityChanged(EntityChange change, P pending);
+
+  /** 커밋 직전, 마지막 flush 후에 같은 세션에서 호출된다. 같은 커넥션으로 쓸 수 있다 */
+  default void beforeCompletion(P pending, SessionImplementor session) {}
+
+  /** 트랜잭션이 끝난 뒤 호출된다. 롤백이어도 호출된다 */
+  default void afterCompletion(P pending, boolean success) {}
+}
@@ -0,0 +1,209 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 엔티티 insert/update/delete 를 Hibernate 이벤트로 받아 리스너마다 세션(트랜잭션) 단위로 모아 둔다. 리스너는 트랜잭션이 끝날 때 모은 변경을 한
+ * 번에 반영한다.
+ *
+ * <p>이벤트가 없는 벌크 쓰기는 {@link TableChangeTracker} 로 받는다. 리스너는 {@link #isEntityStatement} 로 이벤트가 있는 SQL
+ * 을 걸러 내고 나머지를 {@link #pending(EntityChangeListener)} 에 모은다.
+ */
+@Component
+public class EntityChangeTracker implements Integrator {
+
+  private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+  private final List<EntityChangeListener<?>> listeners = new CopyOnWriteArrayList<>();
+  private final Map<SharedSessionContractImplementor, Map<EntityChangeListener<?>, Object>>
+      pendingBySession = Collections.synchronizedMap(new WeakHashMap<>());
+  private volatile SessionFactoryImplementor sessionFactory;
+  private volatile Set<String> entityStatements;
+
+  public EntityChangeTracker(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+    this.entityManagerFactory = entityManagerFactory;
+  }
+
+  public void addListener(EntityChangeListener<?> listener) {
+    listeners.add(listener);
+  }
+
+  /** 현재 스프링 트랜잭션의 세션에서 listener 가 모으는 변경. 트랜잭션 밖이거나 꺼져 있으면 null */
+  public <P> P pending(EntityChangeListener<P> listener) {
+    return pending(listener, currentSession());
+  }
+
+  /** Hibernate 가 엔티티 단위로 실행하는 insert/update/delete 인지. 이런 쓰기는 이벤트로도 받는다 */
+  public boolean isEntityStatement(String sql) {
+    Set<String> statements = entityStatements;
+    if (statements == null) {
+      statements = new HashSet<>();
+      for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+        if (persister instanceof AbstractEntityPersister) {
+          AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+          statements.addAll(Arrays.asList(entityPersister.getSQLInsertStrings()));
+          statements.addAll(Arrays.asList(entityPersister.getSQLUpdateStrings()));
+          statements.addAll(Arrays.asList(entityPersister.getSQLLazyUpdateStrings()));
+          statements.addAll(Arrays.asList(entityPersister.getSQLDeleteStrings()));
+        }
+      }
+      statements.removeIf(Objects::isNull);
+      entityStatements = statements;
+    }
+    return statements.contains(sql);
+  }
+
+  @Override
+  public void integrate(
+      Metadata metadata,
+      SessionFactoryImplementor sessionFactory,
+      SessionFactoryServiceRegistry serviceRegistry) {
+    this.sessionFactory = sessionFactory;
+    EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+    PostWriteListener listener = new PostWriteListener();
+    registry.appendListeners(EventType.POST_INSERT, listener);
+    registry.appendListeners(EventType.POST_UPDATE, listener);
+    registry.appendListeners(EventType.POST_DELETE, listener);
+  }
+
+  @Override
+  public void disintegrate(
+      SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {}
+
+  private void entityChanged(EntityChange change, SessionImplementor session) {
+    for (EntityChangeListener<?> listener : listeners) {
+      entityChanged(listener, change, session);
+    }
+  }
+
+  private <P> void entityChanged(
+      EntityChangeListener<P> listener, EntityChange change, SessionImplementor session) {
+    for (Class<?> entityClass : listener.getEntityClasses()) {
+      if (entityClass.isInstance(change.getEntity())) {
+        listener.entityChanged(change, pending(listener, session));
+        return;
+      }
+    }
+  }
+
+  /** 세션에서 처음 모을 때 트랜잭션 완료 콜백을 건다 */
+  @SuppressWarnings("unchecked")
+  private <P> P pending(EntityChangeListener<P> listener, SessionImplementor session) {
+    if (session == null || !listener.isEnabled()) {
+      return null;
+    }
+    synchronized (pendingBySession) {
+      Map<EntityChangeListener<?>, Object> bySession =
+          pendingBySession.computeIfAbsent(session, key -> new IdentityHashMap<>());
+      P pending = (P) bySession.get(listener);
+      if (pending == null) {
+        P created = listener.newPending();
+        bySession.put(listener, created);
+        ActionQueue actionQueue = session.getActionQueue();
+        actionQueue.registerProcess(
+            (BeforeTransactionCompletionProcess)
+                completing -> listener.beforeCompletion(created, completing));
+        actionQueue.registerProcess(
+            (AfterTransactionCompletionProcess)
+                (success, completed) -> {
+                  remove(completed, listener);
+                  listener.afterCompletion(created, success);
+                });
+        pending = created;
+      }
+      return pending;
+    }
+  }
+
+  private void remove(SharedSessionContractImplementor session, EntityChangeListener<?> listener) {
+    synchronized (pendingBySession) {
+      Map<EntityChangeListener<?>, Object> bySession = pendingBySession.get(session);
+      if (bySession != null) {
+        bySession.remove(listener);
+        if (bySession.isEmpty()) {
+          pendingBySession.remove(session);
+        }
+      }
+    }
+  }
+
+  /** 스프링 트랜잭션에 묶인 세션. 벌크 쓰기 SQL 은 이 세션에서 실행된다 */
+  private SessionImplementor currentSession() {
+    EntityManagerHolder holder =
+        (EntityManagerHolder)
+            TransactionSynchronizationManager.getResource(entityManagerFactory.getObject());
+    return holder != null ? holder.getEntityManager().unwrap(SessionImplementor.class) : null;
+  }
+
+  private class PostWriteListener
+      implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+      entityChanged(
+          new EntityChange(event.getEntity(), event.getId(), false, null, event.getPersister()),
+          event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+      entityChanged(
+          new EntityChange(
+              event.getEntity(), event.getId(), true, event.getOldState(), event.getPersister()),
+          event.getSession());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+      entityChanged(
+          new EntityChange(event.getEntity(), event.getId(), false, null, event.getPersister()),
+          event.getSession());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+      return false;
+    }
+
+    @Deprecated
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+      return requiresPostCommitHandling(persister);
+    }
+  }
+}
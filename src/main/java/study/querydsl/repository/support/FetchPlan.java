@@ -0,0 +1,96 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 루트 엔티티와 함께 읽을 연관관계 목록. {@code FetchPlan.of(member.team)} 처럼 만들어서 쿼리에 건다.
+ *
+ * <p>연관관계마다 left join fetch 를 추가한다. 조건용으로 이미 join 한 연관관계는 그 join 을 fetch join 으로 바꾼다. 힌트가 아니라 쿼리
+ * 메타데이터에 들어가므로 어떤 실행 경로에서도 적용된다. 컬렉션을 fetch 하면 루트가 중복되지 않도록 distinct 를 건다. 컬렉션 fetch join 에
+ * offset/limit 을 걸면 Hibernate 가 전체를 읽어 메모리에서 페이징하므로(HHH000104), 페이징은 {@link DeferredJoin} 으로 식별자부터
+ * 한다.
+ */
+public final class FetchPlan {
+
+  public static final FetchPlan NONE = new FetchPlan(Collections.emptyList());
+
+  private final List<Path<?>> associations;
+
+  private FetchPlan(List<Path<?>> associations) {
+    this.associations = associations;
+  }
+
+  /** 루트 엔티티의 연관관계. member.team, team.members 처럼 루트 바로 아래 경로만 받는다 */
+  public static FetchPlan of(Path<?>... associations) {
+    for (Path<?> association : associations) {
+      Path<?> parent = association.getMetadata().getParent();
+      Assert.isTrue(
+          parent != null && parent.getMetadata().isRoot(),
+          "fetch plan 은 루트 엔티티의 연관관계만 받는다: " + association);
+    }
+    return new FetchPlan(Arrays.asList(associations));
+  }
+
+  public boolean fetchesCollection() {
+    return associations.stream().anyMatch(FetchPlan::isCollection);
+  }
+
+  /**
+   * 쿼리에 fetch join 을 추가한다. 이미 fetch join 된 연관관계는 건너뛴다. 마지막 join 이 같은 연관관계면(조건용 별칭 join 포함) 새로 join
+   * 하지 않고 그 join 에 fetch 를 붙인다. Querydsl 은 마지막 join 에만 flag 를 붙일 수 있으므로 조건용 join 바로 뒤에 건다.
+   *
+   * @throws IllegalStateException 같은 연관관계를 fetch 없이 join 한 뒤 다른 join 을 더 건 경우. join 이 두 번 생긴다
+   */
+  public <T> JPAQuery<T> applyTo(JPAQuery<T> query) {
+    QueryMetadata metadata = query.getMetadata();
+    for (Path<?> association : associations) {
+      List<JoinExpression> joins = metadata.getJoins();
+      int index = indexOfJoin(joins, association);
+      if (index < 0) {
+        metadata.addJoin(JoinType.LEFTJOIN, association);
+        metadata.addJoinFlag(JPAQueryMixin.FETCH);
+      } else if (!joins.get(index).hasFlag(JPAQueryMixin.FETCH)) {
+        Assert.state(index == joins.size() - 1, "fetch plan 은 " + association + " join 바로 뒤에 건다");
+        metadata.addJoinFlag(JPAQueryMixin.FETCH);
+      }
+    }
+    if (fetchesCollection()) {
+      metadata.setDistinct(true);
+    }
+    return query;
+  }
+
+  /** association 을 대상으로 하는 join 의 위치. 별칭 join 은 ALIAS(association, alias) 로 들어있다 */
+  private static int indexOfJoin(List<JoinExpression> joins, Path<?> association) {
+    for (int i = 0; i < joins.size(); i++) {
+      Expression<?> target = joins.get(i).getTarget();
+      if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+        target = ((Operation<?>) target).getArg(0);
+      }
+      if (target.equals(association)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isCollection(Path<?> association) {
+    Class<?> type = association.getType();
+    return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+  }
+}
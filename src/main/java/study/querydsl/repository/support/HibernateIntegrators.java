@@ -0,0 +1,30 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Integrator 빈을 모두 Hibernate 에 등록한다. hibernate.integrator_provider 는 하나만 둘 수 있으므로 각 Integrator 가 직접
+ * 등록하지 않는다.
+ */
+@Component
+public class HibernateIntegrators implements HibernatePropertiesCustomizer {
+
+  private static final String INTEGRATOR_PROVIDER = "hibernate.integrator_provider";
+
+  private final List<Integrator> integrators;
+
+  public HibernateIntegrators(List<Integrator> integrators) {
+    this.integrators = List.copyOf(integrators);
+  }
+
+  @Override
+  public void customize(Map<String, Object> hibernateProperties) {
+    hibernateProperties.put(INTEGRATOR_PROVIDER, (IntegratorProvider) () -> integrators);
+  }
+}
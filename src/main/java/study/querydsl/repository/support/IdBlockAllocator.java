@@ -0,0 +1,179 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * pooled-lo 시퀀스에서 식별자 block 을 받아 나눠 준다. Hibernate 를 거치지 않고 JDBC 로 insert 할 때 엔티티와 같은 시퀀스를 쓰기 위한
+ * 것이다.
+ *
+ * <p>pooled-lo 에서 시퀀스 값 v 는 [v, v + blockSize) 를 뜻하고 시퀀스 호출은 DB 가 원자적으로 처리하므로, 여러 스레드와 Hibernate 가
+ * 동시에 받아도 block 이 겹치지 않는다. 처음 block 을 요청받으면 다음 block 을 prefetchDepth 개까지 백그라운드에서 미리 받아 두므로, 동시에
+ * 요청하는 스레드가 prefetchDepth 개 이하면 시퀀스 왕복을 기다리지 않는다.
+ *
+ * <p>close 할 때 미리 받아 두고 쓰지 않은 block 은 버리지 않고 돌려 놓는다. 같은 DataSource, 같은 시퀀스로 다음에 만든 할당기가 시퀀스보다 먼저 작은
+ * block 부터 쓴다.
+ */
+public class IdBlockAllocator implements AutoCloseable {
+
+  private static final Map<DataSource, Map<String, Queue<Long>>> SPARE_BLOCKS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final DataSource dataSource;
+  private final String nextValueSql;
+  private final int blockSize;
+  private final int prefetchDepth;
+  private final Queue<Long> spareBlocks;
+  private final ExecutorService prefetcher;
+  private final Deque<Future<Long>> prefetched = new ArrayDeque<>();
+
+  private long next;
+  private long limit;
+
+  /**
+   * @param prefetchDepth 미리 받아 둘 block 수. 0 이면 요청할 때마다 시퀀스를 호출한다
+   */
+  public IdBlockAllocator(
+      DataSource dataSource, String nextValueSql, int blockSize, int prefetchDepth) {
+    this.dataSource = dataSource;
+    this.nextValueSql = nextValueSql;
+    this.blockSize = blockSize;
+    this.prefetchDepth = prefetchDepth;
+    this.spareBlocks =
+        SPARE_BLOCKS
+            .computeIfAbsent(dataSource, key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(nextValueSql, key -> new PriorityBlockingQueue<>());
+    this.prefetcher =
+        prefetchDepth > 0
+            ? Executors.newFixedThreadPool(
+                prefetchDepth, new CustomizableThreadFactory("id-prefetch-"))
+            : null;
+  }
+
+  /** entityClass 의 식별자 생성기와 같은 시퀀스, 같은 block 크기를 쓰고 block 을 하나 미리 받아 두는 할당기 */
+  public static IdBlockAllocator forEntity(
+      DataSource dataSource, SessionFactoryImplementor sessionFactory, Class<?> entityClass) {
+    return forEntity(dataSource, sessionFactory, entityClass, 1);
+  }
+
+  /**
+   * @param prefetchDepth 미리 받아 둘 block 수. 동시에 block 을 요청하는 스레드 수에 맞춘다
+   */
+  public static IdBlockAllocator forEntity(
+      DataSource dataSource,
+      SessionFactoryImplementor sessionFactory,
+      Class<?> entityClass,
+      int prefetchDepth) {
+    IdentifierGenerator generator =
+        sessionFactory.getMetamodel().entityPersister(entityClass).getIdentifierGenerator();
+    if (!(generator instanceof SequenceStyleGenerator)) {
+      throw new IllegalStateException(entityClass.getSimpleName() + " id is not sequence based");
+    }
+
+    SequenceStyleGenerator sequenceGenerator = (SequenceStyleGenerator) generator;
+    int blockSize = sequenceGenerator.getDatabaseStructure().getIncrementSize();
+    if (blockSize > 1 && !(sequenceGenerator.getOptimizer() instanceof PooledLoOptimizer)) {
+      throw new IllegalStateException(entityClass.getSimpleName() + " id is not pooled-lo");
+    }
+
+    String sequenceName =
+        sessionFactory
+            .getSqlStringGenerationContext()
+            .format(sequenceGenerator.getDatabaseStructure().getPhysicalName());
+    String nextValueSql =
+        sessionFactory.getJdbcServices().getDialect().getSequenceNextValString(sequenceName);
+    return new IdBlockAllocator(dataSource, nextValueSql, blockSize, prefetchDepth);
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /** 새 block 의 첫 식별자. [반환값, 반환값 + blockSize) 를 호출한 쪽이 혼자 쓴다 */
+  public long nextBlock() {
+    Future<Long> block;
+    synchronized (this) {
+      Long spare = spareBlocks.poll();
+      if (spare != null) {
+        return spare;
+      }
+      block = prefetched.poll();
+      while (prefetched.size() < prefetchDepth) {
+        prefetched.add(prefetcher.submit(this::fetchBlock));
+      }
+    }
+
+    // 미리 받은 block 을 기다리는 동안 다른 스레드는 다음 block 을 가져갈 수 있다
+    try {
+      return block != null ? block.get() : fetchBlock();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("failed to fetch id block", e.getCause());
+    } catch (SQLException e) {
+      throw new IllegalStateException("failed to fetch id block", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while fetching id block", e);
+    }
+  }
+
+  /** 식별자 하나. 여러 스레드가 나눠 쓰는 경우 */
+  public synchronized long next() {
+    if (next == limit) {
+      next = nextBlock();
+      limit = next + blockSize;
+    }
+    return next++;
+  }
+
+  /** 미리 받아 둔 block 은 받기를 기다려서 돌려 놓는다. next() 로 쓰다 남은 block 의 나머지는 Hibernate 처럼 버린다 */
+  @Override
+  public synchronized void close() {
+    if (prefetcher == null) {
+      return;
+    }
+    prefetcher.shutdown();
+    try {
+      for (Future<Long> block : prefetched) {
+        try {
+          spareBlocks.add(block.get());
+        } catch (ExecutionException e) {
+          // 받지 못한 block 은 돌려 놓을 것도 없다
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      prefetcher.shutdownNow();
+    }
+    prefetched.clear();
+  }
+
+  private long fetchBlock() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery(nextValueSql)) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+}
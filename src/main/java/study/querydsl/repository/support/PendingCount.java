@@ -0,0 +1,83 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * 실행 중이거나 아직 실행하지 않은 count 결과.
+ *
+ * <p>{@link TotalCountPage#of} 가 전체 개수를 추론할 수 있으면 {@link #get} 은 호출되지 않는다. 이 경우 {@link #close()} 가
+ * 실행 중인 count 문장을 취소한다.
+ */
+@Slf4j
+public class PendingCount implements AutoCloseable {
+
+  private final Future<Long> future;
+  private final Duration timeout;
+  private final Runnable cancel;
+  private final LongSupplier inline;
+
+  private PendingCount(
+      Future<Long> future, Duration timeout, Runnable cancel, LongSupplier inline) {
+    this.future = future;
+    this.timeout = timeout;
+    this.cancel = cancel;
+    this.inline = inline;
+  }
+
+  /**
+   * @param cancel 실행 중인 count 문장을 취소한다. 아직 시작하지 않았으면 실행하지 않게 한다
+   */
+  static PendingCount concurrent(Future<Long> future, Duration timeout, Runnable cancel) {
+    return new PendingCount(future, timeout, cancel, null);
+  }
+
+  public static PendingCount inline(LongSupplier count) {
+    return new PendingCount(null, null, null, count);
+  }
+
+  public boolean isConcurrent() {
+    return future != null;
+  }
+
+  /**
+   * 전체 개수. 동시에 실행한 count 가 timeout 안에 끝나지 않거나 실패하면 count 를 취소하고, 다시 세는 대신 offset + content 수를 하한값으로
+   * 돌려준다.
+   */
+  public TotalCount get(Pageable pageable, List<?> content) {
+    if (future == null) {
+      return TotalCount.exact(inline.getAsLong());
+    }
+
+    try {
+      return TotalCount.exact(future.get(timeout.toMillis(), TimeUnit.MILLISECONDS));
+    } catch (TimeoutException e) {
+      log.warn("count query timed out after {}ms, returning a lower bound", timeout.toMillis());
+    } catch (ExecutionException e) {
+      log.warn("concurrent count query failed, returning a lower bound", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("interrupted while waiting for count query, returning a lower bound");
+    }
+    close();
+    long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+    return TotalCount.atLeast(offset + content.size());
+  }
+
+  @Override
+  public void close() {
+    if (future != null && !future.isDone()) {
+      // 인터럽트는 JDBC 문장을 멈추지 못하고 커넥션을 닫을 수 있으므로 문장을 직접 취소한다
+      future.cancel(false);
+      cancel.run();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 동시에 들어온 같은 검색(single-flight)을 한 번만 실행한다. 먼저 온 호출이 자기 스레드에서 실행하고, 실행 중에 같은 키로 들어온 호출은 그 결과를 기다렸다가
+ * 함께 받는다. 실행이 끝나면 키를 지우므로 결과를 캐시하지는 않는다.
+ *
+ * <ul>
+ *   <li>기다리는 시간은 max-wait 까지다. 넘으면 직접 실행한다.
+ *   <li>먼저 실행한 호출이 예외로 끝나면 기다리던 호출도 같은 예외를 받는다.
+ *   <li>읽기/쓰기 트랜잭션 안의 호출은 커밋 전 데이터가 섞이지 않도록 합치지 않는다.
+ *   <li>테이블 쓰기가 감지되면 실행 중인 검색에 더 이상 합류시키지 않는다. 쓰기 후에 들어온 호출이 쓰기 전 결과를 받지 않게 하기 위해서다.
+ * </ul>
+ *
+ * <p>결과 객체는 호출자끼리 공유하므로 고치지 않는다. 합친 횟수는 querydsl.coalescing.calls(outcome=coalesced) 메트릭으로 남는다.
+ */
+@Component
+public class QueryCoalescer implements TableChangeListener {
+
+  private static final String METRIC_NAME = "querydsl.coalescing.calls";
+
+  private final QueryCoalescingProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+  public QueryCoalescer(
+      QueryCoalescingProperties properties,
+      TableChangeTracker tableChangeTracker,
+      MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    tableChangeTracker.addListener(this);
+  }
+
+  /**
+   * @param operation 메트릭의 operation 태그. 키와 함께 검색을 구분한다
+   * @param key 같은 쿼리가 되는 호출끼리 equals 가 같은 값. 예: 정리된 검색 조건과 Pageable
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String operation, Object key, Supplier<T> query) {
+    if (!properties.isEnabled() || isReadWriteTransactionActive()) {
+      return query.get();
+    }
+
+    Object flightKey = Arrays.asList(operation, key);
+    CompletableFuture<Object> flight = new CompletableFuture<>();
+    CompletableFuture<Object> leader = inFlight.putIfAbsent(flightKey, flight);
+    if (leader != null) {
+      return (T) await(operation, leader, query);
+    }
+
+    counter(operation, "executed").increment();
+    try {
+      T result = query.get();
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(flightKey, flight);
+    }
+  }
+
+  /** 지금 실행 중인 검색 수 */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  @Override
+  public void onTableChanged(String table) {
+    inFlight.clear();
+  }
+
+  private Object await(String operation, CompletableFuture<Object> leader, Supplier<?> query) {
+    try {
+      Object result = leader.get(properties.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+      counter(operation, "coalesced").increment();
+      return result;
+    } catch (TimeoutException e) {
+      counter(operation, "timeout").increment();
+      return query.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for " + operation, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private Counter counter(String operation, String outcome) {
+    return counters.computeIfAbsent(
+        operation + '\n' + outcome,
+        name ->
+            Counter.builder(METRIC_NAME)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+  }
+
+  private static boolean isReadWriteTransactionActive() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+}
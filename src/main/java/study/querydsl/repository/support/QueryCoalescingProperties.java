@@ -0,0 +1,21 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.coalescing")
+public class QueryCoalescingProperties {
+
+  /** 동시에 들어온 같은 검색을 한 번만 실행할지 여부 */
+  private boolean enabled = true;
+
+  /** 먼저 실행 중인 검색을 기다리는 최대 시간. 넘으면 직접 실행한다 */
+  private Duration maxWait = Duration.ofSeconds(2);
+}
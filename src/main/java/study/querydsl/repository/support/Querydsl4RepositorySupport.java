@@ -8,18 +8,22 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
-import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.querydsl.monitor.RepositoryStage;
+import study.querydsl.monitor.StageMetrics;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Repository
 public abstract class Querydsl4RepositorySupport {
@@ -27,6 +31,11 @@ public abstract class Querydsl4RepositorySupport {
   private Querydsl querydsl;
   private EntityManager entityManager;
   private JPAQueryFactory queryFactory;
+  private CountQueryExecutor countQueryExecutor;
+  private CountQueryOptimizer countQueryOptimizer;
+  private StageMetrics stageMetrics;
+  private DeferredJoinProperties deferredJoinProperties;
+  private ReadOnlyQueryExecutor readOnlyQueryExecutor;
 
   public Querydsl4RepositorySupport(Class<?> domainClass) {
     Assert.notNull(domainClass, "Domain class must not be null!");
@@ -46,7 +55,32 @@ public abstract class Querydsl4RepositorySupport {
     this.entityManager = entityManager;
     this.querydsl =
         new Querydsl(entityManager, new PathBuilder<>(path.getType(), path.getMetadata()));
-    this.queryFactory = new JPAQueryFactory(entityManager);
+    this.queryFactory = new JPAQueryFactory(StageMetrics.instrument(entityManager));
+  }
+
+  @Autowired
+  public void setCountQueryExecutor(CountQueryExecutor countQueryExecutor) {
+    this.countQueryExecutor = countQueryExecutor;
+  }
+
+  @Autowired
+  public void setCountQueryOptimizer(CountQueryOptimizer countQueryOptimizer) {
+    this.countQueryOptimizer = countQueryOptimizer;
+  }
+
+  @Autowired
+  public void setStageMetrics(StageMetrics stageMetrics) {
+    this.stageMetrics = stageMetrics;
+  }
+
+  @Autowired
+  public void setDeferredJoinProperties(DeferredJoinProperties deferredJoinProperties) {
+    this.deferredJoinProperties = deferredJoinProperties;
+  }
+
+  @Autowired
+  public void setReadOnlyQueryExecutor(ReadOnlyQueryExecutor readOnlyQueryExecutor) {
+    this.readOnlyQueryExecutor = readOnlyQueryExecutor;
   }
 
   @PostConstruct
@@ -54,6 +88,11 @@ public abstract class Querydsl4RepositorySupport {
     Assert.notNull(entityManager, "EntityManager must not be null!");
     Assert.notNull(querydsl, "Querydsl must not be null!");
     Assert.notNull(queryFactory, "QueryFactory must not be null!");
+    Assert.notNull(countQueryExecutor, "CountQueryExecutor must not be null!");
+    Assert.notNull(countQueryOptimizer, "CountQueryOptimizer must not be null!");
+    Assert.notNull(stageMetrics, "StageMetrics must not be null!");
+    Assert.notNull(deferredJoinProperties, "DeferredJoinProperties must not be null!");
+    Assert.notNull(readOnlyQueryExecutor, "ReadOnlyQueryExecutor must not be null!");
   }
 
   protected JPAQueryFactory getQueryFactory() {
@@ -76,20 +115,164 @@ public abstract class Querydsl4RepositorySupport {
     return getQueryFactory().selectFrom(from);
   }
 
+  /**
+   * 연관관계를 fetch join 으로 함께 읽는다. 페이징은 {@link #applyPagination(Pageable, FetchPlan, Function)} 으로 한다
+   */
+  protected <T> JPAQuery<T> selectFrom(EntityPath<T> from, FetchPlan fetchPlan) {
+    return fetchPlan.applyTo(selectFrom(from));
+  }
+
+  /**
+   * 검색을 읽기 전용으로 실행한다({@link ReadOnlyQueryExecutor}). 페이징 메서드는 모두 이 안에서 실행된다. 결과 엔티티는 스냅샷이 없고 flush
+   * 때 검사하지 않는다
+   */
+  protected <T> T readOnly(Supplier<T> query) {
+    return readOnlyQueryExecutor.execute(query);
+  }
+
+  /** 컨텐츠 쿼리에서 정렬, 프로젝션, 불필요한 left join 을 걷어낸 count 쿼리 */
+  protected Function<JPAQueryFactory, JPAQuery<?>> countQueryOf(JPAQuery<?> contentQuery) {
+    return countQueryOptimizer.derive(contentQuery);
+  }
+
   protected <T> Page<T> applyPagination(
-      Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery) {
-    JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-    List<T> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
-    return PageableExecutionUtils.getPage(content, pageable, jpaQuery::fetchCount);
+      Pageable pageable, Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+    return fetchPage(
+        "applyPagination",
+        pageable,
+        contentQuery,
+        this::countQueryOf,
+        jpaQuery -> fetchPaged(pageable, jpaQuery));
+  }
+
+  protected <T> Page<T> applyPagination(
+      Pageable pageable,
+      Function<JPAQueryFactory, JPAQuery<T>> contentQuery,
+      Function<JPAQueryFactory, JPAQuery<?>> countQuery) {
+    return fetchPage(
+        "applyPagination",
+        pageable,
+        contentQuery,
+        jpaQuery -> countQuery,
+        jpaQuery -> fetchPaged(pageable, jpaQuery));
   }
 
+  /**
+   * fetch plan 을 건 페이징. count 와 식별자 쿼리는 fetch join 없이 만든다. 컬렉션을 fetch 하면 offset 과 관계없이 식별자부터 페이징하고
+   * 그 식별자의 엔티티만 fetch join 으로 읽으므로 Hibernate 의 메모리 페이징(HHH000104)이 일어나지 않는다.
+   */
   protected <T> Page<T> applyPagination(
+      Pageable pageable, FetchPlan fetchPlan, Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+    return fetchPage(
+        "applyPagination",
+        pageable,
+        contentQuery,
+        this::countQueryOf,
+        jpaQuery -> {
+          if (pageable.isPaged() && fetchPlan.fetchesCollection()) {
+            getQuerydsl().applySorting(pageable.getSort(), jpaQuery);
+            StageMetrics.mark(RepositoryStage.PREDICATE);
+            return DeferredJoin.fetch(
+                jpaQuery,
+                pageable,
+                identifierOf(),
+                fetchPlan,
+                countQueryOptimizer,
+                getQueryFactory());
+          }
+          return fetchPaged(pageable, fetchPlan.applyTo(jpaQuery));
+        });
+  }
+
+  /** 루트 엔티티를 조회하는 컨텐츠 쿼리용. 식별자는 영속성 유닛에서 꺼낸다 */
+  protected <T> Page<T> applyDeferredPagination(
+      Pageable pageable, Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+    return applyDeferredPagination(pageable, contentQuery, identifierOf());
+  }
+
+  /**
+   * offset 이 deferred-join.min-offset 이상이면 식별자만 먼저 페이징하고 그 식별자의 행만 읽는다({@link DeferredJoin}). 아니면
+   * applyPagination 과 같다.
+   *
+   * @param idOf 컨텐츠 쿼리 결과 한 건의 루트 식별자. DTO 프로젝션이면 식별자를 담은 필드
+   */
+  protected <T> Page<T> applyDeferredPagination(
+      Pageable pageable,
+      Function<JPAQueryFactory, JPAQuery<T>> contentQuery,
+      Function<? super T, ?> idOf) {
+    return fetchPage(
+        "applyDeferredPagination",
+        pageable,
+        contentQuery,
+        this::countQueryOf,
+        jpaQuery -> {
+          if (pageable.isPaged() && deferredJoinProperties.appliesTo(pageable.getOffset())) {
+            getQuerydsl().applySorting(pageable.getSort(), jpaQuery);
+            StageMetrics.mark(RepositoryStage.PREDICATE);
+            return DeferredJoin.fetch(
+                jpaQuery, pageable, idOf, countQueryOptimizer, getQueryFactory());
+          }
+          return fetchPaged(pageable, jpaQuery);
+        });
+  }
+
+  /** count 없이 pageSize + 1 건을 읽어 다음 페이지 여부만 판단한다 */
+  protected <T> Slice<T> applySlicePagination(
+      Pageable pageable, Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+    return measuredReadOnly(
+        "applySlicePagination",
+        () -> {
+          JPAQuery<T> jpaQuery = contentQuery.apply(getQueryFactory());
+          getQuerydsl().applySorting(pageable.getSort(), jpaQuery);
+          StageMetrics.mark(RepositoryStage.PREDICATE);
+          List<T> content = SliceResults.limitPlusOne(jpaQuery, pageable).fetch();
+          return SliceResults.of(content, pageable);
+        });
+  }
+
+  /**
+   * Page 를 돌려주는 페이징 메서드의 공통 흐름. 컨텐츠 쿼리를 만들고, 페이징/정렬을 적용하기 전에 count 를 시작해 두고(옵션이면 동시에), fetchContent
+   * 로 컨텐츠를 읽어 페이지로 묶는다.
+   *
+   * @param countQueryOf 페이징/정렬을 적용하기 전의 컨텐츠 쿼리로 count 쿼리를 만든다
+   * @param fetchContent 페이징을 적용해서 컨텐츠를 읽는다. 쿼리를 실행하기 직전에 predicate 단계를 기록한다
+   */
+  private <T> Page<T> fetchPage(
+      String method,
       Pageable pageable,
-      Function<JPAQueryFactory, JPAQuery> contentQuery,
-      Function<JPAQueryFactory, JPAQuery> countQuery) {
-    JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-    List<T> content = getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch();
-    JPAQuery countResult = countQuery.apply(getQueryFactory());
-    return PageableExecutionUtils.getPage(content, pageable, countResult::fetchCount);
+      Function<JPAQueryFactory, JPAQuery<T>> contentQuery,
+      Function<JPAQuery<T>, Function<JPAQueryFactory, JPAQuery<?>>> countQueryOf,
+      Function<JPAQuery<T>, List<T>> fetchContent) {
+    return measuredReadOnly(
+        method,
+        () -> {
+          JPAQuery<T> jpaQuery = contentQuery.apply(getQueryFactory());
+          try (PendingCount total =
+              countQueryExecutor.submit(countQueryOf.apply(jpaQuery), getQueryFactory())) {
+            List<T> content = fetchContent.apply(jpaQuery);
+            StageMetrics.fetched();
+            Page<T> page = TotalCountPage.of(content, pageable, () -> total.get(pageable, content));
+            StageMetrics.mark(RepositoryStage.COUNT);
+            return page;
+          }
+        });
+  }
+
+  /** offset/limit 과 정렬을 걸고 읽는다 */
+  private <T> List<T> fetchPaged(Pageable pageable, JPAQuery<T> jpaQuery) {
+    getQuerydsl().applyPagination(pageable, jpaQuery);
+    StageMetrics.mark(RepositoryStage.PREDICATE);
+    return jpaQuery.fetch();
+  }
+
+  private Function<Object, Object> identifierOf() {
+    PersistenceUnitUtil persistenceUnitUtil =
+        getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil();
+    return persistenceUnitUtil::getIdentifier;
+  }
+
+  /** 읽기 전용으로 실행하면서 단계별 시간을 잰다. operation 태그는 저장소 클래스 이름.method 다 */
+  private <T> T measuredReadOnly(String method, Supplier<T> query) {
+    return readOnly(() -> stageMetrics.measure(getClass().getSimpleName() + "." + method, query));
   }
 }
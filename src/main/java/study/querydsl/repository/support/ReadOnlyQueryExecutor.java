@@ -0,0 +1,59 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.function.Supplier;
+
+/**
+ * 엔티티를 반환하는 검색을 읽기 전용으로 실행한다. 읽기 전용 엔티티는 dirty checking 용 스냅샷을 만들지 않고 flush 때 검사하지 않는다.
+ *
+ * <ul>
+ *   <li>트랜잭션이 없으면 읽기 전용 트랜잭션을 연다. 세션 기본값이 읽기 전용, flush 모드가 MANUAL 이 되고 커넥션도 읽기 전용이 된다.
+ *   <li>읽기/쓰기 트랜잭션 안이면 실행하는 동안 읽어 들인 엔티티만 읽기 전용으로 만든다. 같은 트랜잭션에서 쓴 데이터가 검색에 보여야 하므로 flush 모드는 바꾸지
+ *       않는다.
+ * </ul>
+ *
+ * <p>세션에 거는 설정이라 쿼리마다 힌트를 걸지 않아도 되고 실행 중 지연 로딩에도 적용된다. 검색 결과를 고쳐서 반영하려면 Session.setReadOnly(entity,
+ * false) 로 되돌린다.
+ */
+@Component
+public class ReadOnlyQueryExecutor {
+
+  private final EntityManager em;
+  private final ReadOnlyQueryProperties properties;
+  private final TransactionTemplate readOnlyTransaction;
+
+  public ReadOnlyQueryExecutor(
+      EntityManager em,
+      ReadOnlyQueryProperties properties,
+      PlatformTransactionManager transactionManager) {
+    this.em = em;
+    this.properties = properties;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+  }
+
+  public <T> T execute(Supplier<T> query) {
+    if (!properties.isEnabled()
+        || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return query.get();
+    }
+    if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+      return readOnlyTransaction.execute(status -> query.get());
+    }
+
+    Session session = em.unwrap(Session.class);
+    boolean defaultReadOnly = session.isDefaultReadOnly();
+    session.setDefaultReadOnly(true);
+    try {
+      return query.get();
+    } finally {
+      session.setDefaultReadOnly(defaultReadOnly);
+    }
+  }
+}
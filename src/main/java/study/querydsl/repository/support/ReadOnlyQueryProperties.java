@@ -0,0 +1,16 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "querydsl.read-only")
+public class ReadOnlyQueryProperties {
+
+  /** 검색 메서드가 읽은 엔티티를 읽기 전용으로 둘지 여부. 끄면 스냅샷과 dirty checking 대상이 된다 */
+  private boolean enabled = true;
+}
@@ -0,0 +1,34 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * count 쿼리 없이 pageSize + 1 건을 읽어서 다음 페이지가 있는지만 판단한다.
+ *
+ * <p>{@link #limitPlusOne} 로 offset/limit 을 걸고, 가져온 결과를 {@link #of} 로 감싼다.
+ */
+public final class SliceResults {
+
+  private SliceResults() {}
+
+  public static <T> JPAQuery<T> limitPlusOne(JPAQuery<T> query, Pageable pageable) {
+    if (pageable.isPaged()) {
+      query.offset(pageable.getOffset()).limit(pageable.getPageSize() + 1L);
+    }
+    return query;
+  }
+
+  public static <T> Slice<T> of(List<T> fetched, Pageable pageable) {
+    if (pageable.isUnpaged() || fetched.size() <= pageable.getPageSize()) {
+      return new SliceImpl<>(fetched, pageable, false);
+    }
+    List<T> content = new ArrayList<>(fetched.subList(0, pageable.getPageSize()));
+    return new SliceImpl<>(content, pageable, true);
+  }
+}
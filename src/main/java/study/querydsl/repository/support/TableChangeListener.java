@@ -0,0 +1,21 @@
+package study.querydsl.repository.support;
+
+import java.util.Set;
+
+/** {@link TableChangeTracker} 가 테이블 쓰기를 감지했을 때 호출된다. table 은 소문자 테이블 이름이다. */
+public interface TableChangeListener {
+
+  void onTableChanged(String table);
+
+  /**
+   * 쓰기 SQL 이 실행되기 직전에 실행 스레드에서 호출된다. Hibernate 를 거치지 않고 JDBC 로 직접 커밋한 쓰기면 sql 은 null 이고 커밋 후에 호출된다.
+   */
+  default void onWriteStatement(String table, String sql) {}
+
+  /** JDBC 로 직접 커밋한 쓰기. 함께 커밋한 테이블을 한 번에 받는다. 기본 구현은 테이블마다 sql 이 null 인 onWriteStatement 를 호출한다. */
+  default void onTablesCommitted(Set<String> tables) {
+    for (String table : tables) {
+      onWriteStatement(table, null);
+    }
+  }
+}
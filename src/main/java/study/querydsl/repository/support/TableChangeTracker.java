@@ -0,0 +1,138 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hibernate 가 실행하는 모든 SQL 을 보고 어떤 테이블에 쓰기가 일어났는지 추적한다.
+ *
+ * <p>em.persist 의 insert 뿐 아니라 Querydsl/JPQL 벌크 update, delete 와 네이티브 쿼리까지 한 곳에서 잡을 수 있다. 쓰기가 감지되면
+ * 리스너에 바로 알리고, 트랜잭션이 끝날 때(커밋/롤백) 한 번 더 알린다. 커밋 전에 다른 트랜잭션이 옛 데이터로 캐시를 채웠더라도 커밋 시점에 다시 비워지게 하기 위해서다.
+ */
+@Component
+public class TableChangeTracker implements StatementInspector, HibernatePropertiesCustomizer {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Pattern WRITE_STATEMENT =
+      Pattern.compile(
+          "^\\s*(?:/\\*.*?\\*/\\s*)*(?:insert\\s+into|update|delete\\s+from|delete|merge\\s+into)\\s+([\\w.\"`]+)",
+          Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private final List<TableChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void customize(Map<String, Object> hibernateProperties) {
+    hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+  }
+
+  public void addListener(TableChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public String inspect(String sql) {
+    String table = writtenTable(sql);
+    if (table != null) {
+      for (TableChangeListener listener : listeners) {
+        listener.onWriteStatement(table, sql);
+      }
+      onWrite(table);
+    }
+    return sql;
+  }
+
+  /** Hibernate 를 거치지 않고 JDBC 로 직접 커밋한 쓰기를 알린다. 함께 커밋한 테이블은 한 번에 넘긴다 */
+  public void tableChanged(String... tables) {
+    Set<String> normalized = new LinkedHashSet<>();
+    for (String table : tables) {
+      normalized.add(table.toLowerCase(Locale.ROOT));
+    }
+    for (TableChangeListener listener : listeners) {
+      listener.onTablesCommitted(normalized);
+    }
+    normalized.forEach(this::notifyListeners);
+  }
+
+  /** 현재 트랜잭션에서 table 에 쓴 적이 있으면 true. 이 트랜잭션의 조회 결과는 커밋되지 않은 데이터를 포함할 수 있다. */
+  public boolean isWrittenInCurrentTransaction(String table) {
+    Set<String> written = writtenTables();
+    return written != null && written.contains(table);
+  }
+
+  /** 현재 트랜잭션에서 쓴 적이 있는 테이블이 하나라도 있으면 true */
+  public boolean isAnyWrittenInCurrentTransaction(String... tables) {
+    for (String table : tables) {
+      if (isWrittenInCurrentTransaction(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static String writtenTable(String sql) {
+    if (sql == null) {
+      return null;
+    }
+    Matcher matcher = WRITE_STATEMENT.matcher(sql);
+    if (!matcher.find()) {
+      return null;
+    }
+    String table = matcher.group(1).replaceAll("[\"`]", "");
+    int schemaSeparator = table.lastIndexOf('.');
+    return table.substring(schemaSeparator + 1).toLowerCase(Locale.ROOT);
+  }
+
+  private void onWrite(String table) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      Set<String> written = writtenTables();
+      if (written == null) {
+        Set<String> tables = new HashSet<>();
+        TransactionSynchronizationManager.bindResource(this, tables);
+        TransactionSynchronizationManager.registerSynchronization(new AfterCompletion(tables));
+        written = tables;
+      }
+      written.add(table);
+    }
+    notifyListeners(table);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<String> writtenTables() {
+    return (Set<String>) TransactionSynchronizationManager.getResource(this);
+  }
+
+  private void notifyListeners(String table) {
+    for (TableChangeListener listener : listeners) {
+      listener.onTableChanged(table);
+    }
+  }
+
+  private class AfterCompletion implements TransactionSynchronization {
+    private final Set<String> tables;
+
+    private AfterCompletion(Set<String> tables) {
+      this.tables = tables;
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(TableChangeTracker.this);
+      tables.forEach(TableChangeTracker.this::notifyListeners);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package study.querydsl.repository.support;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/** 페이지 전체 개수. approximate 이면 정확한 count 대신 추정한 값이고, 그중 lowerBound 이면 전체 개수가 적어도 이만큼이라는 하한값이다. */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class TotalCount {
+
+  private final long value;
+  private final boolean approximate;
+  private final boolean lowerBound;
+
+  private TotalCount(long value, boolean approximate, boolean lowerBound) {
+    this.value = value;
+    this.approximate = approximate;
+    this.lowerBound = lowerBound;
+  }
+
+  public static TotalCount exact(long value) {
+    return new TotalCount(value, false, false);
+  }
+
+  /** DB 통계처럼 실제 개수보다 크거나 작을 수 있는 추정값 */
+  public static TotalCount approximate(long value) {
+    return new TotalCount(value, true, false);
+  }
+
+  /** 세다가 멈춰서 전체 개수는 이보다 크거나 같다는 것만 아는 경우 */
+  public static TotalCount atLeast(long value) {
+    return new TotalCount(value, true, true);
+  }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.repository.support;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 전체 개수가 추정값인지, 하한값인지 함께 알려주는 Page. JSON 응답에는 totalApproximate, totalLowerBound 필드로 나간다.
+ *
+ * <p>totalLowerBound 이면 getTotalElements/getTotalPages 는 "적어도" 그만큼이라는 뜻이므로 마지막 페이지 번호로 쓰면 안 된다.
+ *
+ * <p>{@link #of} 는 {@link org.springframework.data.support.PageableExecutionUtils#getPage} 와 같은
+ * 규칙으로 전체 개수를 추론할 수 있으면 count 를 생략한다.
+ */
+public class TotalCountPage<T> extends PageImpl<T> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final boolean totalApproximate;
+  private final boolean totalLowerBound;
+
+  public TotalCountPage(List<T> content, Pageable pageable, TotalCount total) {
+    super(content, pageable, total.getValue());
+    this.totalApproximate = total.isApproximate();
+    this.totalLowerBound = total.isLowerBound();
+  }
+
+  public static <T> TotalCountPage<T> of(
+      List<T> content, Pageable pageable, Supplier<TotalCount> totalSupplier) {
+    if (pageable.isUnpaged() || pageable.getOffset() == 0) {
+      if (pageable.isUnpaged() || pageable.getPageSize() > content.size()) {
+        return new TotalCountPage<>(content, pageable, TotalCount.exact(content.size()));
+      }
+      return new TotalCountPage<>(content, pageable, totalSupplier.get());
+    }
+
+    if (content.size() != 0 && pageable.getPageSize() > content.size()) {
+      return new TotalCountPage<>(
+          content, pageable, TotalCount.exact(pageable.getOffset() + content.size()));
+    }
+    return new TotalCountPage<>(content, pageable, totalSupplier.get());
+  }
+
+  public boolean isTotalApproximate() {
+    return totalApproximate;
+  }
+
+  public boolean isTotalLowerBound() {
+    return totalLowerBound;
+  }
+}
@@ -0,0 +1,81 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "querydsl.export.flush-interval=2")
+@AutoConfigureMockMvc
+@Transactional
+class MemberExportControllerTest {
+
+  @Autowired EntityManager em;
+  @Autowired MockMvc mockMvc;
+
+  @BeforeEach
+  public void beforeEach() {
+    Team teamA = new Team("TeamA");
+    Team teamB = new Team("Team, \"B\"");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    em.flush();
+    em.clear();
+  }
+
+  @Test
+  public void exportJsonLines() throws Exception {
+    String body =
+        mockMvc
+            .perform(get("/v1/members/export").param("ageGoe", "20"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    String[] lines = body.split("\n");
+    assertThat(lines).hasSize(3);
+    assertThat(lines[0]).startsWith("{").contains("\"username\":\"member2\"");
+    assertThat(lines[2]).contains("\"username\":\"member4\"");
+  }
+
+  @Test
+  public void exportCsv() throws Exception {
+    String body =
+        mockMvc
+            .perform(get("/v1/members/export").param("format", "csv").param("ageGoe", "30"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    String[] lines = body.split("\n");
+    assertThat(lines[0]).isEqualTo("member_id,username,age,team_id,team_name");
+    assertThat(lines).hasSize(3);
+    assertThat(lines[1]).contains(",member3,30,").endsWith(",\"Team, \"\"B\"\"\"");
+  }
+
+  @Test
+  public void unsupportedFormat() throws Exception {
+    mockMvc
+        .perform(get("/v1/members/export").param("format", "xml"))
+        .andExpect(status().isBadRequest());
+  }
+}
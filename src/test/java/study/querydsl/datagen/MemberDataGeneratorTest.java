@@ -0,0 +1,154 @@
+package study.querydsl.datagen;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 별도 커넥션에서 커밋하므로 테스트 후 지운다. */
+@SpringBootTest
+class MemberDataGeneratorTest {
+
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired MemberDataGenerator memberDataGenerator;
+
+  @AfterEach
+  public void afterEach() {
+    clear();
+  }
+
+  @Test
+  public void generate() {
+    DataGenerationResult result = memberDataGenerator.generate(spec());
+
+    assertThat(result.getMembers()).isEqualTo(2_000);
+    assertThat(count()).isEqualTo(2_000);
+    assertThat(new JPAQueryFactory(em).selectFrom(team).fetchCount()).isEqualTo(5);
+    assertThat(result.getRowsPerSecond()).isPositive();
+  }
+
+  @Test
+  public void sameSeedSameData() {
+    memberDataGenerator.generate(spec());
+    List<Tuple> first = rows();
+    clear();
+
+    MemberDataGeneratorProperties spec = spec();
+    spec.setThreads(1);
+    memberDataGenerator.generate(spec);
+
+    assertThat(rows()).isEqualTo(first);
+  }
+
+  @Test
+  public void idsFollowRowOrder() {
+    memberDataGenerator.generate(spec());
+
+    // 식별자 순서가 행 번호 순서와 같다
+    List<String> usernames =
+        new JPAQueryFactory(em)
+            .select(member.username)
+            .from(member)
+            .orderBy(member.id.asc())
+            .fetch();
+    assertThat(usernames)
+        .containsExactlyElementsOf(
+            IntStream.range(0, 2_000).mapToObj(i -> "member" + i).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void adjacentSeedsDoNotShareChunks() {
+    memberDataGenerator.generate(spec());
+    List<String> secondChunk = chunk(300, 600);
+    clear();
+
+    MemberDataGeneratorProperties spec = spec();
+    spec.setSeed(spec.getSeed() + 1);
+    memberDataGenerator.generate(spec);
+
+    assertThat(chunk(0, 300)).isNotEqualTo(secondChunk);
+  }
+
+  @Test
+  public void skewedDistribution() {
+    MemberDataGeneratorProperties spec = spec();
+    spec.setTeamSkew(1.5);
+    spec.setUsernameCardinality(10);
+    memberDataGenerator.generate(spec);
+
+    JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+    long teamA = queryFactory.selectFrom(member).where(member.team.name.eq("TeamA")).fetchCount();
+    long teamE = queryFactory.selectFrom(member).where(member.team.name.eq("TeamE")).fetchCount();
+    long usernames = queryFactory.select(member.username).from(member).distinct().fetch().size();
+
+    assertThat(teamA).isGreaterThan(teamE * 3);
+    assertThat(usernames).isEqualTo(10);
+  }
+
+  private MemberDataGeneratorProperties spec() {
+    MemberDataGeneratorProperties spec = new MemberDataGeneratorProperties();
+    spec.setTeams(5);
+    spec.setMembers(2_000);
+    spec.setChunkSize(300);
+    spec.setBatchSize(100);
+    spec.setThreads(3);
+    spec.setAgeSkew(1);
+    return spec;
+  }
+
+  private long count() {
+    return new JPAQueryFactory(em).selectFrom(member).fetchCount();
+  }
+
+  private List<Tuple> rows() {
+    return new JPAQueryFactory(em)
+        .select(member.username, member.age, team.name)
+        .from(member)
+        .join(member.team, team)
+        .orderBy(member.username.asc())
+        .fetch();
+  }
+
+  /** username 번호가 [from, to) 인 회원의 (나이, 팀) 을 번호 순으로 */
+  private List<String> chunk(int from, int to) {
+    return new JPAQueryFactory(em)
+            .select(member.username, member.age, team.name)
+            .from(member)
+            .join(member.team, team)
+            .fetch()
+            .stream()
+            .filter(
+                row -> {
+                  int index =
+                      Integer.parseInt(row.get(member.username).substring("member".length()));
+                  return index >= from && index < to;
+                })
+            .sorted(
+                Comparator.comparingInt(
+                    row -> Integer.parseInt(row.get(member.username).substring("member".length()))))
+            .map(row -> row.get(member.age) + "/" + row.get(team.name))
+            .collect(Collectors.toList());
+  }
+
+  private void clear() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          new JPAQueryFactory(em).delete(member).execute();
+          new JPAQueryFactory(em).delete(team).execute();
+        });
+  }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.entity;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.QueryStatistics;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 회원 1,000 명의 팀, 팀 100 개의 회원 컬렉션을 지연 로딩으로 훑을 때 실행되는 SQL 수. 연관관계를 하나씩 읽을 때(각 101)는 {@link
+ * study.querydsl.monitor.NPlusOneDetectorTest} 에서 다룬다.
+ */
+@SpringBootTest
+@Transactional
+class AssociationFetchTest {
+
+  private static final int TEAMS = 100;
+  private static final int MEMBERS = 1000;
+
+  @Autowired EntityManager em;
+  @Autowired NPlusOneDetector nPlusOneDetector;
+
+  @BeforeEach
+  public void beforeEach() {
+    Team[] teams = new Team[TEAMS];
+    for (int i = 0; i < TEAMS; i++) {
+      teams[i] = new Team("team" + i);
+      em.persist(teams[i]);
+    }
+    for (int i = 0; i < MEMBERS; i++) {
+      em.persist(new Member("member" + i, i % 100, teams[i % TEAMS]));
+    }
+    em.flush();
+    em.clear();
+    em.getEntityManagerFactory().getCache().evictAll();
+  }
+
+  @Test
+  public void walkMemberTeams() {
+    // 회원 조회 1 + 팀 100 개를 in 한 번
+    assertThat(memberTeamsWalk().getStatements()).isEqualTo(2);
+  }
+
+  @Test
+  public void walkTeamMembers() {
+    // 팀 조회 1 + 컬렉션 100 개를 in 한 번 (subselect 면 팀 조회를 서브쿼리로 한 회원 조회 1)
+    assertThat(teamMembersWalk().getStatements()).isEqualTo(2);
+  }
+
+  QueryStatistics memberTeamsWalk() {
+    try (QueryStatistics statistics = nPlusOneDetector.open("walkMemberTeams")) {
+      List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+      assertThat(members).hasSize(MEMBERS);
+      members.forEach(member -> member.getTeam().getName());
+      return statistics;
+    }
+  }
+
+  QueryStatistics teamMembersWalk() {
+    try (QueryStatistics statistics = nPlusOneDetector.open("walkTeamMembers")) {
+      List<Team> teams = em.createQuery("select t from Team t", Team.class).getResultList();
+      assertThat(teams).hasSize(TEAMS);
+      // EXTRA 라서 size() 는 count 쿼리다. 초기화해서 훑는다
+      teams.forEach(team -> Hibernate.initialize(team.getMembers()));
+      assertThat(teams).allMatch(team -> team.getMembers().size() == MEMBERS / TEAMS);
+      return statistics;
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.entity;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** 컬렉션을 subselect 로 읽어도 같은 SQL 수로 훑는다 */
+@TestPropertySource(properties = "querydsl.association-fetch.collection-fetch=subselect")
+class AssociationSubselectFetchTest extends AssociationFetchTest {
+
+  @Test
+  public void teamMembersBySubselect() {
+    assertThat(teamMembersWalk().getStatementCounts().keySet())
+        .anyMatch(sql -> sql.contains("in (select"));
+  }
+}
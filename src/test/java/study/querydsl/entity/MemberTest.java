@@ -1,5 +1,7 @@
 package study.querydsl.entity;
 
+import org.hibernate.Hibernate;
+import org.hibernate.LazyInitializationException;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
@@ -8,6 +10,9 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
 @SpringBootTest
 @Transactional
 class MemberTest {
@@ -39,4 +44,49 @@ class MemberTest {
       System.out.println("member = " + member);
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void joinTeamWithoutInitializingMembers() {
+    Team teamA = new Team("TeamA");
+    em.persist(teamA);
+    em.persist(new Member("member1", 10, teamA));
+    em.flush();
+    em.clear();
+
+    Team team = em.find(Team.class, teamA.getId());
+    Member member2 = new Member("member2", 20, team);
+    em.persist(member2);
+    em.flush();
+
+    // 추가는 대기열에 쌓이고, 개수는 count 쿼리로 센다
+    assertThat(Hibernate.isInitialized(team.getMembers())).isFalse();
+    assertThat(team.getMembers().size()).isEqualTo(2);
+    assertThat(Hibernate.isInitialized(team.getMembers())).isFalse();
+
+    // 컬렉션을 읽으면 DB 의 회원과 대기 중인 추가가 합쳐진다
+    assertThat(team.getMembers()).extracting("username").containsOnly("member1", "member2");
+  }
+
+  @Test
+  public void joinDetachedTeam() {
+    Team teamA = new Team("TeamA");
+    em.persist(teamA);
+    em.flush();
+    em.clear();
+
+    Team team = em.find(Team.class, teamA.getId());
+    em.detach(team);
+
+    // 준영속 팀의 초기화되지 않은 컬렉션에는 추가할 수 없으므로 merge 해서 영속 팀으로 바꾼 뒤 추가한다
+    assertThatThrownBy(() -> new Member("member1", 10, team))
+        .isInstanceOf(IllegalStateException.class)
+        .hasCauseInstanceOf(LazyInitializationException.class);
+
+    Member member = new Member("member1", 10, em.merge(team));
+    em.persist(member);
+    em.flush();
+    em.clear();
+
+    assertThat(em.find(Member.class, member.getId()).getTeam().getId()).isEqualTo(teamA.getId());
+  }
+}
@@ -0,0 +1,163 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 지연 로딩을 하나씩 하도록 batch fetch 를 끈다
+@SpringBootTest(properties = "querydsl.association-fetch.batch-size=0")
+@AutoConfigureMockMvc
+@Transactional
+class NPlusOneDetectorTest {
+
+  @Autowired EntityManager em;
+  @Autowired MockMvc mockMvc;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired NPlusOneDetector nPlusOneDetector;
+  @Autowired NPlusOneProperties properties;
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @BeforeEach
+  public void beforeEach() {
+    for (int i = 0; i < 6; i++) {
+      Team team = new Team("team" + i);
+      em.persist(team);
+      em.persist(new Member("member" + i, 10 * i, team));
+    }
+    em.flush();
+    em.clear();
+    nPlusOneDetector.reset();
+  }
+
+  @AfterEach
+  public void afterEach() {
+    properties.setFailFast(true);
+  }
+
+  @Test
+  public void failFastOnClose() {
+    QueryStatistics statistics = nPlusOneDetector.open("failFast");
+    List<Member> members = memberJpaRepository.searchMember(new MemberSearchCondition());
+
+    // 문장 도중에는 던지지 않으므로 지연 로딩은 끝까지 정상적으로 된다
+    members.forEach(member -> member.getTeam().getName());
+    assertThat(statistics.getProxyInitializations()).isEqualTo(6);
+
+    assertThatThrownBy(statistics::close)
+        .isInstanceOf(NPlusOneDetectedException.class)
+        .hasMessageContaining("from team");
+  }
+
+  @Test
+  public void failFastOnCommit() {
+    TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+    requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    try (QueryStatistics statistics = nPlusOneDetector.open("failFastOnCommit")) {
+      assertThatThrownBy(
+              () ->
+                  requiresNew.executeWithoutResult(
+                      status -> {
+                        for (int i = 0; i < 6; i++) {
+                          Team team = new Team("committed" + i);
+                          em.persist(team);
+                          em.persist(new Member("committed" + i, i, team));
+                        }
+                        em.flush();
+                        em.clear();
+
+                        memberJpaRepository
+                            .searchMember(new MemberSearchCondition())
+                            .forEach(member -> member.getTeam().getName());
+                      }))
+          .isInstanceOf(NPlusOneDetectedException.class)
+          .hasMessageContaining("from team");
+
+      // 커밋 직전에 던져서 롤백됐고, 구간을 닫을 때 같은 위반을 다시 던지지 않는다
+      assertThat(statistics.getProxyInitializations()).isEqualTo(6);
+    }
+    Long committed =
+        requiresNew.execute(
+            status ->
+                em.createQuery(
+                        "select count(t) from Team t where t.name like 'committed%'", Long.class)
+                    .getSingleResult());
+    assertThat(committed).isZero();
+  }
+
+  @Test
+  public void recordOffender() throws Exception {
+    properties.setFailFast(false);
+
+    try (QueryStatistics statistics = nPlusOneDetector.open("recordOffender")) {
+      List<Member> members = memberJpaRepository.searchMember(new MemberSearchCondition());
+      members.forEach(member -> member.getTeam().getName());
+
+      assertThat(statistics.getStatements()).isEqualTo(7);
+      assertThat(statistics.getEntityLoads()).isEqualTo(12);
+      assertThat(statistics.getProxyInitializations()).isEqualTo(6);
+    }
+
+    assertThat(nPlusOneDetector.getOffenders())
+        .singleElement()
+        .satisfies(
+            offender -> {
+              assertThat(offender.getName()).isEqualTo("recordOffender");
+              assertThat(offender.getMaxRepeats()).isEqualTo(6);
+              assertThat(offender.getFingerprint()).contains("from team");
+            });
+
+    mockMvc
+        .perform(get("/admin/n-plus-one"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].name").value("recordOffender"))
+        .andExpect(jsonPath("$[0].fingerprint", containsString("where team0_.id=?")));
+
+    mockMvc.perform(delete("/admin/n-plus-one")).andExpect(status().isOk());
+    assertThat(nPlusOneDetector.getOffenders()).isEmpty();
+  }
+
+  @Test
+  public void fetchJoinIsNotOffender() {
+    try (QueryStatistics statistics = nPlusOneDetector.open("fetchJoin")) {
+      List<Member> members =
+          em.createQuery("select m from Member m join fetch m.team", Member.class).getResultList();
+      members.forEach(member -> member.getTeam().getName());
+
+      assertThat(statistics.getStatements()).isEqualTo(1);
+      assertThat(statistics.getProxyInitializations()).isZero();
+    }
+    assertThat(nPlusOneDetector.getOffenders()).isEmpty();
+  }
+
+  @Test
+  public void sqlFingerprint() {
+    assertThat(SqlFingerprint.of("select * from member where id = 3 and name = 'a''b'"))
+        .isEqualTo("select * from member where id = ? and name = ?");
+    assertThat(SqlFingerprint.of("select * from member\n where id in (?, ?,?)"))
+        .isEqualTo("select * from member where id in (?)");
+  }
+}
@@ -0,0 +1,86 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class SqlStatisticsTest {
+
+  @Autowired EntityManager em;
+  @Autowired MockMvc mockMvc;
+  @Autowired SqlStatistics sqlStatistics;
+
+  @BeforeEach
+  public void beforeEach() {
+    Team teamA = new Team("TeamA");
+    em.persist(teamA);
+    for (int i = 0; i < 3; i++) {
+      em.persist(new Member("member" + i, 10 * i, teamA));
+    }
+    em.flush();
+    em.clear();
+    sqlStatistics.reset();
+  }
+
+  @Test
+  public void aggregateByFingerprint() throws Exception {
+    mockMvc.perform(get("/v1/members").param("ageGoe", "0")).andExpect(status().isOk());
+    mockMvc.perform(get("/v1/members").param("ageGoe", "10")).andExpect(status().isOk());
+
+    // 파라미터만 다른 두 요청이 하나의 모양으로 모인다
+    assertThat(sqlStatistics.snapshot())
+        .filteredOn(stats -> stats.getFingerprint().contains("from member"))
+        .singleElement()
+        .satisfies(
+            stats -> {
+              assertThat(stats.getCount()).isEqualTo(2);
+              assertThat(stats.getRows()).isEqualTo(3 + 2);
+              assertThat(stats.getErrors()).isZero();
+              assertThat(stats.getMaxMillis()).isLessThanOrEqualTo(stats.getTotalMillis());
+              assertThat(stats.getP50Millis()).isLessThanOrEqualTo(stats.getP99Millis());
+            });
+
+    mockMvc
+        .perform(get("/admin/sql-stats").param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1));
+
+    mockMvc.perform(delete("/admin/sql-stats")).andExpect(status().isOk());
+    assertThat(sqlStatistics.snapshot()).isEmpty();
+  }
+
+  @Test
+  public void histogramPercentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long micros = 1; micros <= 1000; micros++) {
+      histogram.record(micros);
+    }
+
+    // 버킷 상한이라 12.5% 이내로 크게 나온다
+    assertThat(histogram.percentile(50)).isBetween(500L, 563L);
+    assertThat(histogram.percentile(99)).isBetween(990L, 1114L);
+    assertThat(histogram.percentile(100)).isBetween(1000L, 1125L);
+
+    for (long value : new long[] {0, 7, 8, 9, 100, 1023, 1024, 123_456_789}) {
+      assertThat(LatencyHistogram.upperBound(LatencyHistogram.index(value)))
+          .isGreaterThanOrEqualTo(value);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package study.querydsl.monitor;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class StageMetricsTest {
+
+  @Autowired EntityManager em;
+  @Autowired MockMvc mockMvc;
+  @Autowired MeterRegistry meterRegistry;
+  @Autowired StageMetricsProperties properties;
+  @Autowired StageMetrics stageMetrics;
+  @Autowired NPlusOneDetector nPlusOneDetector;
+  @Autowired JPAQueryFactory queryFactory;
+  @Autowired MemberRepository memberRepository;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired MemberTestRepository memberTestRepository;
+
+  @BeforeEach
+  public void beforeEach() {
+    Team teamA = new Team("TeamA");
+    em.persist(teamA);
+    for (int i = 0; i < 3; i++) {
+      em.persist(new Member("member" + i, 10 * i, teamA));
+    }
+    em.flush();
+    em.clear();
+  }
+
+  @AfterEach
+  public void afterEach() {
+    properties.setEnabled(true);
+  }
+
+  @Test
+  public void recordStagesOfPagedSearch() {
+    String[] stages = {"predicate", "serialize", "plan", "execute", "map", "count", "total"};
+    long[] before = new long[stages.length];
+    for (int i = 0; i < stages.length; i++) {
+      before[i] = count("searchPageSimple", stages[i]);
+    }
+    double stageNanos = stageNanos("searchPageSimple");
+    double totalNanos = totalNanos("searchPageSimple");
+
+    memberRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 2));
+
+    for (int i = 0; i < stages.length; i++) {
+      assertThat(count("searchPageSimple", stages[i]) - before[i]).as(stages[i]).isEqualTo(1);
+    }
+    // 단계 합계는 전체 시간을 넘지 않는다
+    assertThat(stageNanos("searchPageSimple") - stageNanos)
+        .isLessThanOrEqualTo(totalNanos("searchPageSimple") - totalNanos);
+  }
+
+  @Test
+  public void recordShapeCachedSearch() {
+    long searchByWhere = count("searchByWhere", "execute");
+    long searchMember = count("searchMember", "execute");
+    long applySlice = count("MemberTestRepository.applySlicePagination", "total");
+
+    memberJpaRepository.searchByWhere(new MemberSearchCondition());
+    memberJpaRepository.searchMember(new MemberSearchCondition());
+    memberTestRepository.applyMySlice(new MemberSearchCondition(), PageRequest.of(0, 2));
+
+    assertThat(count("searchByWhere", "execute")).isEqualTo(searchByWhere + 1);
+    assertThat(count("searchMember", "execute")).isEqualTo(searchMember + 1);
+    assertThat(count("MemberTestRepository.applySlicePagination", "total"))
+        .isEqualTo(applySlice + 1);
+  }
+
+  @Test
+  public void measuredQueryKeepsLockMode() {
+    long execute = count("lockMembers", "execute");
+
+    List<Member> members;
+    try (QueryStatistics statistics = nPlusOneDetector.open("lockMembers")) {
+      members =
+          stageMetrics.measure(
+              "lockMembers",
+              () ->
+                  queryFactory
+                      .selectFrom(member)
+                      .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                      .fetch());
+      assertThat(statistics.getStatementCounts().keySet())
+          .anyMatch(sql -> sql.contains("for update"));
+    }
+
+    assertThat(members).hasSize(3);
+    assertThat(count("lockMembers", "serialize")).isEqualTo(1);
+    assertThat(count("lockMembers", "execute")).isEqualTo(execute + 1);
+  }
+
+  @Test
+  public void recordResponseSerialization() throws Exception {
+    long search = count("searchPageComplex", "total");
+    long response = count("GET /v3/members", "response");
+
+    mockMvc.perform(get("/v3/members").param("size", "2")).andExpect(status().isOk());
+
+    assertThat(count("searchPageComplex", "total")).isEqualTo(search + 1);
+    assertThat(count("GET /v3/members", "response")).isEqualTo(response + 1);
+  }
+
+  @Test
+  public void disabled() {
+    properties.setEnabled(false);
+    long before = count("searchSlice", "total");
+
+    assertThat(memberRepository.searchSlice(new MemberSearchCondition(), PageRequest.of(0, 2)))
+        .hasSize(2);
+    assertThat(count("searchSlice", "total")).isEqualTo(before);
+  }
+
+  private double stageNanos(String operation) {
+    return meterRegistry
+        .find(StageMetrics.METRIC_NAME)
+        .tag("operation", operation)
+        .timers()
+        .stream()
+        .filter(timer -> !"total".equals(timer.getId().getTag("stage")))
+        .mapToDouble(timer -> timer.totalTime(TimeUnit.NANOSECONDS))
+        .sum();
+  }
+
+  private double totalNanos(String operation) {
+    Timer timer = timer(operation, "total");
+    return timer != null ? timer.totalTime(TimeUnit.NANOSECONDS) : 0;
+  }
+
+  private long count(String operation, String stage) {
+    Timer timer = timer(operation, stage);
+    return timer != null ? timer.count() : 0;
+  }
+
+  private Timer timer(String operation, String stage) {
+    return meterRegistry
+        .find(StageMetrics.METRIC_NAME)
+        .tag("operation", operation)
+        .tag("stage", stage)
+        .timer();
+  }
+}
@@ -0,0 +1,174 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.TotalCountPage;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 커밋된 데이터만 캐시되므로 데이터를 실제로 커밋하고 테스트 후 지운다. */
+@SpringBootTest
+class MemberCountCacheTest {
+
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired MemberRepository memberRepository;
+  @Autowired MemberCountCache memberCountCache;
+  @Autowired MemberCountCacheProperties properties;
+
+  @BeforeEach
+  public void beforeEach() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          Team teamA = new Team("teamA");
+          Team teamB = new Team("teamB");
+          em.persist(teamA);
+          em.persist(teamB);
+
+          em.persist(new Member("member1", 10, teamA));
+          em.persist(new Member("member2", 20, teamA));
+          em.persist(new Member("member3", 30, teamB));
+          em.persist(new Member("member4", 40, teamB));
+        });
+  }
+
+  @AfterEach
+  public void afterEach() {
+    properties.setApproximateThreshold(0);
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          new JPAQueryFactory(em).delete(member).execute();
+          new JPAQueryFactory(em).delete(team).execute();
+        });
+  }
+
+  @Test
+  public void countOncePerCondition() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+
+    Page<MemberTeamDto> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+    long missCount = memberCountCache.getMissCount();
+    long hitCount = memberCountCache.getHitCount();
+
+    // 공백 조건은 조건 없음과 같은 키
+    condition.setUsername(" ");
+    Page<MemberTeamDto> second =
+        memberRepository.searchPageComplex(condition, PageRequest.of(1, 1));
+
+    assertThat(first.getTotalElements()).isEqualTo(3);
+    assertThat(second.getTotalElements()).isEqualTo(3);
+    assertThat(second.getContent()).extracting("username").containsExactly("member3");
+    assertThat(memberCountCache.getMissCount()).isEqualTo(missCount);
+    assertThat(memberCountCache.getHitCount()).isGreaterThan(hitCount);
+  }
+
+  @Test
+  public void invalidateOnInsert() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    assertThat(
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 2)).getTotalElements())
+        .isEqualTo(4);
+
+    transactionTemplate.executeWithoutResult(
+        status -> memberRepository.save(new Member("member5", 50)));
+
+    assertThat(
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 2)).getTotalElements())
+        .isEqualTo(5);
+  }
+
+  @Test
+  public void invalidateOnBulkUpdate() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(30);
+    assertThat(
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 1)).getTotalElements())
+        .isEqualTo(2);
+
+    transactionTemplate.executeWithoutResult(
+        status ->
+            new JPAQueryFactory(em).update(member).set(member.age, member.age.add(20)).execute());
+
+    assertThat(
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 1)).getTotalElements())
+        .isEqualTo(4);
+  }
+
+  @Test
+  public void bypassCacheAfterWriteInTransaction() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    assertThat(
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 2)).getTotalElements())
+        .isEqualTo(4);
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          em.persist(new Member("member5", 50));
+          em.flush();
+
+          assertThat(
+                  memberRepository
+                      .searchPageSimple(condition, PageRequest.of(0, 2))
+                      .getTotalElements())
+              .isEqualTo(5);
+          status.setRollbackOnly();
+        });
+
+    assertThat(
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 2)).getTotalElements())
+        .isEqualTo(4);
+  }
+
+  @Test
+  public void approximateTotal() {
+    properties.setApproximateThreshold(2);
+    memberCountCache.invalidateAll();
+
+    TotalCountPage<MemberTeamDto> approximate =
+        (TotalCountPage<MemberTeamDto>)
+            memberRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 1));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+    TotalCountPage<MemberTeamDto> exact =
+        (TotalCountPage<MemberTeamDto>)
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 1));
+
+    assertThat(approximate.isTotalApproximate()).isTrue();
+    assertThat(approximate.getTotalElements()).isGreaterThan(2);
+    assertThat(exact.isTotalApproximate()).isFalse();
+    assertThat(exact.getTotalElements()).isEqualTo(2);
+  }
+
+  @Test
+  public void filteredTotalAboveThresholdIsLowerBound() {
+    properties.setApproximateThreshold(2);
+    memberCountCache.invalidateAll();
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(10);
+    TotalCountPage<MemberTeamDto> page =
+        (TotalCountPage<MemberTeamDto>)
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 1));
+
+    assertThat(page.isTotalApproximate()).isTrue();
+    assertThat(page.isTotalLowerBound()).isTrue();
+    assertThat(page.getTotalElements()).isEqualTo(3);
+  }
+}
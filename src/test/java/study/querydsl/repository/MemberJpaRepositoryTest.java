@@ -11,7 +11,10 @@ import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -78,4 +81,42 @@ class MemberJpaRepositoryTest {
 
     assertThat(result).extracting("username").containsExactly("member4");
   }
-}
\ No newline at end of file
+
+  @Test
+  public void saveAll() throws InterruptedException {
+    Team teamA = new Team("TeamA");
+    Team teamB = new Team("TeamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    em.flush();
+    em.clear();
+    Long[] teamIds = {teamA.getId(), teamB.getId()};
+
+    List<WeakReference<Member>> created = new ArrayList<>();
+    Iterable<Member> members =
+        () ->
+            IntStream.range(0, 2500)
+                .mapToObj(
+                    i -> {
+                      Team team = em.getReference(Team.class, teamIds[i % 2]);
+                      Member member = new Member("member" + i, i % 100, team);
+                      created.add(new WeakReference<>(member));
+                      return member;
+                    })
+                .iterator();
+    memberJpaRepository.saveAll(members);
+
+    // 팀의 members 는 비운 뒤에 받은 프록시라 이전 구간의 회원을 붙잡지 않는다. order_inserts 의 정렬기는 마지막으로 flush 한 구간을 다음
+    // flush 까지 들고 있으므로 그 앞 구간만 본다
+    List<WeakReference<Member>> flushedBefore = created.subList(0, 2000);
+    for (int i = 0; i < 50 && flushedBefore.stream().anyMatch(ref -> ref.get() != null); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertThat(flushedBefore).allMatch(ref -> ref.get() == null);
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("TeamB");
+    assertThat(memberJpaRepository.searchByWhere(condition)).hasSize(1250);
+  }
+}
@@ -0,0 +1,134 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 커밋된 데이터만 읽기 모델에 올라가므로 데이터를 실제로 커밋하고 테스트 후 지운다. */
+@SpringBootTest
+class MemberReadModelTest {
+
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired MemberSearchQueryCache searchQueryCache;
+  @Autowired MemberReadModel readModel;
+  @Autowired MemberReadModelProperties properties;
+
+  @BeforeEach
+  public void beforeEach() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          Team teamA = new Team("teamA");
+          Team teamB = new Team("teamB");
+          em.persist(teamA);
+          em.persist(teamB);
+
+          for (int i = 0; i < 20; i++) {
+            em.persist(
+                new Member("member" + (i % 7), 10 + (i % 5) * 10, i % 2 == 0 ? teamA : teamB));
+          }
+          em.persist(new Member("member0", 30));
+          em.persist(new Member(null, 40));
+        });
+    properties.setEnabled(true);
+  }
+
+  @AfterEach
+  public void afterEach() {
+    properties.setEnabled(false);
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          new JPAQueryFactory(em).delete(member).execute();
+          new JPAQueryFactory(em).delete(team).execute();
+        });
+  }
+
+  @Test
+  public void sameResultsAsDatabase() {
+    String[] usernames = {null, "member0", "member3", "none"};
+    String[] teamNames = {null, "teamA", "teamB", "none"};
+    Integer[] ageGoes = {null, 20, 35, 60};
+    Integer[] ageLoes = {null, 10, 30, 50};
+
+    for (String username : usernames) {
+      for (String teamName : teamNames) {
+        for (Integer ageGoe : ageGoes) {
+          for (Integer ageLoe : ageLoes) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername(username);
+            condition.setTeamName(teamName);
+            condition.setAgeGoe(ageGoe);
+            condition.setAgeLoe(ageLoe);
+
+            assertThat(memberJpaRepository.searchByWhere(condition))
+                .as("%s", condition)
+                .containsExactlyInAnyOrderElementsOf(searchQueryCache.search(em, condition));
+          }
+        }
+      }
+    }
+    assertThat(readModel.getRowCount()).isEqualTo(22);
+    assertThat(readModel.getBytesPerMillionRows()).isPositive();
+  }
+
+  @Test
+  public void refreshAfterSave() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername("member5");
+    assertThat(memberJpaRepository.searchByWhere(condition)).hasSize(3);
+
+    transactionTemplate.executeWithoutResult(
+        status -> memberJpaRepository.save(new Member("member5", 99)));
+
+    assertThat(memberJpaRepository.searchByWhere(condition))
+        .extracting("age")
+        .containsExactlyInAnyOrder(10, 30, 50, 99);
+  }
+
+  @Test
+  public void refreshAfterBulkUpdateAndDelete() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(50);
+    assertThat(memberJpaRepository.searchByWhere(condition)).hasSize(4);
+
+    transactionTemplate.executeWithoutResult(
+        status ->
+            new JPAQueryFactory(em).update(member).set(member.age, member.age.add(10)).execute());
+    assertThat(memberJpaRepository.searchByWhere(condition)).hasSize(9);
+
+    transactionTemplate.executeWithoutResult(
+        status -> new JPAQueryFactory(em).delete(member).where(member.age.goe(60)).execute());
+    assertThat(memberJpaRepository.searchByWhere(condition)).hasSize(5);
+  }
+
+  @Test
+  public void bypassAfterWriteInTransaction() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    assertThat(memberJpaRepository.searchByWhere(condition)).hasSize(22);
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          em.persist(new Member("member7", 70));
+          em.flush();
+
+          assertThat(memberJpaRepository.searchByWhere(condition)).hasSize(23);
+          status.setRollbackOnly();
+        });
+
+    assertThat(memberJpaRepository.searchByWhere(condition)).hasSize(22);
+  }
+}
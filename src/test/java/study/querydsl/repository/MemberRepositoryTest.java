@@ -3,9 +3,15 @@ package study.querydsl.repository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -13,9 +19,13 @@ import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static study.querydsl.entity.QMember.member;
 
 @SpringBootTest
@@ -26,6 +36,8 @@ class MemberRepositoryTest {
 
   @Autowired MemberRepository memberRepository;
 
+  @Autowired MemberTestRepository memberTestRepository;
+
   @Test
   public void basicTest() {
     Member member = new Member("member1", 10);
@@ -95,6 +107,145 @@ class MemberRepositoryTest {
         .containsExactly("member1", "member2", "member3");
   }
 
+  @Test
+  public void searchSlice() {
+    Team teamA = new Team("TeamA");
+    Team teamB = new Team("TeamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+    Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+
+    assertThat(first.getContent())
+        .extracting("username")
+        .containsExactly("member1", "member2", "member3");
+    assertThat(first.hasNext()).isTrue();
+    assertThat(last.getContent()).extracting("username").containsExactly("member4");
+    assertThat(last.hasNext()).isFalse();
+
+    // 딱 맞게 끝나는 경우
+    Slice<MemberTeamDto> exact = memberRepository.searchSlice(condition, PageRequest.of(0, 4));
+    assertThat(exact.getContent()).hasSize(4);
+    assertThat(exact.hasNext()).isFalse();
+  }
+
+  @Test
+  public void walkSortedSlices() {
+    Team teamA = new Team("TeamA");
+    em.persist(teamA);
+    for (int i = 0; i < 7; i++) {
+      em.persist(new Member("member" + i, i % 2 == 0 ? 10 : 20, teamA));
+    }
+
+    List<MemberTeamDto> walked = new ArrayList<>();
+    Pageable pageable = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age"));
+    Slice<MemberTeamDto> slice;
+    do {
+      slice = memberRepository.searchSlice(new MemberSearchCondition(), pageable);
+      walked.addAll(slice.getContent());
+      pageable = slice.nextPageable();
+    } while (slice.hasNext());
+
+    // 나이가 같은 회원끼리는 memberId 순이므로 슬라이스 경계에서 빠지거나 겹치지 않는다
+    assertThat(walked)
+        .extracting("username")
+        .containsExactly(
+            "member1", "member3", "member5", "member0", "member2", "member4", "member6");
+    assertThatThrownBy(
+            () ->
+                memberRepository.searchSlice(
+                    new MemberSearchCondition(), PageRequest.of(0, 2, Sort.by("password"))))
+        .isInstanceOf(InvalidDataAccessApiUsageException.class);
+  }
+
+  @Test
+  public void applySlicePagination() {
+    Team teamA = new Team("TeamA");
+    em.persist(teamA);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamA));
+
+    Slice<Member> result =
+        memberTestRepository.applyMySlice(
+            new MemberSearchCondition(), PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age")));
+
+    assertThat(result.getContent()).extracting("username").containsExactly("member3", "member2");
+    assertThat(result.hasNext()).isTrue();
+  }
+
+  @Test
+  public void searchByCursor() {
+    Team teamA = new Team("TeamA");
+    Team teamB = new Team("TeamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    Member member1 = new Member("member1", 10, teamA);
+    Member member2 = new Member("member2", 20, teamA);
+    Member member3 = new Member("member3", 20, teamB);
+    Member member4 = new Member("member4", 40, teamB);
+    em.persist(member1);
+    em.persist(member2);
+    em.persist(member3);
+    em.persist(member4);
+
+    MemberSearchCondition memberSearchCondition = new MemberSearchCondition();
+    memberSearchCondition.setAgeGoe(10);
+
+    MemberCursorPage first =
+        memberRepository.searchByCursor(memberSearchCondition, MemberCursor.first("age,desc"), 2);
+
+    assertThat(first.getContent()).extracting("username").containsExactly("member4", "member3");
+    assertThat(first.isHasNext()).isTrue();
+
+    MemberCursorPage second =
+        memberRepository.searchByCursor(
+            memberSearchCondition, MemberCursor.decode(first.getNextCursor()), 2);
+
+    assertThat(second.getContent()).extracting("username").containsExactly("member2", "member1");
+    assertThat(second.isHasNext()).isFalse();
+    assertThat(second.getNextCursor()).isNull();
+  }
+
+  @Test
+  public void searchByCursorWithNullUsername() {
+    em.persist(new Member(null, 10));
+    em.persist(new Member("member1", 20));
+    em.persist(new Member("member2", 30));
+
+    MemberSearchCondition memberSearchCondition = new MemberSearchCondition();
+    MemberCursor cursor = MemberCursor.first("username");
+
+    MemberCursorPage first = memberRepository.searchByCursor(memberSearchCondition, cursor, 1);
+    MemberCursorPage second =
+        memberRepository.searchByCursor(
+            memberSearchCondition, MemberCursor.decode(first.getNextCursor()), 5);
+
+    assertThat(first.getContent()).extracting("username").containsExactly((String) null);
+    assertThat(second.getContent()).extracting("username").containsExactly("member1", "member2");
+  }
+
+  @Test
+  public void decodeRejectsForgedAgeCursor() {
+    String forged =
+        Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString("AGE:a:1:v:abc".getBytes(StandardCharsets.UTF_8));
+
+    assertThatThrownBy(() -> MemberCursor.decode(forged))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
   @Test
   public void querydslPredicateExecutorTest() {
     Team teamA = new Team("TeamA");
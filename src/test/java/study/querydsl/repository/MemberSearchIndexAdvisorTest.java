@@ -0,0 +1,52 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.datagen.MemberDataGenerator;
+import study.querydsl.datagen.MemberDataGeneratorProperties;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 데이터 생성기가 별도 커넥션에서 커밋하므로 테스트 후 지운다. */
+@SpringBootTest
+class MemberSearchIndexAdvisorTest {
+
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired MemberDataGenerator memberDataGenerator;
+  @Autowired MemberSearchIndexAdvisor indexAdvisor;
+
+  @AfterEach
+  public void afterEach() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          new JPAQueryFactory(em).delete(member).execute();
+          new JPAQueryFactory(em).delete(team).execute();
+        });
+  }
+
+  @Test
+  public void everyFilteredShapeUsesIndex() {
+    MemberDataGeneratorProperties spec = new MemberDataGeneratorProperties();
+    spec.setTeams(20);
+    spec.setMembers(5_000);
+    memberDataGenerator.generate(spec);
+
+    List<MemberSearchIndexAdvice> advices = indexAdvisor.advise();
+
+    assertThat(advices).hasSize(16);
+    assertThat(advices.get(0).getShape()).isEqualTo("-");
+    assertThat(advices.get(0).getTableScans()).containsExactly("public.member");
+    assertThat(advices.subList(1, 16))
+        .allSatisfy(advice -> assertThat(advice.isIndexed()).as(advice.getPlan()).isTrue());
+  }
+}
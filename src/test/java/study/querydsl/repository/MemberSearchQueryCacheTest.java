@@ -0,0 +1,93 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchQueryCacheTest {
+
+  @Autowired EntityManager em;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired MemberSearchQueryCache searchQueryCache;
+  @Autowired MeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void beforeEach() {
+    Team teamA = new Team("TeamA");
+    Team teamB = new Team("TeamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+    em.persist(new Member("member5", 50));
+  }
+
+  @Test
+  public void everyShapeMatchesBooleanBuilderSearch() {
+    for (int shape = 0; shape < 16; shape++) {
+      MemberSearchCondition condition = new MemberSearchCondition();
+      condition.setUsername((shape & 1) != 0 ? "member3" : null);
+      condition.setTeamName((shape & 2) != 0 ? "TeamB" : null);
+      condition.setAgeGoe((shape & 4) != 0 ? 20 : null);
+      condition.setAgeLoe((shape & 8) != 0 ? 40 : null);
+
+      List<MemberTeamDto> expected = sorted(memberJpaRepository.searchByBuilder(condition));
+      List<MemberTeamDto> actual = sorted(memberJpaRepository.searchByWhere(condition));
+
+      assertThat(actual).as("shape %d", shape).isEqualTo(expected);
+    }
+
+    assertThat(searchQueryCache.getCompiledShapeCount()).isEqualTo(16);
+  }
+
+  @Test
+  public void sameShapeIsCompiledOnce() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+    memberJpaRepository.searchByWhere(condition);
+
+    long hits = searchQueryCache.getHitCount();
+    long misses = searchQueryCache.getMissCount();
+
+    condition.setAgeGoe(30);
+    List<MemberTeamDto> result = memberJpaRepository.searchByWhere(condition);
+
+    assertThat(result).extracting("username").contains("member3", "member4", "member5");
+    assertThat(searchQueryCache.getHitCount()).isEqualTo(hits + 1);
+    assertThat(searchQueryCache.getMissCount()).isEqualTo(misses);
+    assertThat(gets("hit")).isEqualTo(searchQueryCache.getHitCount());
+    assertThat(gets("miss")).isEqualTo(searchQueryCache.getMissCount());
+  }
+
+  private long gets(String result) {
+    return (long)
+        meterRegistry
+            .get("cache.gets")
+            .tags("cache", MemberSearchQueryCache.CACHE_NAME, "result", result)
+            .functionCounter()
+            .count();
+  }
+
+  private List<MemberTeamDto> sorted(List<MemberTeamDto> result) {
+    result.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+    return result;
+  }
+}
@@ -0,0 +1,238 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 커밋된 데이터만 캐시되므로 데이터를 실제로 커밋하고 테스트 후 지운다. 캐시에서 꺼낸 결과는 매번 복사하므로 캐시에서 나왔는지는 적중 수로 확인한다. */
+@SpringBootTest
+class MemberSearchResultCacheTest {
+
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired MemberRepository memberRepository;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired MemberSearchResultCache searchResultCache;
+  @Autowired MeterRegistry meterRegistry;
+
+  Long teamAId;
+  Long teamBId;
+
+  @BeforeEach
+  public void beforeEach() {
+    searchResultCache.invalidateAll();
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          Team teamA = new Team("teamA");
+          Team teamB = new Team("teamB");
+          em.persist(teamA);
+          em.persist(teamB);
+
+          em.persist(new Member("member1", 10, teamA));
+          em.persist(new Member("member2", 20, teamA));
+          em.persist(new Member("member3", 30, teamB));
+          em.persist(new Member("member4", 40, teamB));
+          teamAId = teamA.getId();
+          teamBId = teamB.getId();
+        });
+  }
+
+  @AfterEach
+  public void afterEach() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          new JPAQueryFactory(em).delete(member).execute();
+          new JPAQueryFactory(em).delete(team).execute();
+        });
+  }
+
+  @Test
+  public void repeatedSearchIsServedFromCache() {
+    long hits = searchResultCache.getHitCount();
+    MemberSearchCondition condition = teamName("teamA");
+
+    List<MemberTeamDto> first = memberRepository.search(condition);
+    assertThat(first).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+    assertThat(memberRepository.search(teamName("teamA"))).isEqualTo(first);
+
+    Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+    assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1))).isEqualTo(page);
+    assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(1, 1)))
+        .isNotEqualTo(page);
+
+    assertThat(searchResultCache.getHitCount() - hits).isEqualTo(2);
+    assertThat(searchResultCache.getWeightedSize()).isPositive();
+    assertThat(meterRegistry.get("querydsl.search-result-cache.bytes").gauge().value())
+        .isPositive();
+    assertThat(
+            meterRegistry
+                .get("cache.gets")
+                .tags("cache", MemberSearchResultCache.CACHE_NAME, "result", "hit")
+                .functionCounter()
+                .count())
+        .isPositive();
+  }
+
+  @Test
+  public void cachedResultsAreUnmodifiableCopies() {
+    memberRepository.search(teamName("teamA"));
+
+    List<MemberTeamDto> cached = searchHit(teamName("teamA"));
+    assertThatThrownBy(() -> cached.add(new MemberTeamDto()))
+        .isInstanceOf(UnsupportedOperationException.class);
+    cached.get(0).setUsername("changed");
+
+    assertThat(searchHit(teamName("teamA")))
+        .isNotSameAs(cached)
+        .extracting("username")
+        .containsExactlyInAnyOrder("member1", "member2");
+  }
+
+  @Test
+  public void savingMemberInvalidatesOnlyMatchingResults() {
+    List<MemberTeamDto> teamA = memberRepository.search(teamName("teamA"));
+    List<MemberTeamDto> teamB = memberRepository.search(teamName("teamB"));
+    List<MemberTeamDto> young = memberRepository.search(ageLoe(15));
+
+    transactionTemplate.executeWithoutResult(
+        status ->
+            memberJpaRepository.save(new Member("member5", 50, em.find(Team.class, teamBId))));
+
+    assertThat(searchHit(teamName("teamA"))).isEqualTo(teamA);
+    assertThat(searchHit(ageLoe(15))).isEqualTo(young);
+    assertThat(searchMiss(teamName("teamB")))
+        .isNotEqualTo(teamB)
+        .extracting("username")
+        .containsExactlyInAnyOrder("member3", "member4", "member5");
+  }
+
+  @Test
+  public void updatingMemberInvalidatesResultsItLeavesAndJoins() {
+    List<MemberTeamDto> young = memberRepository.search(ageLoe(15));
+    List<MemberTeamDto> old = memberRepository.search(ageGoe(35));
+    List<MemberTeamDto> middle = memberRepository.search(ageGoe(25, 35));
+
+    transactionTemplate.executeWithoutResult(
+        status ->
+            new JPAQueryFactory(em)
+                .selectFrom(member)
+                .where(member.username.eq("member1"))
+                .fetchOne()
+                .setAge(45));
+
+    assertThat(searchHit(ageGoe(25, 35))).isEqualTo(middle);
+    assertThat(young).isNotEmpty();
+    assertThat(searchMiss(ageLoe(15))).isEmpty();
+    assertThat(searchMiss(ageGoe(35)))
+        .isNotEqualTo(old)
+        .extracting("username")
+        .containsExactlyInAnyOrder("member1", "member4");
+  }
+
+  @Test
+  public void renamingTeamInvalidatesResultsContainingIt() {
+    List<MemberTeamDto> young = memberRepository.search(ageLoe(15));
+    List<MemberTeamDto> teamB = memberRepository.search(teamName("teamB"));
+    List<MemberTeamDto> teamC = memberRepository.search(teamName("teamC"));
+
+    transactionTemplate.executeWithoutResult(
+        status -> em.find(Team.class, teamAId).setName("teamC"));
+
+    assertThat(searchHit(teamName("teamB"))).isEqualTo(teamB);
+    assertThat(searchMiss(ageLoe(15)))
+        .isNotEqualTo(young)
+        .extracting("teamName")
+        .containsExactly("teamC");
+    assertThat(teamC).isEmpty();
+    assertThat(searchMiss(teamName("teamC")))
+        .extracting("username")
+        .containsExactlyInAnyOrder("member1", "member2");
+  }
+
+  @Test
+  public void bulkUpdateInvalidatesMemberResults() {
+    List<MemberTeamDto> teamA = memberRepository.search(teamName("teamA"));
+
+    transactionTemplate.executeWithoutResult(
+        status ->
+            new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.eq("member4"))
+                .execute());
+
+    assertThat(searchMiss(teamName("teamA"))).isEqualTo(teamA);
+  }
+
+  @Test
+  public void readWriteTransactionBypassesCache() {
+    List<MemberTeamDto> teamA = memberRepository.search(teamName("teamA"));
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          em.persist(new Member("member5", 50, em.find(Team.class, teamAId)));
+          assertThat(searchMiss(teamName("teamA")))
+              .isNotEqualTo(teamA)
+              .extracting("username")
+              .contains("member5");
+          status.setRollbackOnly();
+        });
+  }
+
+  private List<MemberTeamDto> searchHit(MemberSearchCondition condition) {
+    long hits = searchResultCache.getHitCount();
+    List<MemberTeamDto> result = memberRepository.search(condition);
+    assertThat(searchResultCache.getHitCount() - hits).as("cache hit").isEqualTo(1);
+    return result;
+  }
+
+  private List<MemberTeamDto> searchMiss(MemberSearchCondition condition) {
+    long hits = searchResultCache.getHitCount();
+    List<MemberTeamDto> result = memberRepository.search(condition);
+    assertThat(searchResultCache.getHitCount()).as("cache hit").isEqualTo(hits);
+    return result;
+  }
+
+  private static MemberSearchCondition teamName(String teamName) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName(teamName);
+    return condition;
+  }
+
+  private static MemberSearchCondition ageLoe(int ageLoe) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeLoe(ageLoe);
+    return condition;
+  }
+
+  private static MemberSearchCondition ageGoe(int ageGoe) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(ageGoe);
+    return condition;
+  }
+
+  private static MemberSearchCondition ageGoe(int ageGoe, int ageLoe) {
+    MemberSearchCondition condition = ageGoe(ageGoe);
+    condition.setAgeLoe(ageLoe);
+    return condition;
+  }
+}
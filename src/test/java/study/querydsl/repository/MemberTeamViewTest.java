@@ -0,0 +1,204 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 커밋될 때 member_team_view 에 반영되므로 데이터를 실제로 커밋하고 테스트 후 지운다. */
+@SpringBootTest
+class MemberTeamViewTest {
+
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired MemberRepository memberRepository;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired MemberSearchQueryCache searchQueryCache;
+  @Autowired MemberTeamViewMaintainer maintainer;
+  @Autowired MemberTeamViewProperties properties;
+
+  @BeforeEach
+  public void beforeEach() {
+    properties.setEnabled(true);
+    maintainer.rebuild();
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          Team teamA = new Team("teamA");
+          Team teamB = new Team("teamB");
+          em.persist(teamA);
+          em.persist(teamB);
+
+          for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, 10 * i, i % 2 == 0 ? teamA : teamB));
+          }
+          em.persist(new Member("member10", 100));
+        });
+  }
+
+  @AfterEach
+  public void afterEach() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          new JPAQueryFactory(em).delete(member).execute();
+          new JPAQueryFactory(em).delete(team).execute();
+        });
+    properties.setEnabled(false);
+  }
+
+  @Test
+  public void sameResultsAsJoin() {
+    assertThat(maintainer.isReadable()).isTrue();
+    assertThat(viewRows()).isEqualTo(11);
+
+    String[] teamNames = {null, "teamA", "teamB", "none"};
+    Integer[] ageGoes = {null, 30};
+    for (String teamName : teamNames) {
+      for (Integer ageGoe : ageGoes) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+
+        assertThat(memberRepository.search(condition))
+            .as("%s", condition)
+            .containsExactlyInAnyOrderElementsOf(searchQueryCache.search(em, condition));
+        assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(0, 3)).getContent())
+            .as("%s", condition)
+            .hasSize(Math.min(3, searchQueryCache.search(em, condition).size()));
+      }
+    }
+  }
+
+  @Test
+  public void updateAndRename() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          Member member1 =
+              new JPAQueryFactory(em)
+                  .selectFrom(member)
+                  .where(member.username.eq("member1"))
+                  .fetchOne();
+          member1.setTeam(null);
+          new JPAQueryFactory(em)
+              .selectFrom(team)
+              .where(team.name.eq("teamA"))
+              .fetchOne()
+              .setName("teamC");
+        });
+
+    assertThat(maintainer.isReadable()).isTrue();
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamC");
+    assertThat(memberRepository.search(condition)).hasSize(5);
+    condition.setTeamName("teamB");
+    assertThat(memberRepository.search(condition))
+        .extracting("username")
+        .doesNotContain("member1")
+        .hasSize(4);
+  }
+
+  @Test
+  public void renameWhileAnotherTransactionMovesMember() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            Team teamA =
+                new JPAQueryFactory(em).selectFrom(team).where(team.name.eq("teamA")).fetchOne();
+            teamA.setName("teamC");
+            em.flush();
+
+            // 팀 이름 변경이 커밋되기 전에 다른 트랜잭션이 그 팀으로 회원을 옮긴다
+            Future<?> move =
+                executor.submit(
+                    () ->
+                        transactionTemplate.executeWithoutResult(
+                            moveStatus ->
+                                new JPAQueryFactory(em)
+                                    .selectFrom(member)
+                                    .where(member.username.eq("member1"))
+                                    .fetchOne()
+                                    .setTeam(em.find(Team.class, teamA.getId()))));
+            assertThatThrownBy(() -> move.get(300, TimeUnit.MILLISECONDS))
+                .isInstanceOf(TimeoutException.class);
+          });
+      executor.shutdown();
+      assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "select team_name from member_team_view where username = 'member1'", String.class))
+        .isEqualTo("teamC");
+  }
+
+  @Test
+  public void bulkUpdateAndSaveAll() {
+    transactionTemplate.executeWithoutResult(
+        status ->
+            new JPAQueryFactory(em).update(member).set(member.age, member.age.add(1)).execute());
+    assertThat(maintainer.isReadable()).isTrue();
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(91);
+    assertThat(memberRepository.search(condition))
+        .extracting("age")
+        .containsExactlyInAnyOrder(91, 101);
+
+    // flush 마다 영속성 컨텍스트를 비워도 커밋할 때 모두 반영된다
+    List<Member> members = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      members.add(new Member("bulk", 200, new Team("teamBulk")));
+    }
+    transactionTemplate.executeWithoutResult(status -> memberJpaRepository.saveAll(members));
+    condition.setTeamName("teamBulk");
+    assertThat(memberRepository.search(condition)).hasSize(25);
+    assertThat(viewRows()).isEqualTo(36);
+  }
+
+  @Test
+  public void bypassAfterWriteInTransaction() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          em.persist(new Member("member11", 110));
+          em.flush();
+
+          assertThat(maintainer.isReadable()).isFalse();
+          assertThat(memberRepository.search(condition)).hasSize(12);
+          status.setRollbackOnly();
+        });
+
+    assertThat(maintainer.isReadable()).isTrue();
+    assertThat(viewRows()).isEqualTo(11);
+    assertThat(memberRepository.search(condition)).hasSize(11);
+  }
+
+  private int viewRows() {
+    return jdbcTemplate.queryForObject("select count(*) from member_team_view", Integer.class);
+  }
+}
@@ -0,0 +1,170 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 커밋된 데이터만 캐시되므로 데이터를 실제로 커밋하고 테스트 후 지운다. */
+@SpringBootTest
+class TeamCacheTest {
+
+  @Autowired EntityManager em;
+  @Autowired EntityManagerFactory emf;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired MemberRepository memberRepository;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired TeamNameDictionary teamNameDictionary;
+  @Autowired MeterRegistry meterRegistry;
+
+  Long teamAId;
+
+  @BeforeEach
+  public void beforeEach() {
+    teamAId =
+        transactionTemplate.execute(
+            status -> {
+              Team teamA = new Team("teamA");
+              Team teamB = new Team("teamB");
+              Team otherTeamA = new Team("teamA2");
+              em.persist(teamA);
+              em.persist(teamB);
+              em.persist(otherTeamA);
+
+              em.persist(new Member("member1", 10, teamA));
+              em.persist(new Member("member2", 20, teamA));
+              em.persist(new Member("member3", 30, teamB));
+              em.persist(new Member("member4", 40, otherTeamA));
+              return teamA.getId();
+            });
+  }
+
+  @AfterEach
+  public void afterEach() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          new JPAQueryFactory(em).delete(member).execute();
+          new JPAQueryFactory(em).delete(team).execute();
+        });
+  }
+
+  @Test
+  public void teamNameBecomesTeamId() {
+    assertThat(teamNameDictionary.teamNameEq("teamA")).isEqualTo(member.team.id.eq(teamAId));
+    assertThat(TeamNameDictionary.joinsTeam(teamNameDictionary.teamNameEq("teamA"))).isFalse();
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+    assertThat(memberJpaRepository.searchMember(condition))
+        .extracting("username")
+        .containsExactlyInAnyOrder("member1", "member2");
+    assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)))
+        .extracting("teamName")
+        .containsExactly("teamA");
+
+    condition.setTeamName("none");
+    assertThat(memberJpaRepository.searchMember(condition)).isEmpty();
+  }
+
+  @Test
+  public void sameNameTeams() {
+    transactionTemplate.executeWithoutResult(
+        status -> em.persist(new Member("member5", 50, renameTeam("teamA2", "teamA"))));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+    assertThat(memberJpaRepository.searchMember(condition))
+        .extracting("username")
+        .containsExactlyInAnyOrder("member1", "member2", "member4", "member5");
+  }
+
+  @Test
+  public void nameConditionInsideWriteTransaction() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          renameTeam("teamB", "teamC");
+          em.flush();
+
+          assertThat(TeamNameDictionary.joinsTeam(teamNameDictionary.teamNameEq("teamC"))).isTrue();
+          MemberSearchCondition condition = new MemberSearchCondition();
+          condition.setTeamName("teamC");
+          assertThat(memberJpaRepository.searchMember(condition))
+              .extracting("username")
+              .containsExactly("member3");
+        });
+
+    // 커밋 후에는 바뀐 이름으로 사전을 다시 채운다
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+    assertThat(memberJpaRepository.searchMember(condition)).isEmpty();
+    condition.setTeamName("teamC");
+    assertThat(memberJpaRepository.searchMember(condition))
+        .extracting("username")
+        .containsExactly("member3");
+  }
+
+  @Test
+  public void secondLevelCache() {
+    emf.getCache().evictAll();
+    double hits = cacheCount("team", "cache.gets", "hit");
+
+    transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamAId));
+    assertThat(emf.getCache().contains(Team.class, teamAId)).isTrue();
+
+    // 다른 영속성 컨텍스트에서 지연 로딩해도 DB 대신 2차 캐시에서 읽는다
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          Member member1 =
+              em.createQuery("select m from Member m where m.username = 'member1'", Member.class)
+                  .getSingleResult();
+          assertThat(member1.getTeam().getName()).isEqualTo("teamA");
+        });
+    assertThat(cacheCount("team", "cache.gets", "hit")).isGreaterThan(hits);
+  }
+
+  @Test
+  public void dictionaryMetrics() {
+    teamNameDictionary.invalidateAll();
+    double misses = cacheCount(TeamNameDictionary.CACHE_NAME, "cache.gets", "miss");
+    double hits = cacheCount(TeamNameDictionary.CACHE_NAME, "cache.gets", "hit");
+
+    teamNameDictionary.teamNameEq("teamB");
+    teamNameDictionary.teamNameEq("teamB");
+
+    assertThat(cacheCount(TeamNameDictionary.CACHE_NAME, "cache.gets", "miss"))
+        .isEqualTo(misses + 1);
+    assertThat(cacheCount(TeamNameDictionary.CACHE_NAME, "cache.gets", "hit")).isEqualTo(hits + 1);
+    assertThat(meterRegistry.find("cache.evictions").tag("cache", "team").meter()).isNotNull();
+  }
+
+  private Team renameTeam(String from, String to) {
+    Team found =
+        em.createQuery("select t from Team t where t.name = :name", Team.class)
+            .setParameter("name", from)
+            .getSingleResult();
+    found.setName(to);
+    return found;
+  }
+
+  private double cacheCount(String cache, String name, String result) {
+    FunctionCounter counter =
+        meterRegistry.find(name).tag("cache", cache).tag("result", result).functionCounter();
+    return counter != null ? counter.count() : 0;
+  }
+}
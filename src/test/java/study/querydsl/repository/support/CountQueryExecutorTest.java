@@ -0,0 +1,187 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/** 별도 커넥션에서 count 를 실행하므로 데이터를 실제로 커밋하고 테스트 후 지운다. */
+@SpringBootTest(
+    properties = {
+      "querydsl.pagination.concurrent-count.enabled=true",
+      "querydsl.pagination.concurrent-count.timeout=300ms"
+    })
+class CountQueryExecutorTest {
+
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired CountQueryExecutor countQueryExecutor;
+  @Autowired MemberRepository memberRepository;
+  @Autowired MeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void beforeEach() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          Team teamA = new Team("TeamA");
+          Team teamB = new Team("TeamB");
+          em.persist(teamA);
+          em.persist(teamB);
+
+          em.persist(new Member("member1", 10, teamA));
+          em.persist(new Member("member2", 20, teamA));
+          em.persist(new Member("member3", 30, teamB));
+          em.persist(new Member("member4", 40, teamB));
+        });
+  }
+
+  @AfterEach
+  public void afterEach() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          new JPAQueryFactory(em).delete(member).execute();
+          new JPAQueryFactory(em).delete(team).execute();
+        });
+  }
+
+  @Test
+  public void countConcurrently() {
+    try (PendingCount total =
+        countQueryExecutor.submit(
+            query -> query.selectFrom(member).where(member.age.goe(20)), new JPAQueryFactory(em))) {
+
+      assertThat(total.isConcurrent()).isTrue();
+      assertThat(total.get(Pageable.unpaged(), List.of())).isEqualTo(TotalCount.exact(3));
+    }
+  }
+
+  @Test
+  public void countInlineInReadWriteTransaction() {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          em.persist(new Member("member5", 50));
+
+          try (PendingCount total =
+              countQueryExecutor.submit(
+                  query -> query.selectFrom(member), new JPAQueryFactory(em))) {
+
+            assertThat(total.isConcurrent()).isFalse();
+            assertThat(total.get(Pageable.unpaged(), List.of())).isEqualTo(TotalCount.exact(5));
+          }
+        });
+  }
+
+  @Test
+  public void lowerBoundAndCancelOnTimeout() throws InterruptedException {
+    double cancelledBefore = count("cancelled");
+    try (PendingCount total =
+        countQueryExecutor.submit(
+            query -> {
+              if (Thread.currentThread().getName().startsWith("count-query-")) {
+                sleep(1000);
+              }
+              return query.selectFrom(member);
+            },
+            new JPAQueryFactory(em))) {
+
+      // 다시 세지 않고 offset + 컨텐츠 수를 추정값으로 쓴다
+      assertThat(total.get(PageRequest.of(1, 2), List.of("member3", "member4")))
+          .isEqualTo(TotalCount.atLeast(4));
+    }
+
+    // 취소된 count 는 문장을 실행하지 않는다
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (count("cancelled") == cancelledBefore && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertThat(count("cancelled")).isEqualTo(cancelledBefore + 1);
+  }
+
+  /** query timeout 으로 끊기면 명시적 취소 없이도 cancelled 로 세므로 timeout 을 길게 잡는다 */
+  @Nested
+  @TestPropertySource(properties = "querydsl.pagination.concurrent-count.timeout=30s")
+  class LongTimeout {
+
+    @Test
+    public void cancelRunningStatement() throws InterruptedException {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            for (int i = 0; i < 2000; i++) {
+              em.persist(new Member("bulk" + i, i % 100));
+            }
+          });
+      QMember m2 = new QMember("m2");
+      QMember m3 = new QMember("m3");
+      double cancelledBefore = count("cancelled");
+
+      long start = System.nanoTime();
+      PendingCount total =
+          countQueryExecutor.submit(
+              query -> query.selectFrom(member).from(m2, m3), new JPAQueryFactory(em));
+      try {
+        // 80 억 행 cross join. 취소하지 않으면 몇 분 동안 실행된다. JDBC 실행이 시작될 때까지 기다린다
+        Thread.sleep(500);
+      } finally {
+        total.close();
+      }
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+      while (count("cancelled") == cancelledBefore && System.nanoTime() < deadline) {
+        Thread.sleep(20);
+      }
+      assertThat(count("cancelled")).isEqualTo(cancelledBefore + 1);
+      assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(2));
+    }
+  }
+
+  @Test
+  public void searchPageComplex() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("TeamB");
+
+    Page<MemberTeamDto> result =
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+
+    assertThat(result.getContent()).extracting("username").containsExactly("member3");
+    assertThat(result.getTotalElements()).isEqualTo(2);
+  }
+
+  private double count(String outcome) {
+    return meterRegistry
+        .get("querydsl.pagination.concurrent-count")
+        .tag("outcome", outcome)
+        .counter()
+        .count();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
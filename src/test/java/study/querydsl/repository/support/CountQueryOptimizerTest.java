@@ -0,0 +1,175 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.QueryStatistics;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class CountQueryOptimizerTest {
+
+  @Autowired EntityManager em;
+  @Autowired CountQueryOptimizer countQueryOptimizer;
+  @Autowired MemberTestRepository memberTestRepository;
+  @Autowired NPlusOneDetector nPlusOneDetector;
+
+  JPAQueryFactory queryFactory;
+
+  @BeforeEach
+  public void beforeEach() {
+    queryFactory = new JPAQueryFactory(em);
+
+    Team teamA = new Team("TeamA");
+    Team teamB = new Team("TeamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+    em.persist(new Member("member5", 50));
+  }
+
+  @Test
+  public void dropUnusedLeftJoinAndOrderBy() {
+    JPAQuery<Member> contentQuery =
+        queryFactory
+            .selectFrom(member)
+            .leftJoin(member.team, team)
+            .where(member.age.goe(20))
+            .orderBy(member.username.desc())
+            .offset(1)
+            .limit(2);
+
+    JPAQuery<?> countQuery = countQueryOptimizer.derive(contentQuery).apply(queryFactory);
+    String sql = countSql(countQuery);
+
+    assertThat(sql).startsWith("select count(member0_.member_id) as col_0_0_ from member member0_");
+    assertThat(sql).doesNotContain("join").doesNotContain("order by");
+    assertThat(countQuery.fetchCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void keepLeftJoinUsedByPredicate() {
+    JPAQuery<Member> contentQuery =
+        queryFactory
+            .selectFrom(member)
+            .leftJoin(member.team, team)
+            .where(team.name.eq("TeamB"))
+            .orderBy(member.age.asc());
+
+    JPAQuery<?> countQuery = countQueryOptimizer.derive(contentQuery).apply(queryFactory);
+
+    assertThat(countSql(countQuery)).contains("left outer join team").doesNotContain("order by");
+    assertThat(countQuery.fetchCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void keepCollectionLeftJoin() {
+    JPAQuery<Team> contentQuery =
+        queryFactory.selectFrom(team).leftJoin(team.members, member).orderBy(team.name.asc());
+
+    JPAQuery<?> countQuery = countQueryOptimizer.derive(contentQuery).apply(queryFactory);
+
+    assertThat(countSql(countQuery)).contains("left outer join member");
+    assertThat(countQuery.fetchCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void keepJoinReferencedFromSubQuery() {
+    QMember memberSub = new QMember("memberSub");
+    JPAQuery<Member> contentQuery =
+        queryFactory
+            .selectFrom(member)
+            .leftJoin(member.team, team)
+            .where(
+                member.age.goe(
+                    JPAExpressions.select(memberSub.age.avg())
+                        .from(memberSub)
+                        .where(memberSub.team.eq(team))));
+
+    JPAQuery<?> countQuery = countQueryOptimizer.derive(contentQuery).apply(queryFactory);
+
+    assertThat(countSql(countQuery)).contains("left outer join team");
+  }
+
+  @Test
+  public void fetchJoinBecomesPlainJoin() {
+    JPAQuery<Member> contentQuery =
+        queryFactory.selectFrom(member).join(member.team, team).fetchJoin();
+
+    JPAQuery<?> countQuery = countQueryOptimizer.derive(contentQuery).apply(queryFactory);
+
+    assertThat(countSql(countQuery)).contains("inner join team");
+    assertThat(countQuery.fetchCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void applyPaginationCountsWithoutJoin() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+
+    try (QueryStatistics statistics = nPlusOneDetector.open("applyPagination")) {
+      Page<Member> result =
+          memberTestRepository.applyMyPagination(
+              condition, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age")));
+
+      assertThat(result.getContent()).extracting("username").containsExactly("member5", "member4");
+      assertThat(result.getTotalElements()).isEqualTo(4);
+      assertThat(selects(statistics))
+          .filteredOn(sql -> !sql.startsWith("select count("))
+          .singleElement()
+          .asString()
+          .contains("left outer join team");
+      assertThat(executedCountSql(statistics)).doesNotContain("join");
+    }
+  }
+
+  /** count 쿼리를 실행하고 실제로 나간 SQL 을 돌려준다 */
+  private String countSql(JPAQuery<?> countQuery) {
+    try (QueryStatistics statistics = nPlusOneDetector.open("countSql")) {
+      countQuery.fetchCount();
+      return executedCountSql(statistics);
+    }
+  }
+
+  private static String executedCountSql(QueryStatistics statistics) {
+    List<String> counts =
+        selects(statistics).stream()
+            .filter(sql -> sql.startsWith("select count("))
+            .collect(Collectors.toList());
+    assertThat(counts).hasSize(1);
+    return counts.get(0);
+  }
+
+  /** 실행된 select 문. flush 로 나간 insert 는 뺀다 */
+  private static List<String> selects(QueryStatistics statistics) {
+    return statistics.getStatementCounts().keySet().stream()
+        .filter(sql -> sql.startsWith("select"))
+        .collect(Collectors.toList());
+  }
+}
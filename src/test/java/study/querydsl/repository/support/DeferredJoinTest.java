@@ -0,0 +1,132 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class DeferredJoinTest {
+
+  @Autowired EntityManager em;
+  @Autowired CountQueryOptimizer countQueryOptimizer;
+  @Autowired DeferredJoinProperties properties;
+  @Autowired MemberRepository memberRepository;
+  @Autowired MemberTestRepository memberTestRepository;
+
+  JPAQueryFactory queryFactory;
+
+  @BeforeEach
+  public void beforeEach() {
+    queryFactory = new JPAQueryFactory(em);
+
+    Team teamA = new Team("TeamA");
+    Team teamB = new Team("TeamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    for (int i = 0; i < 10; i++) {
+      em.persist(new Member("member" + i, 10 * (i % 4), i % 2 == 0 ? teamA : teamB));
+    }
+    em.persist(new Member("member10", 20));
+    em.flush();
+    em.clear();
+  }
+
+  @AfterEach
+  public void afterEach() {
+    properties.setMinOffset(1000);
+  }
+
+  @Test
+  public void idQueryKeepsOrderAndJoinUsedByOrder() {
+    JPAQuery<Member> contentQuery =
+        queryFactory
+            .selectFrom(member)
+            .leftJoin(member.team, team)
+            .where(member.age.goe(10))
+            .orderBy(team.name.desc(), member.age.asc(), member.id.asc());
+
+    JPAQuery<?> idQuery = countQueryOptimizer.deriveIdQuery(contentQuery).apply(queryFactory);
+
+    assertThat(idQuery.getMetadata().getJoins()).hasSize(2);
+    assertThat(idQuery.getMetadata().getOrderBy()).hasSize(3);
+    List<Object> ids = new ArrayList<>(idQuery.offset(1).limit(2).fetch());
+    assertThat(ids)
+        .containsExactlyElementsOf(
+            contentQuery.offset(1).limit(2).fetch().stream()
+                .map(Member::getId)
+                .collect(Collectors.toList()));
+
+    // 정렬에 쓰이지 않는 left join 은 빠진다
+    JPAQuery<Member> unsorted =
+        queryFactory.selectFrom(member).leftJoin(member.team, team).where(member.age.goe(10));
+    assertThat(
+            countQueryOptimizer
+                .deriveIdQuery(unsorted)
+                .apply(queryFactory)
+                .getMetadata()
+                .getJoins())
+        .hasSize(1);
+  }
+
+  @Test
+  public void sameAsOffsetPaging() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(10);
+    Sort sort = Sort.by(Sort.Direction.DESC, "age").and(Sort.by("username"));
+
+    for (int page = 0; page < 4; page++) {
+      PageRequest pageRequest = PageRequest.of(page, 3, sort);
+      properties.setMinOffset(1000);
+      Page<Member> expected =
+          memberTestRepository.applyMyDeferredPagination(condition, pageRequest);
+      properties.setMinOffset(0);
+      Page<Member> actual = memberTestRepository.applyMyDeferredPagination(condition, pageRequest);
+
+      assertThat(actual.getContent())
+          .extracting("username")
+          .containsExactlyElementsOf(
+              expected.getContent().stream().map(Member::getUsername).collect(Collectors.toList()));
+      assertThat(actual.getTotalElements()).isEqualTo(expected.getTotalElements()).isEqualTo(8);
+    }
+  }
+
+  @Test
+  public void searchPageSimple() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("TeamB");
+
+    properties.setMinOffset(0);
+    Page<MemberTeamDto> result = memberRepository.searchPageSimple(condition, PageRequest.of(1, 2));
+
+    assertThat(result.getContent()).extracting("teamName").containsOnly("TeamB");
+    assertThat(result.getContent()).extracting("username").containsExactly("member5", "member7");
+    assertThat(result.getTotalElements()).isEqualTo(5);
+
+    Page<MemberTeamDto> empty = memberRepository.searchPageSimple(condition, PageRequest.of(5, 2));
+    assertThat(empty.getContent()).isEmpty();
+  }
+}
@@ -0,0 +1,161 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.QueryStatistics;
+import study.querydsl.repository.MemberFetchPlans;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberTestRepository;
+import study.querydsl.repository.TeamTestRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class FetchPlanTest {
+
+  @Autowired EntityManager em;
+  @Autowired NPlusOneDetector nPlusOneDetector;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired MemberTestRepository memberTestRepository;
+  @Autowired TeamTestRepository teamTestRepository;
+
+  @BeforeEach
+  public void beforeEach() {
+    for (int i = 0; i < 5; i++) {
+      Team team = new Team("team" + i);
+      em.persist(team);
+      for (int j = 0; j <= i; j++) {
+        em.persist(new Member("member" + i + "_" + j, 10 * i + j, team));
+      }
+    }
+    em.flush();
+    em.clear();
+  }
+
+  @Test
+  public void searchMemberWithTeam() {
+    try (QueryStatistics statistics = nPlusOneDetector.open("searchMemberWithTeam")) {
+      List<Member> members =
+          memberJpaRepository.searchMember(new MemberSearchCondition(), MemberFetchPlans.TEAM);
+
+      assertThat(members).hasSize(15);
+      assertThat(members).allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+      assertThat(statistics.getStatements()).isEqualTo(1);
+    }
+
+    em.clear();
+    assertThat(memberTestRepository.basicSelectFrom(MemberFetchPlans.TEAM))
+        .allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+  }
+
+  @Test
+  public void pageMembersWithTeam() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+    PageRequest pageRequest = PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "age"));
+
+    List<Member> expected =
+        memberTestRepository.applyMyPagination(condition, pageRequest).getContent();
+    em.clear();
+
+    Page<Member> page =
+        memberTestRepository.applyMyPagination(condition, pageRequest, MemberFetchPlans.TEAM);
+    assertThat(page.getContent()).extracting("id").containsExactlyElementsOf(ids(expected));
+    assertThat(page.getContent()).allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+    assertThat(page.getTotalElements()).isEqualTo(12);
+
+    em.clear();
+    Page<Member> applyPage =
+        memberTestRepository.searchPageByApplyPage(condition, pageRequest, MemberFetchPlans.TEAM);
+    assertThat(applyPage.getContent()).extracting("id").containsExactlyElementsOf(ids(expected));
+    assertThat(applyPage.getContent())
+        .allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+  }
+
+  @Test
+  public void pageTeamsWithMembersByIdFirst() {
+    PageRequest pageRequest = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "name"));
+
+    try (QueryStatistics statistics = nPlusOneDetector.open("pageTeamsWithMembersByIdFirst")) {
+      Page<Team> page =
+          teamTestRepository.searchPage("team", pageRequest, MemberFetchPlans.MEMBERS);
+
+      assertThat(page.getContent()).extracting("name").containsExactly("team2", "team1");
+      assertThat(page.getContent()).allMatch(team -> Hibernate.isInitialized(team.getMembers()));
+      assertThat(page.getContent().get(0).getMembers()).hasSize(3);
+      assertThat(page.getTotalElements()).isEqualTo(5);
+      // count, 식별자, fetch join
+      assertThat(statistics.getStatements()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void collectionFetchWithLimitFails() {
+    JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+
+    assertThatThrownBy(
+            () -> MemberFetchPlans.MEMBERS.applyTo(queryFactory.selectFrom(team)).limit(2).fetch())
+        .hasMessageContaining("collection fetch");
+  }
+
+  @Test
+  public void reuseAliasJoin() {
+    JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+
+    String jpql =
+        MemberFetchPlans.TEAM
+            .applyTo(queryFactory.selectFrom(member).leftJoin(member.team, team))
+            .where(team.name.eq("team1"))
+            .toString();
+    assertThat(jpql).containsOnlyOnce("join").contains("left join fetch member1.team as team");
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("team1");
+    List<Member> members = memberJpaRepository.searchMember(condition, MemberFetchPlans.TEAM);
+    assertThat(members).extracting("username").containsExactlyInAnyOrder("member1_0", "member1_1");
+    assertThat(members).allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+
+    assertThatThrownBy(
+            () ->
+                MemberFetchPlans.TEAM.applyTo(
+                    queryFactory
+                        .selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .leftJoin(team.members, new QMember("teammate"))))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void applyPageRejectsCollectionFetch() {
+    assertThatThrownBy(
+            () ->
+                memberTestRepository.searchPageByApplyPage(
+                    new MemberSearchCondition(), PageRequest.of(0, 2), MemberFetchPlans.MEMBERS))
+        .hasRootCauseInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static List<Long> ids(List<Member> members) {
+    return members.stream().map(Member::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class IdBlockAllocatorTest {
+
+  @Autowired DataSource dataSource;
+  @Autowired EntityManagerFactory entityManagerFactory;
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+
+  @Test
+  public void uniqueUnderConcurrentAllocation() throws Exception {
+    SessionFactoryImplementor sessionFactory =
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try (IdBlockAllocator allocator =
+        IdBlockAllocator.forEntity(dataSource, sessionFactory, Member.class)) {
+      assertThat(allocator.getBlockSize()).isEqualTo(50);
+
+      List<Future<List<Long>>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  List<Long> ids = new ArrayList<>();
+                  for (int j = 0; j < 500; j++) {
+                    ids.add(allocator.next());
+                  }
+                  return ids;
+                }));
+      }
+
+      // Hibernate 도 같은 시퀀스에서 동시에 block 을 받는다
+      List<Long> hibernateIds = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        transactionTemplate.executeWithoutResult(
+            status -> {
+              for (int j = 0; j < 60; j++) {
+                Member member = new Member("member" + j);
+                em.persist(member);
+                hibernateIds.add(member.getId());
+              }
+              status.setRollbackOnly();
+            });
+      }
+
+      Set<Long> ids = new HashSet<>(hibernateIds);
+      for (Future<List<Long>> future : futures) {
+        ids.addAll(future.get());
+      }
+      assertThat(ids).hasSize(4 * 500 + 3 * 60);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void closeHandsBackPrefetchedBlocks() {
+    SessionFactoryImplementor sessionFactory =
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+
+    long first;
+    try (IdBlockAllocator allocator =
+        IdBlockAllocator.forEntity(dataSource, sessionFactory, Member.class, 2)) {
+      first = allocator.nextBlock();
+    }
+
+    // 미리 받아 둔 두 block 을 다음 할당기가 이어서 쓰므로 시퀀스에 빈 구간이 생기지 않는다.
+    // 미리 받기와 첫 요청은 동시에 시퀀스를 부르므로 어느 쪽이 먼저 받을지는 모른다
+    try (IdBlockAllocator allocator =
+        IdBlockAllocator.forEntity(dataSource, sessionFactory, Member.class, 0)) {
+      List<Long> blocks =
+          new ArrayList<>(List.of(first, allocator.nextBlock(), allocator.nextBlock()));
+      blocks.sort(null);
+      long base = blocks.get(0);
+      assertThat(blocks).containsExactly(base, base + 50, base + 100);
+      assertThat(allocator.nextBlock()).isEqualTo(base + 150);
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class QueryCoalescerTest {
+
+  @Autowired QueryCoalescer queryCoalescer;
+  @Autowired QueryCoalescingProperties properties;
+  @Autowired MeterRegistry meterRegistry;
+  @Autowired TransactionTemplate transactionTemplate;
+
+  ExecutorService executor = Executors.newFixedThreadPool(5);
+
+  @AfterEach
+  public void afterEach() {
+    executor.shutdownNow();
+    properties.setMaxWait(Duration.ofSeconds(2));
+  }
+
+  @Test
+  public void concurrentIdenticalCallsShareOneExecution() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger executions = new AtomicInteger();
+    Supplier<String> query =
+        () -> {
+          executions.incrementAndGet();
+          await(release);
+          return "result";
+        };
+
+    Future<String> leader = executor.submit(() -> queryCoalescer.execute("same", "key", query));
+    waitUntilInFlight();
+    List<Future<String>> followers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      followers.add(executor.submit(() -> queryCoalescer.execute("same", "key", query)));
+    }
+    // 기다리는 쪽이 모두 합류할 시간을 준다
+    Thread.sleep(200);
+    release.countDown();
+
+    assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+    for (Future<String> follower : followers) {
+      assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(leader.get());
+    }
+    assertThat(executions).hasValue(1);
+    assertThat(count("same", "executed")).isEqualTo(1);
+    assertThat(count("same", "coalesced")).isEqualTo(4);
+    assertThat(queryCoalescer.getInFlightCount()).isZero();
+  }
+
+  @Test
+  public void differentKeysRunSeparately() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<String> first =
+        executor.submit(
+            () ->
+                queryCoalescer.execute(
+                    "keys",
+                    "a",
+                    () -> {
+                      await(release);
+                      return "a";
+                    }));
+    waitUntilInFlight();
+
+    assertThat(queryCoalescer.execute("keys", "b", () -> "b")).isEqualTo("b");
+    release.countDown();
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+    assertThat(count("keys", "coalesced")).isZero();
+  }
+
+  @Test
+  public void runsItselfAfterMaxWait() throws Exception {
+    properties.setMaxWait(Duration.ofMillis(50));
+    CountDownLatch release = new CountDownLatch(1);
+    Future<String> leader =
+        executor.submit(
+            () ->
+                queryCoalescer.execute(
+                    "slow",
+                    "key",
+                    () -> {
+                      await(release);
+                      return "leader";
+                    }));
+    waitUntilInFlight();
+
+    assertThat(queryCoalescer.execute("slow", "key", () -> "own")).isEqualTo("own");
+    assertThat(count("slow", "timeout")).isEqualTo(1);
+
+    release.countDown();
+    assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("leader");
+  }
+
+  @Test
+  public void followersReceiveLeaderFailure() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<String> leader =
+        executor.submit(
+            () ->
+                queryCoalescer.execute(
+                    "failing",
+                    "key",
+                    () -> {
+                      await(release);
+                      throw new IllegalArgumentException("boom");
+                    }));
+    waitUntilInFlight();
+
+    Future<String> follower =
+        executor.submit(() -> queryCoalescer.execute("failing", "key", () -> "unused"));
+    Thread.sleep(200);
+    release.countDown();
+
+    assertThatThrownBy(follower::get).hasCauseInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(leader::get).hasCauseInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void readWriteTransactionIsNotCoalesced() {
+    transactionTemplate.executeWithoutResult(
+        status ->
+            queryCoalescer.execute(
+                "tx",
+                "key",
+                () -> {
+                  assertThat(queryCoalescer.getInFlightCount()).isZero();
+                  return null;
+                }));
+    assertThat(count("tx", "executed")).isZero();
+  }
+
+  private void waitUntilInFlight() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (queryCoalescer.getInFlightCount() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(queryCoalescer.getInFlightCount()).isEqualTo(1);
+  }
+
+  private double count(String operation, String outcome) {
+    Counter counter =
+        meterRegistry
+            .find("querydsl.coalescing.calls")
+            .tags("operation", operation, "outcome", outcome)
+            .counter();
+    return counter != null ? counter.count() : 0;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class ReadOnlyQueryExecutorTest {
+
+  @Autowired EntityManager em;
+  @Autowired ReadOnlyQueryExecutor readOnlyQueryExecutor;
+  @Autowired ReadOnlyQueryProperties properties;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired MemberTestRepository memberTestRepository;
+
+  @AfterEach
+  public void afterEach() {
+    properties.setEnabled(true);
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void readOnlyTransactionWithoutCallerTransaction() {
+    readOnlyQueryExecutor.execute(
+        () -> {
+          assertThat(TransactionSynchronizationManager.isCurrentTransactionReadOnly()).isTrue();
+          Session session = em.unwrap(Session.class);
+          assertThat(session.isDefaultReadOnly()).isTrue();
+          assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+          return null;
+        });
+  }
+
+  @Test
+  public void searchResultsAreNotDirtyChecked() {
+    persistMembers();
+    Session session = em.unwrap(Session.class);
+
+    List<Member> members = memberJpaRepository.searchMember(new MemberSearchCondition());
+    assertThat(members).allMatch(session::isReadOnly);
+    assertThat(session.isDefaultReadOnly()).isFalse();
+
+    members.forEach(member -> member.setUsername("changed"));
+    em.flush();
+    em.clear();
+
+    assertThat(memberTestRepository.basicSelectFrom())
+        .extracting("username")
+        .doesNotContain("changed");
+  }
+
+  @Test
+  public void pagedSearchResultsAreReadOnly() {
+    persistMembers();
+    Session session = em.unwrap(Session.class);
+
+    assertThat(
+            memberTestRepository
+                .applyMyPagination(new MemberSearchCondition(), PageRequest.of(0, 2))
+                .getContent())
+        .hasSize(2)
+        .allMatch(session::isReadOnly);
+  }
+
+  @Test
+  public void seesUnflushedWritesOfCallerTransaction() {
+    persistMembers();
+    em.persist(new Member("unflushed", 50));
+
+    assertThat(memberJpaRepository.searchMember(new MemberSearchCondition()))
+        .extracting("username")
+        .contains("unflushed");
+  }
+
+  @Test
+  public void disabled() {
+    properties.setEnabled(false);
+    persistMembers();
+    Session session = em.unwrap(Session.class);
+
+    assertThat(memberTestRepository.basicSelectFrom()).noneMatch(session::isReadOnly);
+  }
+
+  private void persistMembers() {
+    Team team = new Team("teamA");
+    em.persist(team);
+    for (int i = 0; i < 3; i++) {
+      em.persist(new Member("member" + i, 10 * i, team));
+    }
+    em.flush();
+    em.clear();
+  }
+}